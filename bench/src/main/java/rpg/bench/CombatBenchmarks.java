@@ -0,0 +1,220 @@
+package rpg.bench;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rpg.GameControl;
+import rpg.QueueCommands;
+import rpg.ScannerCommands;
+
+/**
+ * Benchmark suite for the combat and AI hot paths.
+ * Every benchmark runs with console output on and off (CombatState.console), in forked JVMs,
+ * and reports the average time per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+public class CombatBenchmarks {
+
+  /**
+   * Times one strong attack roll.
+   * @param state CombatState holding the attacker
+   * @return int representing the damage rolled
+   */
+  @Benchmark
+  public int unitAttack(CombatState state){
+    return state.attacker.attack("strong");
+  }
+
+  /**
+   * Times one hit taken by a unit at full HP.
+   * @param state CombatState holding the target
+   * @return int representing the target's HP after the hit
+   */
+  @Benchmark
+  public int unitReceiveDamage(CombatState state){
+    state.target.setHp(state.targetHp);
+    state.target.receiveDamage(10);
+    return state.target.getHp();
+  }
+
+  /**
+   * Times the computer's choice of target among the human units.
+   * @param state CombatState holding both sides
+   * @return int representing the chosen unit's HP
+   */
+  @Benchmark
+  public int computerSelectOptimalTarget(CombatState state){
+    return state.computer.selectOptimalTarget(state.human.getFalia(), state.human.getErom(), state.human.getAma(),
+        state.computer.getLedde()).getHp();
+  }
+
+  /**
+   * Times the human side's matchup check.
+   * @param state CombatState holding both sides
+   * @return int representing the length of the strength chosen
+   */
+  @Benchmark
+  public int humanDetermineAttackerStrength(CombatState state){
+    return state.human.determineAttackerStrength(state.attacker, state.target).length();
+  }
+
+  /**
+   * Times the computer side's matchup check.
+   * @param state CombatState holding both sides
+   * @return int representing the length of the strength chosen
+   */
+  @Benchmark
+  public int computerDetermineAttackerStrength(CombatState state){
+    return state.computer.determineAttackerStrength(state.target, state.attacker).length();
+  }
+
+  /**
+   * Times one human move read from an in-memory queue.
+   * @param state QueuedMoves holding both sides and the queue
+   * @return int representing the target's HP after the move
+   */
+  @Benchmark
+  public int humanMoveUnitQueued(QueuedMoves state){
+    state.target.setHp(state.targetHp);
+    state.queued.add("a", "Criati");
+    state.human.moveUnit(state.attacker, state.computer);
+    return state.target.getHp();
+  }
+
+  /**
+   * Times one human move parsed from a stream by a Scanner.
+   * @param state ScannedMoves holding both sides and the scanner
+   * @return int representing the target's HP after the move
+   */
+  @Benchmark
+  public int humanMoveUnitScanner(ScannedMoves state){
+    state.target.setHp(state.targetHp);
+    state.human.moveUnit(state.attacker, state.computer);
+    return state.target.getHp();
+  }
+
+  /**
+   * Times the winner check of a game in progress.
+   * @param state CombatState holding the game
+   * @return int representing the length of the winner, 0 for none
+   */
+  @Benchmark
+  public int gameGetWinner(CombatState state){
+    String winner = state.game.getWinner(10);
+    return winner == null ? 0 : winner.length();
+  }
+
+  /**
+   * Times a whole three-on-three match.
+   * @param state CombatState holding the events
+   * @return int representing the length of the result
+   */
+  @Benchmark
+  public int gamePlayHeadless(CombatState state){
+    GameControl match = new GameControl();
+    match.setEvents(state.events);
+    return match.playHeadless().length();
+  }
+
+  /**
+   * Times a whole match with 1000 units per side.
+   * @param state CombatState holding the events
+   * @return int representing the length of the result
+   */
+  @Benchmark
+  public int gamePlayHeadlessLarge(CombatState state){
+    GameControl match = new GameControl(ThreadLocalRandom.current().nextLong(), 1000);
+    match.setEvents(state.events);
+    return match.playHeadless().length();
+  }
+
+  /**
+   * CombatState whose human player reads its moves from an in-memory queue.
+   */
+  @State(Scope.Thread)
+  public static class QueuedMoves extends CombatState {
+
+    /**
+     * The queue every move is added to before it is played.
+     */
+    QueueCommands queued;
+
+    /**
+     * Hands the queue to the human player.
+     * Note: This method does not take any parameters and does not return anything.
+     */
+    @Override
+    void setUpCommands(){
+      this.queued = new QueueCommands();
+      this.human.setCommands(this.queued);
+    }
+  }
+
+  /**
+   * CombatState whose human player parses its moves from a console that always has the next one ready.
+   */
+  @State(Scope.Thread)
+  public static class ScannedMoves extends CombatState {
+
+    /**
+     * Hands a scanner over an endless stream of moves to the human player.
+     * Note: This method does not take any parameters and does not return anything.
+     */
+    @Override
+    void setUpCommands(){
+      this.human.setCommands(new ScannerCommands(new RepeatingStream("a Criati\n")));
+    }
+  }
+
+  /**
+   * An endless stream repeating the same text, standing in for a console that always has input ready.
+   */
+  private static final class RepeatingStream extends InputStream {
+
+    /**
+     * The text to repeat.
+     */
+    private final byte[] text;
+
+    /**
+     * Position of the next byte in text.
+     */
+    private int position = 0;
+
+    /**
+     * Constructs a stream repeating the given text.
+     * @param text String to repeat
+     */
+    RepeatingStream(String text){
+      this.text = text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public int read(){
+      int b = this.text[this.position];
+      this.position = (this.position + 1) % this.text.length;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length){
+      for (int i = 0; i < length; i++) {
+        buffer[offset + i] = (byte) read();
+      }
+      return length;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package rpg.bench;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import rpg.CombatEvents;
+import rpg.ComputerPlayer;
+import rpg.ConsoleEvents;
+import rpg.GameControl;
+import rpg.HumanPlayer;
+import rpg.SilentEvents;
+import rpg.Unit;
+
+/**
+ * One game, both players and the console they write to, shared by the benchmarks of one thread.
+ * With console on, the regular console renderer writes into a scratch file instead of the terminal;
+ * with it off, everything goes to SilentEvents, so the share of I/O in each call can be read off directly.
+ */
+@State(Scope.Thread)
+public class CombatState {
+
+  /**
+   * True to render the console text, false to drop it.
+   */
+  @Param({"true", "false"})
+  boolean console;
+
+  /**
+   * Scratch file the console text is written to, or null with console off.
+   */
+  Path consoleFile;
+
+  /**
+   * Stream to consoleFile, or null with console off.
+   */
+  FileOutputStream stream;
+
+  /**
+   * The event sink every game and player publishes to.
+   */
+  CombatEvents events;
+
+  /**
+   * The game whose winner check is measured.
+   */
+  GameControl game;
+
+  /**
+   * The human side.
+   */
+  HumanPlayer human;
+
+  /**
+   * The computer side.
+   */
+  ComputerPlayer computer;
+
+  /**
+   * The human unit that attacks in every attack benchmark.
+   */
+  Unit attacker;
+
+  /**
+   * The computer unit that is attacked, reset to targetHp before every call that hurts it.
+   */
+  Unit target;
+
+  /**
+   * HP of target at the start of the trial.
+   */
+  int targetHp;
+
+  /**
+   * Opens the console, if on, and deals a fresh game to both players.
+   * Note: This method does not take any parameters and does not return anything.
+   * @throws IOException if the scratch file cannot be created
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    if (this.console) {
+      this.consoleFile = Files.createTempFile("rpg-bench-console", ".txt");
+      this.stream = new FileOutputStream(this.consoleFile.toFile());
+      this.events = new ConsoleEvents(this.stream);
+    } else {
+      this.events = SilentEvents.INSTANCE;
+    }
+
+    this.game = new GameControl();
+    this.human = new HumanPlayer();
+    this.computer = new ComputerPlayer();
+    this.game.setEvents(this.events);
+    this.human.setEvents(this.events);
+    this.computer.setEvents(this.events);
+
+    this.attacker = this.human.getFalia();
+    this.target = this.computer.getCriati();
+    this.targetHp = this.target.getHp();
+    setUpCommands();
+  }
+
+  /**
+   * Hands the human player the commands its benchmarks need; the default console is left alone.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  void setUpCommands(){
+  }
+
+  /**
+   * Flushes the console and deletes its scratch file.
+   * Note: This method does not take any parameters and does not return anything.
+   * @throws IOException if the scratch file cannot be closed or deleted
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.events.flush();
+    if (this.stream != null) {
+      this.stream.close();
+      Files.deleteIfExists(this.consoleFile);
+    }
+  }
+}
@@ -0,0 +1,315 @@
+package rpg;
+import java.util.random.RandomGenerator;
+
+/**
+ * The numbers that decide the game's balance: the level ranges units are drawn from, the stats a unit has at level 10,
+ * the damage multiplier of every attacker strength, and the attack formula's maximum and divisor.
+ * STANDARD holds the original values. A rule set is immutable; with returns a copy with one parameter changed,
+ * which is how BalanceSweep explores variations. Each level range runs up to the start of the next one,
+ * so low levels are lowLevel to mediumLevel - 1 and high levels are highLevel to maxLevel.
+ */
+public final class BalanceRules {
+
+  /**
+   * Names of the parameters accepted by get and with, in the order BalanceSweep prints them.
+   */
+  public static final String[] PARAMETERS = {
+    "lowLevel", "mediumLevel", "highLevel", "maxLevel", "hp", "attack", "evasion", "defense",
+    "strong", "same", "weak", "attackMax", "attackDivisor"
+  };
+
+  /**
+   * Highest level a rule set can allow; levels are stored in four bits by MatchRecorder and GameSnapshot.
+   */
+  static final int LEVEL_LIMIT = 15;
+
+  /**
+   * The original rules of the game.
+   */
+  public static final BalanceRules STANDARD = new BalanceRules();
+
+  /**
+   * Lowest level of a "low" unit.
+   */
+  private int lowLevel = 1;
+
+  /**
+   * Lowest level of a "medium" unit.
+   */
+  private int mediumLevel = 4;
+
+  /**
+   * Lowest level of a "high" unit.
+   */
+  private int highLevel = 7;
+
+  /**
+   * Highest level of a "high" unit.
+   */
+  private int maxLevel = 10;
+
+  /**
+   * HP of a level 10 unit; every stat scales with a tenth of the level, see Unit.scaleStat.
+   */
+  private int hp = 100;
+
+  /**
+   * Attack stat of a level 10 unit.
+   */
+  private int attack = 20;
+
+  /**
+   * Evasion stat of a level 10 unit.
+   */
+  private int evasion = 5;
+
+  /**
+   * Defense stat of a level 10 unit.
+   */
+  private int defense = 20;
+
+  /**
+   * Damage multiplier for every attacker strength, indexed by Strength ordinal.
+   */
+  private final double[] multipliers = Matchups.MULTIPLIERS.clone();
+
+  /**
+   * Damage of an attack whose attack stat equals attackDivisor, before the strength multiplier.
+   */
+  private double attackMax = 50.0;
+
+  /**
+   * Attack stat that deals attackMax damage.
+   */
+  private double attackDivisor = 30.0;
+
+  /**
+   * Damage table for these rules, built on first use.
+   */
+  private DamageTable damageTable;
+
+  /**
+   * Constructs the standard rules.
+   */
+  private BalanceRules(){
+  }
+
+  /**
+   * Returns the value of a parameter.
+   * @param parameter String naming one of PARAMETERS
+   * @return double representing the parameter's value
+   */
+  public double get(String parameter){
+    switch (parameter) {
+      case "lowLevel": return this.lowLevel;
+      case "mediumLevel": return this.mediumLevel;
+      case "highLevel": return this.highLevel;
+      case "maxLevel": return this.maxLevel;
+      case "hp": return this.hp;
+      case "attack": return this.attack;
+      case "evasion": return this.evasion;
+      case "defense": return this.defense;
+      case "strong": return this.multipliers[Strength.STRONG.ordinal()];
+      case "same": return this.multipliers[Strength.SAME.ordinal()];
+      case "weak": return this.multipliers[Strength.WEAK.ordinal()];
+      case "attackMax": return this.attackMax;
+      case "attackDivisor": return this.attackDivisor;
+      default: throw new IllegalArgumentException("Unknown balance parameter: " + parameter);
+    }
+  }
+
+  /**
+   * Returns a copy of these rules with one parameter changed. Level and stat parameters are rounded to whole numbers.
+   * @param parameter String naming one of PARAMETERS
+   * @param value double representing the parameter's new value
+   * @return BalanceRules with the change
+   * @throws IllegalArgumentException if the parameter is unknown or the rules would not make a playable game
+   */
+  public BalanceRules with(String parameter, double value){
+    return with(new String[]{parameter}, new double[]{value});
+  }
+
+  /**
+   * Returns a copy of these rules with several parameters changed at once, checked only after every change,
+   * so related parameters such as the level ranges can move together.
+   * @param parameters String array naming some of PARAMETERS
+   * @param values double array of the new values, aligned with parameters
+   * @return BalanceRules with the changes
+   * @throws IllegalArgumentException if a parameter is unknown or the rules would not make a playable game
+   */
+  public BalanceRules with(String[] parameters, double[] values){
+    BalanceRules rules = new BalanceRules();
+    rules.lowLevel = this.lowLevel;
+    rules.mediumLevel = this.mediumLevel;
+    rules.highLevel = this.highLevel;
+    rules.maxLevel = this.maxLevel;
+    rules.hp = this.hp;
+    rules.attack = this.attack;
+    rules.evasion = this.evasion;
+    rules.defense = this.defense;
+    System.arraycopy(this.multipliers, 0, rules.multipliers, 0, this.multipliers.length);
+    rules.attackMax = this.attackMax;
+    rules.attackDivisor = this.attackDivisor;
+
+    for (int i = 0; i < parameters.length; i++) {
+      rules.set(parameters[i], values[i]);
+    }
+    rules.check();
+    return rules;
+  }
+
+  /**
+   * Changes one parameter of a copy under construction.
+   * Note: This method does not return anything.
+   * @param parameter String naming one of PARAMETERS
+   * @param value double representing the parameter's new value, rounded for level and stat parameters
+   */
+  private void set(String parameter, double value){
+    int whole = (int) Math.round(value);
+    switch (parameter) {
+      case "lowLevel": this.lowLevel = whole; break;
+      case "mediumLevel": this.mediumLevel = whole; break;
+      case "highLevel": this.highLevel = whole; break;
+      case "maxLevel": this.maxLevel = whole; break;
+      case "hp": this.hp = whole; break;
+      case "attack": this.attack = whole; break;
+      case "evasion": this.evasion = whole; break;
+      case "defense": this.defense = whole; break;
+      case "strong": this.multipliers[Strength.STRONG.ordinal()] = value; break;
+      case "same": this.multipliers[Strength.SAME.ordinal()] = value; break;
+      case "weak": this.multipliers[Strength.WEAK.ordinal()] = value; break;
+      case "attackMax": this.attackMax = value; break;
+      case "attackDivisor": this.attackDivisor = value; break;
+      default: throw new IllegalArgumentException("Unknown balance parameter: " + parameter);
+    }
+  }
+
+  /**
+   * Checks that the rules make a playable game: ordered level ranges within the level limit,
+   * units that start alive with some defense, and positive damage factors.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void check(){
+    if (this.lowLevel < 1 || this.lowLevel >= this.mediumLevel || this.mediumLevel >= this.highLevel
+        || this.highLevel > this.maxLevel || this.maxLevel > LEVEL_LIMIT) {
+      throw new IllegalArgumentException("Level ranges must satisfy 1 <= lowLevel < mediumLevel < highLevel <= maxLevel <= "
+          + LEVEL_LIMIT + ": " + this.lowLevel + ", " + this.mediumLevel + ", " + this.highLevel + ", " + this.maxLevel);
+    }
+    if (Unit.scaleStat(this.lowLevel, this.hp) < 1 || Unit.scaleStat(this.lowLevel, this.defense) < 1
+        || this.attack < 0 || this.evasion < 0) {
+      throw new IllegalArgumentException("Units at level " + this.lowLevel + " need HP and defense above 0");
+    }
+    if (!(this.attackDivisor > 0) || !(this.attackMax >= 0)) {
+      throw new IllegalArgumentException("The attack divisor must be above 0 and the attack maximum at least 0");
+    }
+    for (double multiplier : this.multipliers) {
+      if (!(multiplier >= 0)) {
+        throw new IllegalArgumentException("Damage multipliers must be at least 0: " + multiplier);
+      }
+    }
+  }
+
+  /**
+   * Draws a level from one of the level ranges.
+   * @param levelRange String "low", "medium", or anything else for high
+   * @param random RandomGenerator to draw from
+   * @return int representing the level
+   */
+  int drawLevel(String levelRange, RandomGenerator random){
+    if ("low".equals(levelRange)) {
+      return random.nextInt(this.lowLevel, this.mediumLevel);
+    } else if ("medium".equals(levelRange)) {
+      return random.nextInt(this.mediumLevel, this.highLevel);
+    }
+    return random.nextInt(this.highLevel, this.maxLevel + 1);
+  }
+
+  /**
+   * Calculates the damage dealt by an attack stat at the given strength, before the defender's defense.
+   * @param attack int representing the attacker's attack stat
+   * @param attackerStrength Strength of the attacker relative to the target
+   * @return int representing the total damage dealt
+   */
+  int attackDamage(int attack, Strength attackerStrength){
+    double multiplier = this.multipliers[attackerStrength.ordinal()];
+    double rawDamage = (attack / this.attackDivisor) * this.attackMax;
+    return (int) Math.round(rawDamage * multiplier);
+  }
+
+  /**
+   * Returns the damage table for these rules, building it on first use.
+   * Note: This method does not take any parameters.
+   * @return DamageTable computed with these rules
+   */
+  DamageTable damageTable(){
+    DamageTable table = this.damageTable;
+    if (table == null) {
+      // a race builds the same immutable table twice, which is harmless
+      table = new DamageTable(this);
+      this.damageTable = table;
+    }
+    return table;
+  }
+
+  /**
+   * Returns the highest level units can have.
+   * Note: This method does not take any parameters.
+   * @return maxLevel
+   */
+  public int getMaxLevel(){
+    return this.maxLevel;
+  }
+
+  /**
+   * Returns the HP of a level 10 unit.
+   * Note: This method does not take any parameters.
+   * @return hp
+   */
+  public int getHp(){
+    return this.hp;
+  }
+
+  /**
+   * Returns the attack stat of a level 10 unit.
+   * Note: This method does not take any parameters.
+   * @return attack
+   */
+  public int getAttack(){
+    return this.attack;
+  }
+
+  /**
+   * Returns the evasion stat of a level 10 unit.
+   * Note: This method does not take any parameters.
+   * @return evasion
+   */
+  public int getEvasion(){
+    return this.evasion;
+  }
+
+  /**
+   * Returns the defense stat of a level 10 unit.
+   * Note: This method does not take any parameters.
+   * @return defense
+   */
+  public int getDefense(){
+    return this.defense;
+  }
+
+  /**
+   * Determines if these are the original rules of the game.
+   * Note: This method does not take any parameters.
+   * @return boolean true if every parameter has its standard value
+   */
+  public boolean isStandard(){
+    if (this == STANDARD) {
+      return true;
+    }
+    for (String parameter : PARAMETERS) {
+      if (get(parameter) != STANDARD.get(parameter)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
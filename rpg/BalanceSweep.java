@@ -0,0 +1,315 @@
+package rpg;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Explores variations of the balance rules: plays the same seeds under every point of a grid, or under random points
+ * drawn from ranges, across all cores, and prints one CSV row per point as soon as it and every point before it
+ * are done. A row holds the point's parameter values, the human, computer and tie rates, the average match length and
+ * the share of matches that went all 10 turns. Points that do not make a playable game are reported and skipped.
+ * Every point plays the same seeds, so differences between rows come from the rules and not from the dice.
+ */
+public class BalanceSweep {
+
+  /**
+   * Names of the swept parameters, see BalanceRules.PARAMETERS.
+   */
+  private final List<String> parameters = new ArrayList<>();
+
+  /**
+   * For a grid, the values of every swept parameter; for a random search, its lowest and highest value.
+   */
+  private final List<double[]> values = new ArrayList<>();
+
+  /**
+   * Number of random points to draw, or 0 to sweep the grid.
+   */
+  private final int randomPoints;
+
+  /**
+   * Generator of the random points.
+   */
+  private final SplittableRandom random;
+
+  /**
+   * Number of matches played at every point.
+   */
+  private final long matches;
+
+  /**
+   * Seed of the first match played at every point.
+   */
+  private final long firstSeed;
+
+  /**
+   * A point being played.
+   */
+  private static final class Pending {
+
+    /**
+     * The point's position in the sweep.
+     */
+    final long index;
+
+    /**
+     * The point's parameter values.
+     */
+    final double[] point;
+
+    /**
+     * The simulation of the point's matches, or null if the point was skipped.
+     */
+    final ForkJoinTask<MatchTally> task;
+
+    /**
+     * Why the point was skipped, or null if it is played.
+     */
+    final String skipped;
+
+    /**
+     * Constructs a point being played or skipped.
+     * @param index long representing the point's position in the sweep
+     * @param point double array of the point's parameter values
+     * @param task ForkJoinTask playing the point's matches, or null if the point was skipped
+     * @param skipped String explaining why the point was skipped, or null
+     */
+    Pending(long index, double[] point, ForkJoinTask<MatchTally> task, String skipped){
+      this.index = index;
+      this.point = point;
+      this.task = task;
+      this.skipped = skipped;
+    }
+  }
+
+  /**
+   * Constructs a sweep. Add its parameters before running it.
+   * @param matches long representing the number of matches to play at every point
+   * @param firstSeed long representing the seed of the first match at every point
+   * @param randomPoints int representing the number of random points to draw, or 0 to sweep a grid
+   * @param randomSeed long seeding the draws of the random points
+   */
+  public BalanceSweep(long matches, long firstSeed, int randomPoints, long randomSeed){
+    this.matches = matches;
+    this.firstSeed = firstSeed;
+    this.randomPoints = randomPoints;
+    this.random = new SplittableRandom(randomSeed);
+  }
+
+  /**
+   * Adds a parameter to the sweep with the values to try, or with its range for a random search.
+   * @param parameter String naming one of BalanceRules.PARAMETERS
+   * @param values double array of values to try; for a random search, the lowest and highest value
+   * @return this sweep
+   */
+  public BalanceSweep add(String parameter, double... values){
+    BalanceRules.STANDARD.get(parameter); // rejects unknown names
+    if (values.length == 0 || this.randomPoints > 0 && values.length != 2) {
+      throw new IllegalArgumentException("Parameter " + parameter + " needs values, or a range for a random search");
+    }
+    this.parameters.add(parameter);
+    this.values.add(values);
+    return this;
+  }
+
+  /**
+   * Parses a parameter given as name=from:to:step or name=v1,v2,... for a grid, name=from:to for a random search,
+   * or name=value to fix it, and adds it to the sweep.
+   * @param spec String describing the parameter
+   * @return this sweep
+   */
+  public BalanceSweep add(String spec){
+    int equals = spec.indexOf('=');
+    if (equals < 0) {
+      throw new IllegalArgumentException("Expected name=values: " + spec);
+    }
+    String name = spec.substring(0, equals);
+    String[] parts = spec.substring(equals + 1).split(spec.indexOf(',') >= 0 ? "," : ":");
+    double[] numbers = new double[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      numbers[i] = Double.parseDouble(parts[i]);
+    }
+    if (numbers.length == 1) {
+      // a fixed value
+      return this.randomPoints > 0 ? add(name, numbers[0], numbers[0]) : add(name, numbers);
+    }
+    if (spec.indexOf(',') >= 0 || this.randomPoints > 0) {
+      return add(name, numbers);
+    }
+    if (numbers.length != 3 || !(numbers[2] > 0) || numbers[1] < numbers[0]) {
+      throw new IllegalArgumentException("Expected name=from:to:step with a positive step: " + spec);
+    }
+    int count = (int) Math.floor((numbers[1] - numbers[0]) / numbers[2] + 1e-9) + 1;
+    double[] grid = new double[count];
+    for (int i = 0; i < count; i++) {
+      // computed from the start each time so long grids do not drift
+      grid[i] = numbers[0] + i * numbers[2];
+    }
+    return add(name, grid);
+  }
+
+  /**
+   * Returns the number of points the sweep visits.
+   * Note: This method does not take any parameters.
+   * @return long representing the grid size, or the number of random points
+   */
+  public long size(){
+    if (this.randomPoints > 0) {
+      return this.randomPoints;
+    }
+    long size = 1;
+    for (double[] grid : this.values) {
+      size = Math.multiplyExact(size, grid.length);
+    }
+    return size;
+  }
+
+  /**
+   * Returns the parameter values of the next point. Grid points are visited in order, the last parameter changing
+   * fastest; random points are drawn uniformly from every range.
+   * @param index long representing the point's position in the sweep
+   * @return double array of the values, aligned with the swept parameters
+   */
+  private double[] point(long index){
+    double[] point = new double[this.parameters.size()];
+    for (int p = point.length - 1; p >= 0; p--) {
+      double[] values = this.values.get(p);
+      if (this.randomPoints > 0) {
+        point[p] = values[0] + this.random.nextDouble() * (values[1] - values[0]);
+      } else {
+        point[p] = values[(int) (index % values.length)];
+        index /= values.length;
+      }
+    }
+    return point;
+  }
+
+  /**
+   * Builds the rules of a point, starting from the standard rules, and replaces the point's values with the ones
+   * the rules took, such as whole numbers for levels and stats.
+   * @param point double array of the values, aligned with the swept parameters
+   * @return BalanceRules of the point
+   * @throws IllegalArgumentException if the point does not make a playable game
+   */
+  private BalanceRules rules(double[] point){
+    BalanceRules rules = BalanceRules.STANDARD.with(this.parameters.toArray(new String[0]), point);
+    for (int p = 0; p < point.length; p++) {
+      point[p] = rules.get(this.parameters.get(p));
+    }
+    return rules;
+  }
+
+  /**
+   * Plays every point and prints a CSV header and one row per point, in point order.
+   * Keeps a few points per core in flight so rows stream out while the sweep runs.
+   * @param out PrintStream to print the table to
+   * @return long representing the number of matches played
+   */
+  public long run(PrintStream out){
+    StringBuilder header = new StringBuilder("point");
+    for (String parameter : this.parameters) {
+      header.append(',').append(parameter);
+    }
+    out.println(header.append(",matches,human,computer,tie,averageTurns,fullLength"));
+
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    int window = pool.getParallelism() * 4;
+    ArrayDeque<Pending> pending = new ArrayDeque<>();
+    long played = 0;
+    long size = size();
+    for (long index = 0; index < size || !pending.isEmpty(); ) {
+      if (index < size && pending.size() < window) {
+        double[] point = point(index);
+        try {
+          pending.add(new Pending(index, point, pool.submit(new BatchSimulator(this.firstSeed, this.matches,
+              rules(point))), null));
+        } catch (IllegalArgumentException e) {
+          pending.add(new Pending(index, point, null, e.getMessage()));
+        }
+        index++;
+        continue;
+      }
+
+      Pending done = pending.poll();
+      if (done.task == null) {
+        out.println("# point " + done.index + " skipped: " + done.skipped);
+        continue;
+      }
+      MatchTally tally = done.task.join();
+      played += tally.getMatches();
+      out.println(row(done.index, done.point, tally));
+    }
+    out.flush();
+    return played;
+  }
+
+  /**
+   * Formats the row of one point.
+   * @param index long representing the point's position in the sweep
+   * @param point double array of the point's values
+   * @param tally MatchTally of the point's matches
+   * @return String of the CSV row
+   */
+  private String row(long index, double[] point, MatchTally tally){
+    StringBuilder row = new StringBuilder().append(index);
+    for (double value : point) {
+      row.append(',').append(value == Math.rint(value) ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.4f", value));
+    }
+    long matches = Math.max(tally.getMatches(), 1);
+    return row.append(',').append(tally.getMatches())
+        .append(String.format(Locale.ROOT, ",%.4f,%.4f,%.4f,%.3f,%.4f", (double) tally.getHumanWins() / matches,
+            (double) tally.getComputerWins() / matches, (double) tally.getTies() / matches, tally.getAverageTurns(),
+            (double) tally.turnCounts[10] / matches))
+        .toString();
+  }
+
+  /**
+   * Runs a balance sweep and prints its table, followed by the time taken on stderr.
+   * @param args "--matches" followed by the matches per point (default 10000), "--seed" followed by the first match
+   *             seed (default 0), "--random" followed by the number of random points to draw instead of sweeping
+   *             a grid, "--random-seed" followed by the seed of those draws, then one or more parameters as
+   *             name=from:to:step or name=v1,v2,... for a grid, name=from:to for a random search, or name=value,
+   *             such as strong=1.0:1.6:0.1 weak=0.3,0.5,0.7
+   */
+  public static void main(String[] args){
+    long matches = 10_000;
+    long firstSeed = 0;
+    int randomPoints = 0;
+    long randomSeed = 0;
+    List<String> specs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("--matches".equals(args[i]) && i + 1 < args.length) {
+        matches = Long.parseLong(args[++i]);
+      } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+        firstSeed = Long.parseLong(args[++i]);
+      } else if ("--random".equals(args[i]) && i + 1 < args.length) {
+        randomPoints = Integer.parseInt(args[++i]);
+      } else if ("--random-seed".equals(args[i]) && i + 1 < args.length) {
+        randomSeed = Long.parseLong(args[++i]);
+      } else {
+        specs.add(args[i]);
+      }
+    }
+    if (specs.isEmpty()) {
+      System.err.println("Usage: java rpg.BalanceSweep [--matches N] [--seed S] [--random POINTS] [--random-seed S]"
+          + " name=from:to:step|name=v1,v2,...|name=from:to ...");
+      System.err.println("Parameters: " + String.join(", ", BalanceRules.PARAMETERS));
+      return;
+    }
+
+    BalanceSweep sweep = new BalanceSweep(matches, firstSeed, randomPoints, randomSeed);
+    for (String spec : specs) {
+      sweep.add(spec);
+    }
+    long start = System.nanoTime();
+    long played = sweep.run(System.out);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.err.println(String.format("%d points, %d matches in %.2f s (%.0f matches per second) on %d workers",
+        sweep.size(), played, seconds, played / seconds, ForkJoinPool.commonPool().getParallelism()));
+  }
+}
@@ -0,0 +1,266 @@
+package rpg;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays large numbers of headless matches in parallel and reports win and tie distributions.
+ * Both sides use their scripted policies, see GameControl.playHeadless.
+ */
+public class BatchSimulator extends RecursiveTask<MatchTally> {
+
+  /**
+   * Version of the serialized form, which fork/join tasks inherit but never use.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Number of matches below which a task plays its matches instead of splitting further.
+   */
+  static final int SPLIT_THRESHOLD = 4096;
+
+  /**
+   * Seed of the first match this task plays; match i uses firstSeed + i.
+   */
+  private final long firstSeed;
+
+  /**
+   * Number of matches this task is responsible for.
+   */
+  private final long matches;
+
+  /**
+   * Ranges of a log every match's outcome is recorded to, or null to play without recording.
+   */
+  private final transient MatchLog.Batch log;
+
+  /**
+   * Balance rules every match is played under.
+   */
+  private final transient BalanceRules rules;
+
+  /**
+   * Stream every match is written to as a row, or null.
+   */
+  private final transient ResultStream results;
+
+  /**
+   * Constructs a simulation task for a range of match seeds.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   */
+  public BatchSimulator(long firstSeed, long matches){
+    this(firstSeed, matches, null, BalanceRules.STANDARD, null);
+  }
+
+  /**
+   * Constructs a simulation task for a range of match seeds that records every match's outcome into reserved ranges
+   * of a log.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   * @param log MatchLog.Batch reserved for the seeds, see MatchLog.reserve, or null to play without recording
+   */
+  public BatchSimulator(long firstSeed, long matches, MatchLog.Batch log){
+    this(firstSeed, matches, log, BalanceRules.STANDARD, null);
+  }
+
+  /**
+   * Constructs a simulation task for a range of match seeds played under the given balance rules, without recording.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   * @param rules BalanceRules every match is played under
+   */
+  public BatchSimulator(long firstSeed, long matches, BalanceRules rules){
+    this(firstSeed, matches, null, rules, null);
+  }
+
+  /**
+   * Constructs a simulation task that writes a row for every match to a result stream.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   * @param log MatchLog.Batch reserved for the seeds, see MatchLog.reserve, or null to play without recording
+   * @param results ResultStream to write the rows to, or null for none
+   */
+  public BatchSimulator(long firstSeed, long matches, MatchLog.Batch log, ResultStream results){
+    this(firstSeed, matches, log, BalanceRules.STANDARD, results);
+  }
+
+  /**
+   * Constructs a simulation task.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   * @param log MatchLog.Batch reserved for the seeds, see MatchLog.reserve, or null to play without recording
+   * @param rules BalanceRules every match is played under
+   * @param results ResultStream to write a row for every match to, or null for none
+   */
+  private BatchSimulator(long firstSeed, long matches, MatchLog.Batch log, BalanceRules rules, ResultStream results){
+    this.firstSeed = firstSeed;
+    this.matches = matches;
+    this.log = log;
+    this.rules = rules;
+    this.results = results;
+  }
+
+  /**
+   * Plays this task's matches, splitting the work in half until it is small enough.
+   * Note: This method does not take any parameters.
+   * @return MatchTally of all matches played by this task
+   */
+  @Override
+  protected MatchTally compute(){
+    if (this.matches <= SPLIT_THRESHOLD) {
+      MatchRows rows = this.results != null ? this.results.acquire() : null;
+      MatchTally tally;
+      try {
+        tally = play(rows);
+      } catch (RuntimeException | Error e) {
+        if (rows != null) {
+          // the block goes back to the stream, which then fails instead of waiting for it
+          this.results.abandon(rows);
+        }
+        throw e;
+      }
+      if (rows != null) {
+        this.results.submit(rows);
+      }
+      return tally;
+    }
+
+    long half = this.matches / 2;
+    BatchSimulator left = new BatchSimulator(this.firstSeed, half, this.log, this.rules, this.results);
+    BatchSimulator right = new BatchSimulator(this.firstSeed + half, this.matches - half, this.log, this.rules,
+        this.results);
+    left.fork();
+    return right.compute().merge(left.join());
+  }
+
+  /**
+   * Plays this task's matches in one go, adding a row for every match to a block if there is one.
+   * @param rows MatchRows to add the matches to, or null
+   * @return MatchTally of all matches played by this task
+   */
+  private MatchTally play(MatchRows rows){
+    MatchTally tally = new MatchTally();
+    TurnEngine engine = new TurnEngine(3);
+    for (long i = 0; i < this.matches; i++) {
+      // the same match as playHeadless, dealt and resolved a turn at a time on a BattleState
+      String winner = engine.play(this.firstSeed + i, this.rules, GreedyPolicy.INSTANCE, PairingPolicy.INSTANCE);
+      tally.record(winner, engine.getTurn(), engine.getHpSum(BattleState.HUMAN),
+          engine.getHpSum(BattleState.COMPUTER));
+      if (this.log != null) {
+        // a scripted match replays from its seed, so its outcome is all the log keeps
+        this.log.write(this.firstSeed + i, winner, engine.getTurn());
+      }
+      if (rows != null) {
+        rows.add(this.firstSeed + i, engine.getState(), winner, engine.getTurn());
+      }
+    }
+    return tally;
+  }
+
+  /**
+   * Plays the matches with seeds firstSeed to firstSeed + matches - 1 across all cores without any output.
+   * Every match gets its own generator, so the result only depends on the seed range and not on scheduling.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   * @return MatchTally of all matches played
+   */
+  public static MatchTally simulate(long firstSeed, long matches){
+    return ForkJoinPool.commonPool().invoke(new BatchSimulator(firstSeed, matches));
+  }
+
+  /**
+   * Plays the matches with seeds firstSeed to firstSeed + matches - 1 across all cores and appends them to a log
+   * as seed ranges, taking one byte per match for its outcome.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   * @param log MatchLog to append the matches to
+   * @return MatchTally of all matches played
+   */
+  public static MatchTally simulate(long firstSeed, long matches, MatchLog log){
+    return simulate(firstSeed, matches, log, null);
+  }
+
+  /**
+   * Plays the matches with seeds firstSeed to firstSeed + matches - 1 across all cores, appending them to a log
+   * and writing a row for each to a result stream, either of which may be left out.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   * @param log MatchLog to append the matches to, or null
+   * @param results ResultStream to write the rows to, or null
+   * @return MatchTally of all matches played
+   */
+  public static MatchTally simulate(long firstSeed, long matches, MatchLog log, ResultStream results){
+    MatchLog.Batch batch = log != null ? log.reserve(firstSeed, matches) : null;
+    return ForkJoinPool.commonPool().invoke(new BatchSimulator(firstSeed, matches, batch, results));
+  }
+
+  /**
+   * Runs a batch simulation and prints matches per second along with the win and tie distribution.
+   * @param args optional number of matches to play and seed of the first match, defaults to 1000000 and 0,
+   * and optionally a match log file to append every match to; "--rows" followed by a file writes a row for every
+   * match to it in the columnar format, or as CSV with "--csv", and "--groups" followed by a file writes the win rates
+   * by job composition and level band to it; run with -Drpg.metrics=true to print GameMetrics too
+   * @throws IOException if the row or group file cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    List<String> positional = new ArrayList<>();
+    Path rowsPath = null;
+    Path groupsPath = null;
+    boolean csv = false;
+    for (int i = 0; i < args.length; i++) {
+      if ("--rows".equals(args[i]) && i + 1 < args.length) {
+        rowsPath = Path.of(args[++i]);
+      } else if ("--groups".equals(args[i]) && i + 1 < args.length) {
+        groupsPath = Path.of(args[++i]);
+      } else if ("--csv".equals(args[i])) {
+        csv = true;
+      } else {
+        positional.add(args[i]);
+      }
+    }
+    long matches = positional.size() > 0 ? Long.parseLong(positional.get(0)) : 1_000_000L;
+    long firstSeed = positional.size() > 1 ? Long.parseLong(positional.get(1)) : 0L;
+    if (groupsPath != null && rowsPath == null) {
+      System.err.println("--groups is counted while writing rows, so it needs --rows");
+      return;
+    }
+
+    long start = System.nanoTime();
+    MatchTally tally;
+    ResultStream results = rowsPath != null ? new ResultStream(rowsPath, csv, 3, BalanceRules.STANDARD) : null;
+    try (results) {
+      if (positional.size() > 2) {
+        try (MatchLog log = MatchLog.open(Path.of(positional.get(2)))) {
+          tally = simulate(firstSeed, matches, log, results);
+        }
+      } else {
+        tally = simulate(firstSeed, matches, null, results);
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.println("Played " + tally.getMatches() + " matches (seeds " + firstSeed + " to "
+        + (firstSeed + matches - 1) + ") on "
+        + ForkJoinPool.commonPool().getParallelism() + " workers in " + String.format("%.2f", seconds) + " s");
+    System.out.println(String.format("%.0f matches per second", tally.getMatches() / seconds));
+    System.out.println(tally);
+    if (results != null) {
+      System.out.println("Wrote " + results.getRows() + " rows to " + rowsPath);
+    }
+    if (groupsPath != null) {
+      try (PrintStream out = new PrintStream(Files.newOutputStream(groupsPath), false, StandardCharsets.UTF_8)) {
+        results.printGroups(out);
+      }
+    }
+    if (GameMetrics.INSTANCE.isRecording()) {
+      System.out.println(GameMetrics.INSTANCE.report());
+    }
+  }
+}
@@ -0,0 +1,526 @@
+package rpg;
+import java.util.random.RandomGenerator;
+
+/**
+ * Packs the units of many battles into primitive arrays, one array per stat.
+ * Units are addressed by slot: every battle takes unitsPerSide human units followed by unitsPerSide computer units,
+ * and battle b starts at slot b * unitsPerBattle. The combat methods follow the same rules as Unit.attack,
+ * Unit.block and Unit.receiveDamage but never allocate, so battles can be copied and simulated in bulk.
+ */
+public class BattleState {
+
+  /**
+   * Side index of the human player.
+   */
+  public static final int HUMAN = 0;
+
+  /**
+   * Side index of the computer player.
+   */
+  public static final int COMPUTER = 1;
+
+  /**
+   * Level ranges in the order HumanPlayer and ComputerPlayer draw them.
+   */
+  private static final String[] LEVEL_RANGES = {"low", "medium", "high"};
+
+  /**
+   * Jobs in the order HumanPlayer and ComputerPlayer draw them.
+   */
+  private static final Job[] JOBS = {Job.MAGE, Job.KNIGHT, Job.ARCHER};
+
+  /**
+   * Number of units each side has in a battle.
+   */
+  final int unitsPerSide;
+
+  /**
+   * Number of units in a battle, both sides together.
+   */
+  final int unitsPerBattle;
+
+  /**
+   * Number of battles this state can hold.
+   */
+  final int capacity;
+
+  /**
+   * Current HP of every unit.
+   */
+  final int[] hp;
+
+  /**
+   * Attack stat of every unit.
+   */
+  final int[] attack;
+
+  /**
+   * Defense stat of every unit.
+   */
+  final int[] defense;
+
+  /**
+   * Evasion stat of every unit.
+   */
+  final int[] evasion;
+
+  /**
+   * Temporary defense of every unit, granted by blocking.
+   */
+  final int[] temporaryDefense;
+
+  /**
+   * Level of every unit.
+   */
+  final int[] level;
+
+  /**
+   * Job of every unit as a Job ordinal.
+   */
+  final byte[] job;
+
+  /**
+   * The balance rules damage is calculated with, the same for every battle in this state.
+   */
+  private BalanceRules rules = BalanceRules.STANDARD;
+
+  /**
+   * Constructs a state for the given number of three-on-three battles.
+   * @param capacity int representing the number of battles to hold
+   */
+  public BattleState(int capacity){
+    this(capacity, 3);
+  }
+
+  /**
+   * Constructs a state for the given number of battles and units per side.
+   * @param capacity int representing the number of battles to hold
+   * @param unitsPerSide int representing the number of units each side has
+   */
+  public BattleState(int capacity, int unitsPerSide){
+    this.capacity = capacity;
+    this.unitsPerSide = unitsPerSide;
+    this.unitsPerBattle = unitsPerSide * 2;
+
+    int slots = capacity * this.unitsPerBattle;
+    this.hp = new int[slots];
+    this.attack = new int[slots];
+    this.defense = new int[slots];
+    this.evasion = new int[slots];
+    this.temporaryDefense = new int[slots];
+    this.level = new int[slots];
+    this.job = new byte[slots];
+  }
+
+  /**
+   * Returns the slot of the given unit.
+   * @param battle int representing the battle
+   * @param side int representing the side, HUMAN or COMPUTER
+   * @param unit int representing the unit's position within its side
+   * @return int representing the unit's slot in the stat arrays
+   */
+  public int slot(int battle, int side, int unit){
+    return battle * this.unitsPerBattle + side * this.unitsPerSide + unit;
+  }
+
+  /**
+   * Copies the stats of the given unit into a slot.
+   * Note: This method does not return anything.
+   * @param slot int representing the slot to fill
+   * @param unit Unit whose stats are copied
+   */
+  public void load(int slot, Unit unit){
+    if (unit.getJobType() == null) {
+      throw new IllegalArgumentException("Unknown job: " + unit.getJob());
+    }
+
+    this.hp[slot] = unit.getHp();
+    this.attack[slot] = unit.getAttack();
+    this.defense[slot] = unit.getDefense();
+    this.evasion[slot] = unit.getEvasion();
+    this.temporaryDefense[slot] = unit.getTemporaryDefense();
+    this.level[slot] = unit.getLevel();
+    this.job[slot] = (byte) unit.getJobType().ordinal();
+  }
+
+  /**
+   * Copies both players' units into the given battle in roster order, human units first.
+   * Both rosters must hold unitsPerSide units.
+   * Note: This method does not return anything.
+   * @param battle int representing the battle to fill
+   * @param human HumanPlayer whose units are copied
+   * @param computer ComputerPlayer whose units are copied
+   */
+  public void load(int battle, HumanPlayer human, ComputerPlayer computer){
+    load(battle, human.getRoster().units, computer.getRoster().units);
+  }
+
+  /**
+   * Copies the given units into a battle, in order; each array must hold unitsPerSide units.
+   * The state takes on the balance rules of the first human unit.
+   * Note: This method does not return anything.
+   * @param battle int representing the battle to fill
+   * @param humanUnits Unit array of the human side
+   * @param computerUnits Unit array of the computer side
+   */
+  public void load(int battle, Unit[] humanUnits, Unit[] computerUnits){
+    this.rules = humanUnits[0].getRules();
+    for (int i = 0; i < this.unitsPerSide; i++) {
+      load(slot(battle, HUMAN, i), humanUnits[i]);
+      load(slot(battle, COMPUTER, i), computerUnits[i]);
+    }
+  }
+
+  /**
+   * Deals a new battle from a match generator with the same draws as new GameControl(seed, unitsPerSide, rules):
+   * the human units, then the computer units, each with a level range draw, a job draw and the level draw of
+   * Unit's constructor, and stats scaled from the level. The state takes on the given rules.
+   * Note: This method does not return anything.
+   * @param battle int representing the battle to fill
+   * @param rules BalanceRules the units are dealt under
+   * @param random RandomGenerator of the match, such as a new MatchRandom(seed)
+   */
+  public void deal(int battle, BalanceRules rules, RandomGenerator random){
+    this.rules = rules;
+    int first = slot(battle, HUMAN, 0);
+    for (int slot = first; slot < first + this.unitsPerBattle; slot++) {
+      String levelRange = LEVEL_RANGES[random.nextInt(3)];
+      Job job = JOBS[random.nextInt(3)];
+      int level = rules.drawLevel(levelRange, random);
+      this.hp[slot] = Unit.scaleStat(level, rules.getHp());
+      this.attack[slot] = Unit.scaleStat(level, rules.getAttack());
+      this.evasion[slot] = Unit.scaleStat(level, rules.getEvasion());
+      this.defense[slot] = Unit.scaleStat(level, rules.getDefense());
+      this.temporaryDefense[slot] = 0;
+      this.level[slot] = level;
+      this.job[slot] = (byte) job.ordinal();
+    }
+  }
+
+  /**
+   * Copies a whole battle, possibly into another state with the same units per side, which takes on this state's rules.
+   * Note: This method does not return anything.
+   * @param battle int representing the battle to copy
+   * @param target BattleState to copy into
+   * @param targetBattle int representing the battle in target to overwrite
+   */
+  public void copyBattle(int battle, BattleState target, int targetBattle){
+    int from = battle * this.unitsPerBattle;
+    int to = targetBattle * target.unitsPerBattle;
+    int length = this.unitsPerBattle;
+
+    System.arraycopy(this.hp, from, target.hp, to, length);
+    System.arraycopy(this.attack, from, target.attack, to, length);
+    System.arraycopy(this.defense, from, target.defense, to, length);
+    System.arraycopy(this.evasion, from, target.evasion, to, length);
+    System.arraycopy(this.temporaryDefense, from, target.temporaryDefense, to, length);
+    System.arraycopy(this.level, from, target.level, to, length);
+    System.arraycopy(this.job, from, target.job, to, length);
+    target.rules = this.rules;
+  }
+
+  /**
+   * Sets the balance rules damage is calculated with.
+   * Note: This method does not return anything.
+   * @param rules BalanceRules the loaded units were created with
+   */
+  public void setRules(BalanceRules rules){
+    this.rules = rules;
+  }
+
+  /**
+   * Returns the balance rules damage is calculated with.
+   * Note: This method does not take any parameters.
+   * @return rules
+   */
+  public BalanceRules getRules(){
+    return this.rules;
+  }
+
+  /**
+   * Returns the strength of the attacker relative to the target, following Matchups.
+   * @param attacker int representing the attacker's slot
+   * @param target int representing the target's slot
+   * @return Strength of the attacker relative to the target
+   */
+  public Strength strength(int attacker, int target){
+    return Matchups.TABLE[this.job[attacker] * 3 + this.job[target]];
+  }
+
+  /**
+   * Picks the best alive target on the given side for an attacker, following ComputerPlayer.selectOptimalTarget:
+   * the highest HP unit the attacker is strong against, else the highest HP unit of the same job,
+   * else the lowest HP unit the attacker is weak against. Earlier units win ties.
+   * @param battle int representing the battle
+   * @param attacker int representing the attacker's slot
+   * @param side int representing the side to pick a target from, HUMAN or COMPUTER
+   * @return int representing the target's slot, or -1 if there is no target
+   */
+  public int selectOptimalTarget(int battle, int attacker, int side){
+    int first = slot(battle, side, 0);
+    int last = first + this.unitsPerSide;
+    int bestHp = 0;
+    // the attacker's row of the matchup table, read after the cheaper HP test
+    Strength[] matchups = Matchups.TABLE;
+    int row = this.job[attacker] * 3;
+
+    // strong relationships: highest HP
+    int optimalTarget = -1;
+    for (int t = first; t < last; t++) {
+      if (this.hp[t] > bestHp && matchups[row + this.job[t]] == Strength.STRONG) {
+        bestHp = this.hp[t];
+        optimalTarget = t;
+      }
+    }
+    if (bestHp > 0) {
+      return optimalTarget;
+    }
+
+    // same relationships: highest HP
+    for (int t = first; t < last; t++) {
+      if (this.hp[t] > bestHp && matchups[row + this.job[t]] == Strength.SAME) {
+        bestHp = this.hp[t];
+        optimalTarget = t;
+      }
+    }
+    if (bestHp > 0) {
+      return optimalTarget;
+    }
+
+    // weak relationships: lowest HP, where only the first unit is taken regardless of the 100 HP boundary
+    bestHp = 100;
+    for (int t = first; t < last; t++) {
+      if (this.hp[t] > 0 && (t == first || this.hp[t] < bestHp) && matchups[row + this.job[t]] == Strength.WEAK) {
+        bestHp = this.hp[t];
+        optimalTarget = t;
+      }
+    }
+    return optimalTarget;
+  }
+
+  /**
+   * Counts the units with HP above 0 on one side of a battle.
+   * @param battle int representing the battle
+   * @param side int representing the side, HUMAN or COMPUTER
+   * @return int representing the number of alive units
+   */
+  public int countAliveUnits(int battle, int side){
+    int from = slot(battle, side, 0);
+    int count = 0;
+    for (int i = from; i < from + this.unitsPerSide; i++) {
+      if (this.hp[i] > 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Calculates the damage the unit in the given slot deals, following Unit.attack.
+   * @param attacker int representing the attacker's slot
+   * @param attackerStrength Strength of the attacker relative to its target
+   * @return int representing the total damage dealt when attacking
+   */
+  public int attack(int attacker, Strength attackerStrength){
+    return this.rules.attackDamage(this.attack[attacker], attackerStrength);
+  }
+
+  /**
+   * Returns the damage the attacker's hit deals to the target if it is not dodged, with one DamageTable read when
+   * both stats come from the levels. Gives the same result as applying attack to the target through applyHit.
+   * @param attacker int representing the attacker's slot
+   * @param target int representing the target's slot
+   * @return int representing the damage the target would receive
+   */
+  public int hitDamage(int attacker, int target){
+    return hitDamage(attacker, target, strength(attacker, target));
+  }
+
+  /**
+   * Returns the damage the attacker's hit deals to the target at the given strength if it is not dodged.
+   * @param attacker int representing the attacker's slot
+   * @param target int representing the target's slot
+   * @param attackerStrength Strength the damage is calculated with
+   * @return int representing the damage the target would receive
+   */
+  public int hitDamage(int attacker, int target, Strength attackerStrength){
+    DamageTable table = this.rules.damageTable();
+    if (table.fromLevels(this.level[attacker], this.attack[attacker], this.level[target], this.defense[target])) {
+      return table.damage(this.level[attacker], attackerStrength, this.level[target], this.temporaryDefense[target]);
+    }
+    // loaded units can carry stats of their own, which the table does not know
+    int damage = this.rules.attackDamage(this.attack[attacker], attackerStrength);
+    return Unit.damageReceived(damage, this.defense[target], this.temporaryDefense[target]);
+  }
+
+  /**
+   * Subtracts damage that was already adjusted for defense from the target's HP, clamping HP at 0.
+   * Note: This method does not return anything.
+   * @param target int representing the target's slot
+   * @param damageReceived int representing the damage received, such as a hitDamage result
+   */
+  public void applyDamage(int target, int damageReceived){
+    int remaining = this.hp[target] - damageReceived;
+    this.hp[target] = remaining < 0 ? 0 : remaining;
+  }
+
+  /**
+   * Grants the unit in the given slot the block bonus, following Unit.block.
+   * Note: This method does not return anything.
+   * @param unit int representing the blocking unit's slot
+   */
+  public void block(int unit){
+    this.temporaryDefense[unit] += 2;
+  }
+
+  /**
+   * Applies incoming damage to the unit in the given slot, following Unit.receiveDamage.
+   * The evasion roll is drawn from the given generator exactly as Unit does, only when evasion is above 0.
+   * @param target int representing the target's slot
+   * @param damage int representing the incoming damage
+   * @param random RandomGenerator used for the evasion roll
+   * @return int representing the damage received, or -1 if the attack was dodged
+   */
+  public int receiveDamage(int target, int damage, RandomGenerator random){
+    if (this.evasion[target] > 0 && random.nextInt(21) <= this.evasion[target]) {
+      return -1;
+    }
+    return applyHit(target, damage);
+  }
+
+  /**
+   * Applies damage that was not dodged, adjusting it by the target's defense and clamping HP at 0.
+   * @param target int representing the target's slot
+   * @param damage int representing the incoming damage
+   * @return int representing the damage received
+   */
+  public int applyHit(int target, int damage){
+    int damageReceived = Unit.damageReceived(damage, this.defense[target], this.temporaryDefense[target]);
+    applyDamage(target, damageReceived);
+    return damageReceived;
+  }
+
+  /**
+   * Resets the temporary defense of every unit on one side of a battle.
+   * Note: This method does not return anything.
+   * @param battle int representing the battle
+   * @param side int representing the side, HUMAN or COMPUTER
+   */
+  public void resetTemporaryDefense(int battle, int side){
+    int from = slot(battle, side, 0);
+    for (int i = from; i < from + this.unitsPerSide; i++) {
+      this.temporaryDefense[i] = 0;
+    }
+  }
+
+  /**
+   * Determines if every unit on one side of a battle is knocked out.
+   * @param battle int representing the battle
+   * @param side int representing the side, HUMAN or COMPUTER
+   * @return boolean true if the side has no units left or false
+   */
+  public boolean isKnockedOut(int battle, int side){
+    int from = slot(battle, side, 0);
+    for (int i = from; i < from + this.unitsPerSide; i++) {
+      if (this.hp[i] > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Sums the HP of every unit on one side of a battle.
+   * @param battle int representing the battle
+   * @param side int representing the side, HUMAN or COMPUTER
+   * @return int representing the side's combined HP
+   */
+  public int hpSum(int battle, int side){
+    int from = slot(battle, side, 0);
+    int sum = 0;
+    for (int i = from; i < from + this.unitsPerSide; i++) {
+      sum += this.hp[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the winner of a battle following GameControl.getWinner.
+   * @param battle int representing the battle
+   * @param turn int representing the current turn
+   * @return String "human", "computer" or "tie", or null if the battle is still going
+   */
+  public String getWinner(int battle, int turn){
+    if (turn < 10) {
+      if (isKnockedOut(battle, HUMAN)) {
+        return "computer";
+      } else if (isKnockedOut(battle, COMPUTER)) {
+        return "human";
+      }
+      return null;
+    }
+
+    int humanPoints = hpSum(battle, HUMAN);
+    int computerPoints = hpSum(battle, COMPUTER);
+    if (computerPoints > humanPoints) {
+      return "computer";
+    } else if (humanPoints > computerPoints) {
+      return "human";
+    }
+    return "tie";
+  }
+
+  /**
+   * Returns the number of battles this state can hold.
+   * Note: This method does not take any parameters.
+   * @return capacity
+   */
+  public int getCapacity(){
+    return this.capacity;
+  }
+
+  /**
+   * Returns the number of units each side has in a battle.
+   * Note: This method does not take any parameters.
+   * @return unitsPerSide
+   */
+  public int getUnitsPerSide(){
+    return this.unitsPerSide;
+  }
+
+  /**
+   * Returns the current HP of the unit in the given slot.
+   * @param slot int representing the unit's slot
+   * @return int representing the unit's HP
+   */
+  public int getHp(int slot){
+    return this.hp[slot];
+  }
+
+  /**
+   * Returns the evasion stat of the unit in the given slot.
+   * @param slot int representing the unit's slot
+   * @return int representing the unit's evasion
+   */
+  public int getEvasion(int slot){
+    return this.evasion[slot];
+  }
+
+  /**
+   * Returns the defense stat of the unit in the given slot.
+   * @param slot int representing the unit's slot
+   * @return int representing the unit's defense
+   */
+  public int getDefense(int slot){
+    return this.defense[slot];
+  }
+
+  /**
+   * Returns the temporary defense of the unit in the given slot.
+   * @param slot int representing the unit's slot
+   * @return int representing the unit's temporary defense
+   */
+  public int getTemporaryDefense(int slot){
+    return this.temporaryDefense[slot];
+  }
+}
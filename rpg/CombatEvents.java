@@ -0,0 +1,130 @@
+package rpg;
+
+/**
+ * Receives everything that happens during a game, in place of printing it directly.
+ * Units, players, and GameControl publish typed events here; implementations decide whether to render, count, or drop them.
+ */
+public interface CombatEvents {
+
+  /**
+   * A unit's current status was requested, see Unit.printCurrentStatus.
+   * @param unit Unit whose status is shown
+   */
+  void unitStatus(Unit unit);
+
+  /**
+   * A unit dodged an incoming attack.
+   * @param target Unit that dodged
+   */
+  void dodged(Unit target);
+
+  /**
+   * A unit took damage; its HP has already been updated.
+   * @param target Unit that was hit
+   * @param damage int representing the damage received
+   */
+  void damageReceived(Unit target, int damage);
+
+  /**
+   * A unit of either side attacks a target; the dodge or damage follows.
+   * @param attacker Unit that is attacking
+   * @param target Unit that is being attacked
+   */
+  void attackLaunched(Unit attacker, Unit target);
+
+  /**
+   * A unit of either side raised its temporary defense.
+   * @param unit Unit that blocked
+   */
+  void blockRaised(Unit unit);
+
+  /**
+   * A computer unit chose to block.
+   * @param unit Unit that is blocking
+   */
+  void blocking(Unit unit);
+
+  /**
+   * A computer unit chose to attack.
+   * @param unit Unit that is attacking
+   */
+  void attacking(Unit unit);
+
+  /**
+   * Reports the remaining HP of a unit the computer targeted.
+   * @param target Unit that was targeted
+   */
+  void hpRemaining(Unit target);
+
+  /**
+   * The computer found no human unit left to target.
+   * Note: This method does not take any parameters.
+   */
+  void allTargetsFallen();
+
+  /**
+   * A knocked out unit was asked to move.
+   * @param unit Unit that cannot move
+   */
+  void unitNotAlive(Unit unit);
+
+  /**
+   * The human entered a move that is neither attack nor block.
+   * @param move String that was entered
+   */
+  void invalidMove(String move);
+
+  /**
+   * The human targeted a unit that is already knocked out.
+   * @param target Unit that was targeted
+   */
+  void targetVanquished(Unit target);
+
+  /**
+   * The human targeted a name that is not one of the computer's units.
+   * @param targetName String that was entered
+   */
+  void targetNotFound(String targetName);
+
+  /**
+   * The human's attack was lost because the target was invalid.
+   * Note: This method does not take any parameters.
+   */
+  void targetRetry();
+
+  /**
+   * The human player's turn started.
+   * @param turn int representing the current turn
+   */
+  void humanTurnStarted(int turn);
+
+  /**
+   * A human unit is about to move.
+   * @param unit Unit that is taking its move
+   */
+  void unitTurn(Unit unit);
+
+  /**
+   * A new turn of the game loop started.
+   * @param turn int representing the current turn
+   */
+  void roundStarted(int turn);
+
+  /**
+   * The game ended.
+   * @param winner String "human", "computer" or "tie"
+   */
+  void gameOver(String winner);
+
+  /**
+   * A line of fixed game text, such as instructions, prompts and headers.
+   * @param line String to show
+   */
+  void message(String line);
+
+  /**
+   * Pushes out anything held back, called before waiting for input and at the end of a game.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  void flush();
+}
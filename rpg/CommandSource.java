@@ -0,0 +1,17 @@
+package rpg;
+
+/**
+ * Supplies the human player's commands: each move ("attack" or "block", or anything starting with a or b)
+ * followed, for attacks, by the name of the target. HumanPlayer.moveUnit reads one or two commands per unit
+ * and still checks them with validateMove and selectTarget, so every source is held to the same rules as typed input.
+ */
+public interface CommandSource {
+
+  /**
+   * Returns the next command, waiting for one if the source is interactive.
+   * Note: This method does not take any parameters.
+   * @return String representing a move or a target name, never empty
+   * @throws java.util.NoSuchElementException if the source has run out of commands
+   */
+  String next();
+}
@@ -1,5 +1,6 @@
 package rpg;
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents the computer player and holds its units in this role-playing game.
@@ -21,22 +22,120 @@ public class ComputerPlayer {
    */
   Unit tyllion;
 
+  /**
+   * All computer units in turn order, starting with Criati, Ledde and Tyllion.
+   */
+  Roster roster;
+
+  /**
+   * The classic names of the computer units.
+   */
+  static final String[] NAMES = {"Criati", "Ledde", "Tyllion"};
+
   /**
    * A random number generator to be used for returning random levels and jobs.
    */
-  Random random = new Random();
+  RandomGenerator random;
+
+  /**
+   * Where the computer publishes its moves.
+   */
+  CombatEvents events = ConsoleEvents.STANDARD;
+
+  /**
+   * The search used to pick moves in searchStrategy, or null to use the fixed computer turn.
+   */
+  SearchPlanner planner;
+
+  /**
+   * The policy used to pick moves in policyStrategy, such as a trained GenomePolicy, or null if there is none.
+   */
+  MovePolicy policy;
+
+  /**
+   * Battle state the planner or policy decides on, reloaded from the units before every decision; created on first use.
+   */
+  private BattleState searchState;
 
   /**
    * Constructs the computer player.
    */
   public ComputerPlayer(){
-    this.criati = new Unit("Criati", generateLevel(),generateJob());
-    this.ledde = new Unit("Ledde", generateLevel(),generateJob());
-    this.tyllion = new Unit("Tyllion", generateLevel(),generateJob());
+    this(new Random());
+  }
+
+  /**
+   * Constructs the computer player, drawing every level and job roll from the given generator.
+   * The generator is shared with the units, so one generator can drive a whole match.
+   * @param random RandomGenerator of the match this player plays in
+   */
+  public ComputerPlayer(RandomGenerator random){
+    this(random, 3);
+  }
+
+  /**
+   * Constructs the computer player with the given number of units, generated in turn order with the same level and job rules.
+   * @param random RandomGenerator of the match this player plays in
+   * @param size int representing the number of units, from Roster.MIN_SIZE to Roster.MAX_SIZE
+   */
+  public ComputerPlayer(RandomGenerator random, int size){
+    this(random, size, BalanceRules.STANDARD);
+  }
+
+  /**
+   * Constructs the computer player with the given number of units, generated in turn order with the same level and job rules.
+   * The level ranges and stats come from the given balance rules.
+   * @param random RandomGenerator of the match this player plays in
+   * @param size int representing the number of units, from Roster.MIN_SIZE to Roster.MAX_SIZE
+   * @param rules BalanceRules the units are created with
+   */
+  public ComputerPlayer(RandomGenerator random, int size, BalanceRules rules){
+    this.random = random;
+    Unit[] units = new Unit[Roster.checkSize(size)];
+    for (int i = 0; i < units.length; i++) {
+      units[i] = new Unit(Roster.name(NAMES, i), generateLevel(),generateJob(), random, rules);
+    }
+    this.roster = new Roster(units, true);
+    this.criati = units[0];
+    this.ledde = units[1];
+    this.tyllion = units[2];
+  }
+
+  /**
+   * Constructs a computer player with the given units, such as when restoring a GameSnapshot.
+   * @param random RandomGenerator of the match this player plays in
+   * @param units Unit array in turn order, of Roster.MIN_SIZE to Roster.MAX_SIZE units; the player keeps the array
+   */
+  ComputerPlayer(RandomGenerator random, Unit[] units){
+    Roster.checkSize(units.length);
+    this.random = random;
+    this.roster = new Roster(units, true);
+    this.criati = units[0];
+    this.ledde = units[1];
+    this.tyllion = units[2];
   }
 
   // Getters and Setters
 
+  /**
+   * Sets where the computer and its units publish what happens to them.
+   * Note: This method does not return anything.
+   * @param events CombatEvents to publish to
+   */
+  public void setEvents(CombatEvents events){
+    this.events = events;
+    this.roster.setEvents(events);
+  }
+
+  /**
+   * Returns all computer units.
+   * Note: This method does not take any parameters.
+   * @return roster
+   */
+  public Roster getRoster(){
+    return this.roster;
+  }
+
   /**
    * Returns the criati Unit.
    * Note: This method does not take any parameters.
@@ -125,22 +224,9 @@ public class ComputerPlayer {
    * @return String representing the strength of the attacker relative to the target
    */
   public String determineAttackerStrength(Unit attacker, Unit target){
-    String determinedStrength;
 
-    // assigns determinedStrength by comparing job of attacker with job of the target
-    if(attacker.getJob().equalsIgnoreCase(target.getJob())){
-      determinedStrength = "same";
-    }
-    else if((attacker.getJob().equalsIgnoreCase("knight") && target.getJob().equalsIgnoreCase("archer")) ||
-            (attacker.getJob().equalsIgnoreCase("archer") && target.getJob().equalsIgnoreCase("mage")) ||
-            (attacker.getJob().equalsIgnoreCase("mage") && target.getJob().equalsIgnoreCase("knight"))){
-      determinedStrength = "strong";
-    }
-    else{
-      determinedStrength = "weak";
-    }
-
-    return determinedStrength;
+    // look up the precomputed job matchup instead of comparing job names
+    return Matchups.strength(attacker, target).label();
   }
 
   /**
@@ -152,72 +238,105 @@ public class ComputerPlayer {
    * @return Unit representing the human unit that is the optimal target
    */
   public Unit selectOptimalTarget(Unit falia, Unit erom, Unit ama, Unit unit){
+    return selectOptimalTarget(new Unit[] {falia, erom, ama}, unit);
+  }
 
-    // store attacker strengths relative to potential human targets
-    // these will help to determine the most optimal target for the given computer unit
-    String attackerStrength1 = determineAttackerStrength(unit, falia);
-    String attackerStrength2 = determineAttackerStrength(unit, erom);
-    String attackerStrength3 = determineAttackerStrength(unit, ama);
+  /**
+   * Determines which alive unit of a roster is the best to attack, with the same rules as for three human units.
+   * Takes O(log n) for large rosters and scans the roster for small ones.
+   * @param targets Roster of the units that can be targeted
+   * @param unit Unit that is currently taking its turn
+   * @return Unit representing the optimal target, or null if every target is knocked out
+   */
+  public Unit selectOptimalTarget(Roster targets, Unit unit){
+    // large rosters keep their alive units sorted by job and HP, see TargetIndex
+    TargetIndex index = targets.targetIndex();
+    if (index != null && unit.getJobType() != null) {
+      return index.select(unit);
+    }
+    return selectOptimalTarget(targets.units, unit);
+  }
 
-    int bestHp = 0; // holds the best opponent HP in context of given attacker-target relationship
-    Unit optimalTarget = null;
+  /**
+   * Determines which alive unit is the best to attack, answering from DecisionCache.SHARED when it is on
+   * and the position can be cached.
+   * @param targets Unit array of the units that can be targeted, in turn order
+   * @param unit Unit that is currently taking its turn
+   * @return Unit representing the optimal target, or null if every target is knocked out
+   */
+  private Unit selectOptimalTarget(Unit[] targets, Unit unit){
+    DecisionCache cache = DecisionCache.SHARED;
+    long key = cache != null ? DecisionCache.key(targets, unit) : DecisionCache.UNCACHED;
+    if (key == DecisionCache.UNCACHED) {
+      return scanOptimalTarget(targets, unit);
+    }
 
-    // strong relationships: check which of the alive human units has the highest HP for the computer unit to attack
-    if(attackerStrength1.equalsIgnoreCase("strong") && falia.getHp() > 0){
-      bestHp = falia.getHp();
-      optimalTarget = falia;
+    int cached = cache.get(key);
+    if (cached != DecisionCache.MISS) {
+      return cached == DecisionCache.NO_TARGET ? null : targets[cached];
     }
-    if(attackerStrength2.equalsIgnoreCase("strong") && erom.getHp() > bestHp && erom.getHp() > 0){
-      bestHp = erom.getHp();
-      optimalTarget = erom;
+    Unit target = scanOptimalTarget(targets, unit);
+    int position = DecisionCache.NO_TARGET;
+    for (int i = 0; i < targets.length; i++) {
+      if (targets[i] == target) {
+        position = i;
+      }
     }
-    if(attackerStrength3.equalsIgnoreCase("strong") && ama.getHp() > bestHp && ama.getHp() > 0){
-      bestHp = ama.getHp();
-      optimalTarget = ama;
+    cache.put(key, position);
+    return target;
+  }
+
+  /**
+   * Determines which alive unit is the best to attack based on determined strengths and their current HP:
+   * the highest HP unit the attacker is strong against, else the highest HP unit of the same job,
+   * else the lowest HP unit the attacker is weak against. Earlier units win ties.
+   * @param targets Unit array of the units that can be targeted, in turn order
+   * @param unit Unit that is currently taking its turn
+   * @return Unit representing the optimal target, or null if every target is knocked out
+   */
+  private Unit scanOptimalTarget(Unit[] targets, Unit unit){
+
+    int bestHp = 0; // holds the best opponent HP in context of given attacker-target relationship
+    Unit optimalTarget = null;
+
+    // strong relationships: check which of the alive units has the highest HP for the computer unit to attack
+    for (Unit target : targets) {
+      if (target.getHp() > bestHp && Matchups.strength(unit, target) == Strength.STRONG) {
+        bestHp = target.getHp();
+        optimalTarget = target;
+      }
     }
 
-    // return optimal target if the bestHp is greater than 0 when the attacking computer unit is strong
-    // compared to one or more alive human units
+    // return optimal target if the bestHp is greater than 0 when the attacking unit is strong
+    // compared to one or more alive units
     if(bestHp > 0){
       return optimalTarget;
     }
 
-    // same relationships: check which of the alive human units has the highest HP
-    // in this case, computer unit is the same against any alive human units
-    if(attackerStrength1.equalsIgnoreCase("same") && falia.getHp() > 0){
-      bestHp = falia.getHp();
-      optimalTarget = falia;
-    }
-    if(attackerStrength2.equalsIgnoreCase("same") && erom.getHp() > bestHp && erom.getHp() > 0){
-      bestHp = erom.getHp();
-      optimalTarget = erom;
-    }
-    if(attackerStrength3.equalsIgnoreCase("same") && ama.getHp() > bestHp && ama.getHp() > 0){
-      bestHp = ama.getHp();
-      optimalTarget = ama;
+    // same relationships: check which of the alive units has the highest HP
+    for (Unit target : targets) {
+      if (target.getHp() > bestHp && Matchups.strength(unit, target) == Strength.SAME) {
+        bestHp = target.getHp();
+        optimalTarget = target;
+      }
     }
 
-    // return optimal target if the bestHp is greater than 0 when the attacking computer unit's strength is the
-    // same when compared to one or more alive human units
     if(bestHp > 0){
       return optimalTarget;
     }
 
-    // weak relationships: check which of the alive human units has the lowest HP for the computer unit to attack
-    // in this case, computer unit is weak against any alive human units
+    // weak relationships: check which of the alive units has the lowest HP for the computer unit to attack
+    // the first unit is taken regardless of the boundary, later ones only below it
 
-    bestHp = 100; // set boundary; all human units will have HP lower than or equal to 100
+    bestHp = 100; // set boundary; all units will have HP lower than or equal to 100
 
-    if(attackerStrength1.equalsIgnoreCase("weak") && falia.getHp() > 0){
-      bestHp = falia.getHp();
-      optimalTarget = falia;
-    }
-    if(attackerStrength2.equalsIgnoreCase("weak") && erom.getHp() < bestHp && erom.getHp() > 0){
-      bestHp = erom.getHp();
-      optimalTarget = erom;
-    }
-    if(attackerStrength3.equalsIgnoreCase("weak") && ama.getHp() < bestHp && ama.getHp() > 0){
-      optimalTarget = ama;
+    for (int i = 0; i < targets.length; i++) {
+      Unit target = targets[i];
+      if (target.getHp() > 0 && (i == 0 || target.getHp() < bestHp)
+          && Matchups.strength(unit, target) == Strength.WEAK) {
+        bestHp = target.getHp();
+        optimalTarget = target;
+      }
     }
 
     return optimalTarget;
@@ -229,20 +348,8 @@ public class ComputerPlayer {
    * @return int representing the number of alive units
    */
   public int countAliveUnits(){
-    int count = 0;
-
-    // increment count for every unit with HP greater than 0
-    if(this.criati.getHp() > 0){
-      count++;
-    }
-    if(this.ledde.getHp() > 0){
-      count++;
-    }
-    if(this.tyllion.getHp() > 0){
-      count++;
-    }
-
-    return count;
+    // count every unit with HP greater than 0
+    return this.roster.countAlive();
   }
 
   /**
@@ -255,11 +362,25 @@ public class ComputerPlayer {
    * @param attackerStrength String representing strength of unit relative to target
    */
   public void moveUnit(String move, Unit unit, Unit target, String attackerStrength){
+    moveUnit(move, unit, target, Strength.fromLabel(attackerStrength));
+  }
+
+  /**
+   * Calls unit's move based on the given move, unit playing and the unit being targeted.
+   * Works the same as moveUnit with a String strength.
+   * Note: This method does not return anything.
+   * @param move String of either "attack" or "block"
+   * @param unit Unit belonging to the computer that is taking its turn
+   * @param target Unit belonging to human that the computer unit is targeting
+   * @param attackerStrength Strength of unit relative to target
+   */
+  public void moveUnit(String move, Unit unit, Unit target, Strength attackerStrength){
 
     // call the correct move on the unit based on given move
     if(move.equalsIgnoreCase("attack")){
 
       // obtain damage to be dealt to target
+      this.events.attackLaunched(unit, target);
       int damage = unit.attack(attackerStrength);
 
       // deal damage to target
@@ -277,6 +398,17 @@ public class ComputerPlayer {
    * @param ama: human Unit 3 that a computer unit can potentially target
    */
   public void strategy(Unit falia, Unit erom, Unit ama){
+    strategy(new Roster(new Unit[] {falia, erom, ama}));
+  }
+
+  /**
+   * Computer picks and performs each alive unit's move with the same rules as strategy, against any roster.
+   * The first unit blocks unless exactly one block is allowed, the units after it block while blocks are left,
+   * and the last unit does not count its block.
+   * Note: This method does not return anything.
+   * @param targets Roster of the units that can be targeted
+   */
+  public void strategy(Roster targets){
 
     // computer should attack at least once during its turn
     // acts as maximum block() allowance
@@ -285,85 +417,238 @@ public class ComputerPlayer {
     int blockCount = 0;
     // holds target that will be attacked by a computer unit
     Unit target;
+    Unit[] units = this.roster.units;
+    int last = units.length - 1;
+    FlightEvents.Strategy event = new FlightEvents.Strategy();
+    event.begin();
+    int attacks = 0;
+    int blocks = 0;
+
+    for (int i = 0; i < units.length; i++) {
+      Unit unit = units[i];
+      if (unit.getHp() <= 0) {
+        continue;
+      }
 
-    // Strategy if Computer Unit 1 is still alive
-    if(this.criati.getHp() > 0) {
-      target = selectOptimalTarget(falia, erom, ama, this.criati);
-      // handles possible null target if all human units are knocked out
+      long start = GameMetrics.start();
+      target = selectOptimalTarget(targets, unit);
+      // handles possible null target if all targets are knocked out
       if (target == null){
-        System.out.println("Falia, Erom, and Ama have all fallen. There cannot be targetted.");
-        return;
+        this.events.allTargetsFallen();
+        break;
       }
 
-      // determines criati's strength compared to the selected target
-      String attackerStrength = determineAttackerStrength(this.criati, target);
-
-      if (attackerStrength.equalsIgnoreCase("weak") && block != 1) {
-        System.out.println("Criati is blocking; their defense temporarily increases for the next turn!");
-        moveUnit("block", this.criati, null, attackerStrength);
-        blockCount++;
+      // determines the unit's strength compared to the selected target
+      Strength attackerStrength = Matchups.strength(unit, target);
+
+      // the first unit only checks for a single allowed block, the others check the blocks left
+      boolean blockAllowed = i == 0 ? block != 1 : blockCount < block;
+      GameMetrics.decision(start);
+
+      if (attackerStrength == Strength.WEAK && blockAllowed) {
+        blocks++;
+        this.events.blocking(unit);
+        moveUnit("block", unit, null, attackerStrength);
+        if (i > 0 && i < last) {
+          // the middle units report the target they passed on
+          if(target.getHp() < 0){
+            target.setHp(0);
+          }
+          this.events.hpRemaining(target);
+        }
+        if (i < last) {
+          blockCount++;
+        }
       } else{
-        System.out.println("Criati attacks ");
-        moveUnit("attack", this.criati, target, attackerStrength);
+        attacks++;
+        this.events.attacking(unit);
+        moveUnit("attack", unit, target, attackerStrength);
         if(target.getHp() < 0){
           target.setHp(0);
         }
-        System.out.println(target.name + " has " + target.getHp() + " remaining.");
+        this.events.hpRemaining(target);
       }
     }
+    strategyEvent(event, "strategy", attacks, blocks);
+  }
 
-    // strategy if Computer Unit 2 is still alive, works the same as unit 1
-    if(this.ledde.getHp() > 0){
-      target = selectOptimalTarget(falia, erom, ama, this.ledde);
-      if (target == null){
-        System.out.println("Falia, Erom, and Ama have all fallen. There cannot be targetted.");
-        return;
-      }
+  /**
+   * Commits a flight recorder event for a computer turn, if one is being recorded.
+   * Note: This method does not return anything.
+   * @param event FlightEvents.Strategy begun when the turn started
+   * @param kind String naming the strategy: "strategy", "policy" or "search"
+   * @param attacks int representing the number of units that attacked
+   * @param blocks int representing the number of units that blocked
+   */
+  private static void strategyEvent(FlightEvents.Strategy event, String kind, int attacks, int blocks){
+    if (event.shouldCommit()) {
+      event.kind = kind;
+      event.attacks = attacks;
+      event.blocks = blocks;
+      event.commit();
+    }
+  }
 
-      // determines ledde's strength compared to the selected target
-      String attackerStrength = determineAttackerStrength(this.ledde, target);
+  /**
+   * Sets the search used to pick moves, turning on the search based AI in GameControl.takeComputerTurn.
+   * Note: This method does not return anything.
+   * @param planner SearchPlanner to use, or null for the fixed computer turn
+   */
+  public void setPlanner(SearchPlanner planner){
+    this.planner = planner;
+  }
 
-      if(attackerStrength.equalsIgnoreCase("weak") && blockCount < block){
-        System.out.println("Ledde is blocking; their defense temporarily increases for the next turn!");
-        moveUnit("block", this.ledde, null, attackerStrength);
-        if(target.getHp() < 0){
-          target.setHp(0);
-        }
-        System.out.println(target.name + " has " + target.getHp() + " remaining.");
+  /**
+   * Returns the search used to pick moves.
+   * Note: This method does not take any parameters.
+   * @return planner, or null if the search based AI is off
+   */
+  public SearchPlanner getPlanner(){
+    return this.planner;
+  }
+
+  /**
+   * Sets the policy used to pick moves, turning on policyStrategy in GameControl.takeComputerTurn
+   * unless a search planner is set.
+   * Note: This method does not return anything.
+   * @param policy MovePolicy to use, such as a GenomePolicy, or null for the fixed computer turn
+   */
+  public void setPolicy(MovePolicy policy){
+    this.policy = policy;
+  }
+
+  /**
+   * Returns the policy used to pick moves.
+   * Note: This method does not take any parameters.
+   * @return policy, or null if there is none
+   */
+  public MovePolicy getPolicy(){
+    return this.policy;
+  }
+
+  /**
+   * Returns the battle state decisions are made on, sized for the roster.
+   * Note: This method does not take any parameters.
+   * @return BattleState with one battle of this roster's size
+   */
+  private BattleState decisionState(){
+    if (this.searchState == null || this.searchState.unitsPerSide != this.roster.units.length) {
+      this.searchState = new BattleState(1, this.roster.units.length);
+    }
+    return this.searchState;
+  }
+
+  /**
+   * Computer picks and performs each unit's move with its policy against any roster of the same size,
+   * one unit at a time, so every decision sees the outcome of the moves before it.
+   * The policy gets the same block allowance as strategy: the alive units at the start of the turn minus one.
+   * Note: This method does not return anything.
+   * @param targets Roster of the units that can be targeted, as many as the computer has
+   */
+  public void policyStrategy(Roster targets){
+    Unit[] units = this.roster.units;
+    if (targets.size() != units.length) {
+      throw new IllegalArgumentException("A policy needs rosters of the same size: " + targets.size()
+          + " and " + units.length);
+    }
+    BattleState state = decisionState();
+
+    int block = countAliveUnits() - 1;
+    int blockCount = 0;
+    FlightEvents.Strategy event = new FlightEvents.Strategy();
+    event.begin();
+    int attacks = 0;
+
+    for (int i = 0; i < units.length; i++) {
+      Unit unit = units[i];
+      long start = GameMetrics.start();
+      state.load(0, targets.units, units);
+      int move = this.policy.choose(state, 0, BattleState.COMPUTER, i, blockCount, block);
+      if (move != MovePolicy.SKIP) {
+        GameMetrics.decision(start);
+      }
+
+      if (move == MovePolicy.END_TURN) {
+        this.events.allTargetsFallen();
+        break;
+      } else if (move == MovePolicy.BLOCK) {
+        this.events.blocking(unit);
+        moveUnit("block", unit, null, Strength.SAME);
         blockCount++;
-      }else {
-        System.out.println("Ledde attacks ");
-        moveUnit("attack", this.ledde, target, attackerStrength);
-        if(target.getHp() < 0){
-          target.setHp(0);
-        }
-        System.out.println(target.name + " has " + target.getHp() + " remaining.");
+      } else if (move != MovePolicy.SKIP) {
+        Unit target = targets.get(MovePolicy.target(move));
+        attacks++;
+        this.events.attacking(unit);
+        moveUnit("attack", unit, target, MovePolicy.strength(move));
+        this.events.hpRemaining(target);
       }
     }
+    strategyEvent(event, "policy", attacks, blockCount);
+  }
+
+  /**
+   * Computer picks and performs each alive unit's move with the search planner, one unit at a time,
+   * so every decision sees the outcome of the moves before it.
+   * Keeps the same block allowance as strategy: the computer attacks at least once during its turn.
+   * Note: This method does not return anything.
+   * @param falia: human unit 1 that a computer unit can potentially target
+   * @param erom: human unit 2 that a computer unit can potentially target
+   * @param ama: human Unit 3 that a computer unit can potentially target
+   * @param turn int representing the current turn
+   */
+  public void searchStrategy(Unit falia, Unit erom, Unit ama, int turn){
+    searchStrategy(new Roster(new Unit[] {falia, erom, ama}), turn);
+  }
+
+  /**
+   * Computer picks and performs each alive unit's move with the search planner against any roster of the same size.
+   * The search grows quickly with the roster size, so it is meant for small rosters.
+   * Note: This method does not return anything.
+   * @param targets Roster of the units that can be targeted, as many as the computer has
+   * @param turn int representing the current turn
+   */
+  public void searchStrategy(Roster targets, int turn){
+    Unit[] units = this.roster.units;
+    if (targets.size() != units.length) {
+      throw new IllegalArgumentException("The search needs rosters of the same size: " + targets.size()
+          + " and " + units.length);
+    }
+    BattleState state = decisionState();
 
-    // strategy if Computer Unit 3 is still alive, works the same as unit 1 and 2; count is not updated
-    if(this.tyllion.getHp() > 0){
-      target = selectOptimalTarget(falia, erom, ama, this.tyllion);
-      if (target == null){
-        System.out.println("Falia, Erom, and Ama have all fallen. There cannot be targetted.");
-        return;
+    int block = countAliveUnits() - 1;
+    int blockCount = 0;
+    FlightEvents.Strategy event = new FlightEvents.Strategy();
+    event.begin();
+    int attacks = 0;
+
+    for (int i = 0; i < units.length; i++) {
+      Unit unit = units[i];
+      if (unit.getHp() <= 0) {
+        continue;
+      }
+      if (targets.isKnockedOut()) {
+        this.events.allTargetsFallen();
+        break;
       }
 
-      // determines tyllion's strength compared to the selected target
-      String attackerStrength = determineAttackerStrength(this.tyllion, target);
+      long start = GameMetrics.start();
+      state.load(0, targets.units, units);
+      int move = this.planner.chooseMove(state, i, blockCount, block, turn);
+      GameMetrics.decision(start);
 
-      if(attackerStrength.equalsIgnoreCase("weak") && blockCount < block){
-        System.out.println("Tyllion is blocking; their defense temporarily increases for the next turn!");
-        moveUnit("block", this.tyllion,null, attackerStrength);
-      }else{
-        System.out.println("Tyllion attacks ");
-        moveUnit("attack", this.tyllion, target, attackerStrength);
-        if(target.getHp() < 0){
-          target.setHp(0);
-        }
-        System.out.println(target.name + " has " + target.getHp() + " remaining.");
+      if (move == SearchPlanner.BLOCK) {
+        this.events.blocking(unit);
+        moveUnit("block", unit, null, Strength.SAME);
+        blockCount++;
+      } else {
+        Unit target = targets.get(move);
+        attacks++;
+        this.events.attacking(unit);
+        moveUnit("attack", unit, target, Matchups.strength(unit, target));
+        this.events.hpRemaining(target);
       }
     }
+    strategyEvent(event, "search", attacks, blockCount);
   }
 
   /**
@@ -371,20 +656,18 @@ public class ComputerPlayer {
    * Note: This method does not take any parameters and does not return anything.
    */
   public void resetTemporaryDefense(){
-    this.ledde.setTemporaryDefense(0);
-    this.criati.setTemporaryDefense(0);
-    this.tyllion.setTemporaryDefense(0);
+    this.roster.resetTemporaryDefense();
   }
 
   /**
    * Determines if computer player has lost or is knocked out.
-   * This is done by checking if all of its three units are knocked out.
+   * This is done by checking if all of its units are knocked out.
    * Note: This method does not take any parameters.
    * @return boolean true if computer has no units left or false
    */
   public boolean isKnockedOut(){
 
     // return true if all computer units have 0 HP or less
-    return this.criati.getHp() <= 0 && this.ledde.getHp() <= 0 && this.tyllion.getHp() <= 0;
+    return this.roster.isKnockedOut();
   }
 }
\ No newline at end of file
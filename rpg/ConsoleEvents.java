@@ -0,0 +1,164 @@
+package rpg;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Renders events as the game's console text, through a buffer that is only written out on flush.
+ */
+public class ConsoleEvents implements CombatEvents {
+
+  /**
+   * The shared renderer for standard output, used by default.
+   */
+  public static final ConsoleEvents STANDARD = new ConsoleEvents(System.out);
+
+  /**
+   * Buffered writer all text goes through.
+   */
+  private final PrintWriter out;
+
+  /**
+   * Constructs a renderer writing to the given stream.
+   * @param stream OutputStream to write the game text to
+   */
+  public ConsoleEvents(OutputStream stream){
+    this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(stream), 8192), false);
+  }
+
+  @Override
+  public void unitStatus(Unit unit){
+    this.out.print(unit.name);
+    this.out.print(" is a level ");
+    this.out.print(unit.getLevel());
+    this.out.print(' ');
+    this.out.print(unit.getJob());
+    this.out.print(' ');
+    this.out.print(unit.getHp());
+    this.out.println(" HP.");
+
+    if (unit.getHp() < 1) {
+      this.out.println("This unit is knocked out!");
+    }
+  }
+
+  @Override
+  public void dodged(Unit target){
+    this.out.println("They dodged!");
+  }
+
+  @Override
+  public void damageReceived(Unit target, int damage){
+    this.out.print(target.name);
+    this.out.print(" received: ");
+    this.out.print(damage);
+    this.out.print(" damage. And has ");
+    this.out.print(target.getHp());
+    this.out.println(" HP remaining.");
+  }
+
+  @Override
+  public void attackLaunched(Unit attacker, Unit target){
+    // not part of the console text
+  }
+
+  @Override
+  public void blockRaised(Unit unit){
+    // not part of the console text
+  }
+
+  @Override
+  public void blocking(Unit unit){
+    this.out.print(unit.name);
+    this.out.println(" is blocking; their defense temporarily increases for the next turn!");
+  }
+
+  @Override
+  public void attacking(Unit unit){
+    this.out.print(unit.name);
+    this.out.println(" attacks ");
+  }
+
+  @Override
+  public void hpRemaining(Unit target){
+    this.out.print(target.name);
+    this.out.print(" has ");
+    this.out.print(target.getHp());
+    this.out.println(" remaining.");
+  }
+
+  @Override
+  public void allTargetsFallen(){
+    this.out.println("Falia, Erom, and Ama have all fallen. There cannot be targetted.");
+  }
+
+  @Override
+  public void unitNotAlive(Unit unit){
+    this.out.println("The unit is not alive");
+  }
+
+  @Override
+  public void invalidMove(String move){
+    this.out.println("Please enter an 'a' or 'b'");
+  }
+
+  @Override
+  public void targetVanquished(Unit target){
+    this.out.println("The target has already been vanquished.");
+  }
+
+  @Override
+  public void targetNotFound(String targetName){
+    this.out.println("The target is not a member of the enemy’s forces.");
+  }
+
+  @Override
+  public void targetRetry(){
+    this.out.println("Error: Please pick another target.");
+  }
+
+  @Override
+  public void humanTurnStarted(int turn){
+    this.out.print("Turn ");
+    this.out.print(turn);
+    this.out.println(": Human player's turn.");
+    this.out.println();
+  }
+
+  @Override
+  public void unitTurn(Unit unit){
+    this.out.print("Job ");
+    this.out.print(unit.getJob());
+    this.out.print(". Level ");
+    this.out.println(unit.getLevel());
+  }
+
+  @Override
+  public void roundStarted(int turn){
+    this.out.println("------------------------------------------------");
+    this.out.print("Turn: ");
+    this.out.println(turn);
+  }
+
+  @Override
+  public void gameOver(String winner){
+    if ("computer".equals(winner)) {
+      this.out.println("All your heroes have been defeated, enemy forces have won!");
+    } else if ("human".equals(winner)) {
+      this.out.println("You've defeated the enemy!");
+    } else {
+      this.out.println("Nobody wins, it is a tie!");
+    }
+  }
+
+  @Override
+  public void message(String line){
+    this.out.println(line);
+  }
+
+  @Override
+  public void flush(){
+    this.out.flush();
+  }
+}
@@ -0,0 +1,261 @@
+package rpg;
+
+/**
+ * Counts events instead of rendering them. Useful to check what happened in bulk runs without paying for text.
+ */
+public class CountingEvents implements CombatEvents {
+
+  /**
+   * Number of attacks that were dodged.
+   */
+  long dodges = 0;
+
+  /**
+   * Number of attacks that landed.
+   */
+  long hits = 0;
+
+  /**
+   * Total damage received by all units.
+   */
+  long damage = 0;
+
+  /**
+   * Number of blocks announced by the computer.
+   */
+  long blocks = 0;
+
+  /**
+   * Number of attacks announced by the computer.
+   */
+  long attacks = 0;
+
+  /**
+   * Number of attacks launched by units of either side.
+   */
+  long launched = 0;
+
+  /**
+   * Number of blocks raised by units of either side.
+   */
+  long raised = 0;
+
+  /**
+   * Number of invalid moves and targets entered by the human.
+   */
+  long rejectedInputs = 0;
+
+  /**
+   * Number of human turns started.
+   */
+  long humanTurns = 0;
+
+  /**
+   * Number of games that ended.
+   */
+  long games = 0;
+
+  /**
+   * Number of all other events, such as status lines and messages.
+   */
+  long other = 0;
+
+  @Override
+  public void unitStatus(Unit unit){
+    this.other++;
+  }
+
+  @Override
+  public void dodged(Unit target){
+    this.dodges++;
+  }
+
+  @Override
+  public void damageReceived(Unit target, int damage){
+    this.hits++;
+    this.damage += damage;
+  }
+
+  @Override
+  public void attackLaunched(Unit attacker, Unit target){
+    this.launched++;
+  }
+
+  @Override
+  public void blockRaised(Unit unit){
+    this.raised++;
+  }
+
+  @Override
+  public void blocking(Unit unit){
+    this.blocks++;
+  }
+
+  @Override
+  public void attacking(Unit unit){
+    this.attacks++;
+  }
+
+  @Override
+  public void hpRemaining(Unit target){
+    this.other++;
+  }
+
+  @Override
+  public void allTargetsFallen(){
+    this.other++;
+  }
+
+  @Override
+  public void unitNotAlive(Unit unit){
+    this.other++;
+  }
+
+  @Override
+  public void invalidMove(String move){
+    this.rejectedInputs++;
+  }
+
+  @Override
+  public void targetVanquished(Unit target){
+    this.rejectedInputs++;
+  }
+
+  @Override
+  public void targetNotFound(String targetName){
+    this.rejectedInputs++;
+  }
+
+  @Override
+  public void targetRetry(){
+    this.other++;
+  }
+
+  @Override
+  public void humanTurnStarted(int turn){
+    this.humanTurns++;
+  }
+
+  @Override
+  public void unitTurn(Unit unit){
+    this.other++;
+  }
+
+  @Override
+  public void roundStarted(int turn){
+    this.other++;
+  }
+
+  @Override
+  public void gameOver(String winner){
+    this.games++;
+  }
+
+  @Override
+  public void message(String line){
+    this.other++;
+  }
+
+  @Override
+  public void flush(){
+  }
+
+  /**
+   * Returns the number of dodged attacks.
+   * Note: This method does not take any parameters.
+   * @return dodges
+   */
+  public long getDodges(){
+    return this.dodges;
+  }
+
+  /**
+   * Returns the number of attacks that landed.
+   * Note: This method does not take any parameters.
+   * @return hits
+   */
+  public long getHits(){
+    return this.hits;
+  }
+
+  /**
+   * Returns the total damage received by all units.
+   * Note: This method does not take any parameters.
+   * @return damage
+   */
+  public long getDamage(){
+    return this.damage;
+  }
+
+  /**
+   * Returns the number of blocks announced by the computer.
+   * Note: This method does not take any parameters.
+   * @return blocks
+   */
+  public long getBlocks(){
+    return this.blocks;
+  }
+
+  /**
+   * Returns the number of attacks announced by the computer.
+   * Note: This method does not take any parameters.
+   * @return attacks
+   */
+  public long getAttacks(){
+    return this.attacks;
+  }
+
+  /**
+   * Returns the number of attacks launched by units of either side.
+   * Note: This method does not take any parameters.
+   * @return launched
+   */
+  public long getLaunched(){
+    return this.launched;
+  }
+
+  /**
+   * Returns the number of blocks raised by units of either side.
+   * Note: This method does not take any parameters.
+   * @return raised
+   */
+  public long getRaised(){
+    return this.raised;
+  }
+
+  /**
+   * Returns the number of invalid moves and targets entered by the human.
+   * Note: This method does not take any parameters.
+   * @return rejectedInputs
+   */
+  public long getRejectedInputs(){
+    return this.rejectedInputs;
+  }
+
+  /**
+   * Returns the number of human turns started.
+   * Note: This method does not take any parameters.
+   * @return humanTurns
+   */
+  public long getHumanTurns(){
+    return this.humanTurns;
+  }
+
+  /**
+   * Returns the number of games that ended.
+   * Note: This method does not take any parameters.
+   * @return games
+   */
+  public long getGames(){
+    return this.games;
+  }
+
+  /**
+   * Returns the number of all other events.
+   * Note: This method does not take any parameters.
+   * @return other
+   */
+  public long getOther(){
+    return this.other;
+  }
+}
@@ -0,0 +1,185 @@
+package rpg;
+
+/**
+ * Every outcome of a hit, precomputed for all attacker levels, strengths, defender levels and temporary defense values.
+ * Apart from the dodge roll, the chain from Unit.attack to Unit.receiveDamage only depends on those four values,
+ * so a hit resolves with one array read. Entries are computed with the same arithmetic as Unit
+ * (Unit.scaleStat, BalanceRules.attackDamage and Unit.damageReceived), so they are bit-identical to it.
+ * Every BalanceRules has its own table, see BalanceRules.damageTable.
+ */
+public final class DamageTable {
+
+  /**
+   * Highest level in the table of the standard rules.
+   */
+  static final int MAX_LEVEL = 10;
+
+  /**
+   * Highest temporary defense in the table. A unit that blocked once this turn has 2.
+   */
+  static final int MAX_TEMPORARY_DEFENSE = 10;
+
+  /**
+   * The table for the standard unit stats.
+   */
+  public static final DamageTable STANDARD = BalanceRules.STANDARD.damageTable();
+
+  /**
+   * The rules the table is computed with.
+   */
+  private final BalanceRules rules;
+
+  /**
+   * Highest level in the table. Levels run from 0 to maxLevel.
+   */
+  private final int maxLevel;
+
+  /**
+   * Damage received for every combination, see index.
+   */
+  private final int[] damage;
+
+  /**
+   * Chance that the defender dodges for every combination, see index.
+   */
+  private final double[] dodgeChance;
+
+  /**
+   * Attack stat of a unit of every level in the table, as Unit derives it from the level.
+   */
+  private final int[] attackByLevel;
+
+  /**
+   * Defense stat of a unit of every level in the table, as Unit derives it from the level.
+   */
+  private final int[] defenseByLevel;
+
+  /**
+   * Builds the table for a set of rules.
+   * @param rules BalanceRules to compute every entry with
+   */
+  DamageTable(BalanceRules rules){
+    this.rules = rules;
+    this.maxLevel = rules.getMaxLevel();
+    int size = (this.maxLevel + 1) * 3 * (this.maxLevel + 1) * (MAX_TEMPORARY_DEFENSE + 1);
+    this.damage = new int[size];
+    this.dodgeChance = new double[size];
+    this.attackByLevel = new int[this.maxLevel + 1];
+    this.defenseByLevel = new int[this.maxLevel + 1];
+    for (int level = 0; level <= this.maxLevel; level++) {
+      this.attackByLevel[level] = Unit.scaleStat(level, rules.getAttack());
+      this.defenseByLevel[level] = Unit.scaleStat(level, rules.getDefense());
+    }
+
+    for (int attackerLevel = 0; attackerLevel <= this.maxLevel; attackerLevel++) {
+      for (Strength strength : Strength.values()) {
+        for (int defenderLevel = 0; defenderLevel <= this.maxLevel; defenderLevel++) {
+          for (int temporaryDefense = 0; temporaryDefense <= MAX_TEMPORARY_DEFENSE; temporaryDefense++) {
+            int i = index(attackerLevel, strength, defenderLevel, temporaryDefense);
+            this.damage[i] = compute(attackerLevel, strength, defenderLevel, temporaryDefense);
+            this.dodgeChance[i] = dodgeChance(Unit.scaleStat(defenderLevel, rules.getEvasion()));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the position of a combination in the table.
+   * @param attackerLevel int representing the attacker's level
+   * @param strength Strength of the attacker relative to the defender
+   * @param defenderLevel int representing the defender's level
+   * @param temporaryDefense int representing the defender's temporary defense
+   * @return int index into the table
+   */
+  private int index(int attackerLevel, Strength strength, int defenderLevel, int temporaryDefense){
+    return ((attackerLevel * 3 + strength.ordinal()) * (this.maxLevel + 1) + defenderLevel)
+        * (MAX_TEMPORARY_DEFENSE + 1) + temporaryDefense;
+  }
+
+  /**
+   * Determines if a combination is covered by the table.
+   * @param attackerLevel int representing the attacker's level
+   * @param defenderLevel int representing the defender's level
+   * @param temporaryDefense int representing the defender's temporary defense
+   * @return boolean true if the table holds the combination
+   */
+  private boolean covers(int attackerLevel, int defenderLevel, int temporaryDefense){
+    return attackerLevel >= 0 && attackerLevel <= this.maxLevel && defenderLevel >= 0 && defenderLevel <= this.maxLevel
+        && temporaryDefense >= 0 && temporaryDefense <= MAX_TEMPORARY_DEFENSE;
+  }
+
+  /**
+   * Determines if an attacker's attack and a defender's defense are the ones their levels give, so the damage of a hit
+   * between them can be read from the table. Units whose stats were changed or came from other rules must not be.
+   * @param attackerLevel int representing the attacker's level
+   * @param attack int representing the attacker's attack stat
+   * @param defenderLevel int representing the defender's level
+   * @param defense int representing the defender's defense stat
+   * @return boolean true if both stats follow from the levels under the table's rules
+   */
+  public boolean fromLevels(int attackerLevel, int attack, int defenderLevel, int defense){
+    if (attackerLevel >= 0 && attackerLevel <= this.maxLevel && defenderLevel >= 0 && defenderLevel <= this.maxLevel) {
+      return attack == this.attackByLevel[attackerLevel] && defense == this.defenseByLevel[defenderLevel];
+    }
+    return attack == Unit.scaleStat(attackerLevel, this.rules.getAttack())
+        && defense == Unit.scaleStat(defenderLevel, this.rules.getDefense());
+  }
+
+  /**
+   * Returns the damage a hit deals when it is not dodged.
+   * Combinations outside the table are computed directly with the same result.
+   * @param attackerLevel int representing the attacker's level
+   * @param strength Strength of the attacker relative to the defender
+   * @param defenderLevel int representing the defender's level
+   * @param temporaryDefense int representing the defender's temporary defense
+   * @return int representing the damage received by the defender
+   */
+  public int damage(int attackerLevel, Strength strength, int defenderLevel, int temporaryDefense){
+    if (!covers(attackerLevel, defenderLevel, temporaryDefense)) {
+      return compute(attackerLevel, strength, defenderLevel, temporaryDefense);
+    }
+    return this.damage[index(attackerLevel, strength, defenderLevel, temporaryDefense)];
+  }
+
+  /**
+   * Returns the chance that the defender dodges, for a defender whose evasion comes from its level.
+   * @param attackerLevel int representing the attacker's level
+   * @param strength Strength of the attacker relative to the defender
+   * @param defenderLevel int representing the defender's level
+   * @param temporaryDefense int representing the defender's temporary defense
+   * @return double representing the dodge probability
+   */
+  public double dodgeChance(int attackerLevel, Strength strength, int defenderLevel, int temporaryDefense){
+    if (!covers(attackerLevel, defenderLevel, temporaryDefense)) {
+      return dodgeChance(Unit.scaleStat(defenderLevel, this.rules.getEvasion()));
+    }
+    return this.dodgeChance[index(attackerLevel, strength, defenderLevel, temporaryDefense)];
+  }
+
+  /**
+   * Computes the damage of a hit from scratch, through the same methods Unit uses, with the table's rules.
+   * @param attackerLevel int representing the attacker's level
+   * @param strength Strength of the attacker relative to the defender
+   * @param defenderLevel int representing the defender's level
+   * @param temporaryDefense int representing the defender's temporary defense
+   * @return int representing the damage received by the defender
+   */
+  int compute(int attackerLevel, Strength strength, int defenderLevel, int temporaryDefense){
+    int damage = this.rules.attackDamage(Unit.scaleStat(attackerLevel, this.rules.getAttack()), strength);
+    return Unit.damageReceived(damage, Unit.scaleStat(defenderLevel, this.rules.getDefense()), temporaryDefense);
+  }
+
+  /**
+   * Returns the chance of dodging with the given evasion, matching the roll in Unit.receiveDamage:
+   * a number from 0 to 20 at or below the evasion dodges, and there is no roll at evasion 0.
+   * @param evasion int representing the defender's evasion stat
+   * @return double representing the dodge probability
+   */
+  public static double dodgeChance(int evasion){
+    if (evasion <= 0) {
+      return 0;
+    }
+    return Math.min(evasion + 1, 21) / 21.0;
+  }
+}
@@ -0,0 +1,190 @@
+package rpg;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the target ComputerPlayer.selectOptimalTarget picked for a position, so a position seen again is answered
+ * with one lookup. A position is the attacker's job and every target's job and exact HP: the choice depends on nothing
+ * else (temporary defense and levels do not enter it), so a cached answer is always the one the scan would give.
+ * Rosters of up to MAX_TARGETS targets with HP up to MAX_HP are cached; anything else is scanned every time.
+ *
+ * The table is a fixed array of longs, each holding a whole entry (key and answer), so threads share it without locks
+ * and never see half an entry. A new entry replaces whatever held its slot, which keeps the size bounded.
+ * Turn it on for the whole process with -Drpg.decisionCache=true, sized with -Drpg.decisionCacheBits (default 16,
+ * for 65536 entries).
+ */
+public final class DecisionCache {
+
+  /**
+   * Most targets a cached position can have.
+   */
+  public static final int MAX_TARGETS = 3;
+
+  /**
+   * Highest HP a target of a cached position can have.
+   */
+  public static final int MAX_HP = (1 << 12) - 1;
+
+  /**
+   * Key of a position that cannot be cached.
+   */
+  static final long UNCACHED = -1;
+
+  /**
+   * Answer of get for a position not in the cache.
+   */
+  static final int MISS = -2;
+
+  /**
+   * Answer of get for a position without any target left.
+   */
+  static final int NO_TARGET = -1;
+
+  /**
+   * The cache shared by every computer player, or null if it is off.
+   */
+  static final DecisionCache SHARED = Boolean.getBoolean("rpg.decisionCache")
+      ? new DecisionCache(Integer.getInteger("rpg.decisionCacheBits", 16)) : null;
+
+  /**
+   * The entries: the key shifted left by 2 and the answer plus 1 in the low bits, or 0 for an empty slot.
+   */
+  private final AtomicLongArray entries;
+
+  /**
+   * Number of bits of a slot index.
+   */
+  private final int bits;
+
+  /**
+   * Number of lookups answered from the cache.
+   */
+  private final LongAdder hits = new LongAdder();
+
+  /**
+   * Number of lookups that had to scan.
+   */
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Constructs an empty cache.
+   * @param bits int representing the number of bits of a slot index, from 1 to 30; the cache holds 2^bits entries
+   */
+  public DecisionCache(int bits){
+    if (bits < 1 || bits > 30) {
+      throw new IllegalArgumentException("Cache size must be 2^1 to 2^30 entries: 2^" + bits);
+    }
+    this.bits = bits;
+    this.entries = new AtomicLongArray(1 << bits);
+  }
+
+  /**
+   * Returns the key of a position: the number of targets, the attacker's job, then every target's job and HP,
+   * with HP at or below 0 counted as 0 since the scan treats them alike.
+   * @param targets Unit array of the units that can be targeted, in turn order
+   * @param unit Unit that is taking its turn
+   * @return long representing the key, never 0, or UNCACHED if the position cannot be cached
+   */
+  static long key(Unit[] targets, Unit unit){
+    Job job = unit.getJobType();
+    if (targets.length > MAX_TARGETS || job == null) {
+      return UNCACHED;
+    }
+    long key = targets.length << 2 | job.ordinal();
+    for (Unit target : targets) {
+      Job targetJob = target.getJobType();
+      int hp = Math.max(target.getHp(), 0);
+      if (targetJob == null || hp > MAX_HP) {
+        return UNCACHED;
+      }
+      key = key << 14 | targetJob.ordinal() << 12 | hp;
+    }
+    return key;
+  }
+
+  /**
+   * Looks up a position.
+   * @param key long returned by key, not UNCACHED
+   * @return int representing the position of the target in its roster, NO_TARGET, or MISS if the position is not cached
+   */
+  int get(long key){
+    long entry = this.entries.getAcquire(slot(key));
+    if (entry != 0 && entry >>> 2 == key) {
+      this.hits.increment();
+      return (int) (entry & 3) - 1;
+    }
+    this.misses.increment();
+    return MISS;
+  }
+
+  /**
+   * Stores the answer for a position, replacing the entry in its slot.
+   * Note: This method does not return anything.
+   * @param key long returned by key, not UNCACHED
+   * @param target int representing the position of the target in its roster, or NO_TARGET
+   */
+  void put(long key, int target){
+    this.entries.setRelease(slot(key), key << 2 | target + 1);
+  }
+
+  /**
+   * Returns the slot of a key.
+   * @param key long representing the key
+   * @return int representing the slot index
+   */
+  private int slot(long key){
+    return (int) (key * 0x9E3779B97F4A7C15L >>> 64 - this.bits);
+  }
+
+  /**
+   * Returns the number of lookups answered from the cache.
+   * Note: This method does not take any parameters.
+   * @return long representing the hits
+   */
+  public long getHits(){
+    return this.hits.sum();
+  }
+
+  /**
+   * Returns the number of lookups that had to scan.
+   * Note: This method does not take any parameters.
+   * @return long representing the misses
+   */
+  public long getMisses(){
+    return this.misses.sum();
+  }
+
+  /**
+   * Returns the number of entries the cache holds at most.
+   * Note: This method does not take any parameters.
+   * @return int representing the capacity
+   */
+  public int getCapacity(){
+    return this.entries.length();
+  }
+
+  /**
+   * Empties the cache and resets its counters.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  public void clear(){
+    for (int i = 0; i < this.entries.length(); i++) {
+      this.entries.setRelease(i, 0);
+    }
+    this.hits.reset();
+    this.misses.reset();
+  }
+
+  /**
+   * Returns a one-line summary of the cache's use.
+   * Note: This method does not take any parameters.
+   * @return String with the hits, misses, hit rate and capacity
+   */
+  @Override
+  public String toString(){
+    long hits = getHits();
+    long misses = getMisses();
+    return String.format("decision cache: %d hits, %d misses (%.1f%% hit rate), %d entries", hits, misses,
+        100.0 * hits / Math.max(hits + misses, 1), getCapacity());
+  }
+}
@@ -0,0 +1,146 @@
+package rpg;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the engine, in the RPG category. Record them with any JFR recording, such as
+ * java -XX:StartFlightRecording=filename=game.jfr or jcmd PID JFR.start. When no recording is running the hooks
+ * cost next to nothing: the event objects are never committed and the JIT removes them.
+ * Attack and Damage fire on every hit, so they record without stack traces.
+ */
+final class FlightEvents {
+
+  /**
+   * Not instantiable; the events are nested classes.
+   */
+  private FlightEvents(){
+  }
+
+  /**
+   * One side's turn, from GameControl.takeHumanTurn or GameControl.takeComputerTurn.
+   */
+  @Name("rpg.Turn")
+  @Label("Turn")
+  @Category("RPG")
+  @Description("A side's turn, including the time the human spends entering moves")
+  static final class Turn extends Event {
+
+    /**
+     * Side that moved, "human" or "computer".
+     */
+    @Label("Side")
+    String side;
+
+    /**
+     * Turn of the game, from 0.
+     */
+    @Label("Turn")
+    int turn;
+
+    /**
+     * Whether the moves were scripted rather than read from input.
+     */
+    @Label("Scripted")
+    boolean scripted;
+  }
+
+  /**
+   * A computer turn played with ComputerPlayer.strategy, policyStrategy or searchStrategy.
+   */
+  @Name("rpg.Strategy")
+  @Label("Computer Strategy")
+  @Category("RPG")
+  @Description("The computer choosing and making its moves for one turn")
+  static final class Strategy extends Event {
+
+    /**
+     * Which strategy played: "strategy", "policy" or "search".
+     */
+    @Label("Kind")
+    String kind;
+
+    /**
+     * Number of units that attacked.
+     */
+    @Label("Attacks")
+    int attacks;
+
+    /**
+     * Number of units that blocked.
+     */
+    @Label("Blocks")
+    int blocks;
+  }
+
+  /**
+   * A unit's attack damage, from Unit.attack.
+   */
+  @Name("rpg.Attack")
+  @Label("Attack")
+  @Category("RPG")
+  @StackTrace(false)
+  static final class Attack extends Event {
+
+    /**
+     * Job of the attacker.
+     */
+    @Label("Job")
+    String job;
+
+    /**
+     * Matchup of the attacker against its target.
+     */
+    @Label("Strength")
+    String strength;
+
+    /**
+     * Damage before the target's defense.
+     */
+    @Label("Damage")
+    int damage;
+  }
+
+  /**
+   * A unit receiving an attack, from Unit.receiveDamage.
+   */
+  @Name("rpg.Damage")
+  @Label("Damage Received")
+  @Category("RPG")
+  @StackTrace(false)
+  static final class Damage extends Event {
+
+    /**
+     * Name of the unit hit.
+     */
+    @Label("Unit")
+    String unit;
+
+    /**
+     * Evasion of the unit hit.
+     */
+    @Label("Evasion")
+    int evasion;
+
+    /**
+     * Whether the unit dodged.
+     */
+    @Label("Dodged")
+    boolean dodged;
+
+    /**
+     * Damage received after defense, 0 if dodged.
+     */
+    @Label("Damage")
+    int damage;
+
+    /**
+     * HP left after the hit.
+     */
+    @Label("HP")
+    int hp;
+  }
+}
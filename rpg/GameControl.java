@@ -1,93 +1,292 @@
 package rpg;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This is a simplified version of a role-playing game.
  */
 public class GameControl {
 
+  /**
+   * The random number generator driving every roll of this game.
+   */
+  MatchRandom random;
+
   /**
    * Creates a human player to play the game.
    */
-  HumanPlayer human = new HumanPlayer();
+  HumanPlayer human;
 
   /**
    * Creates a computer player to play the game.
    */
-  ComputerPlayer computer = new ComputerPlayer();
+  ComputerPlayer computer;
+
+  /**
+   * The turn the game is currently on, or 10 once all turns have been played.
+   */
+  int turn = 0;
+
+  /**
+   * Where the game publishes everything that happens, the console by default.
+   */
+  CombatEvents events = ConsoleEvents.STANDARD;
+
+  /**
+   * Renders printStatus into one message, or null to print every unit as its own status event.
+   */
+  StatusRenderer statusRenderer;
+
+  /**
+   * Creates a game with a fresh random seed.
+   */
+  public GameControl(){
+    this(ThreadLocalRandom.current().nextLong());
+  }
+
+  /**
+   * Creates a game whose rolls all come from the given seed, so the same seed and the same moves replay the same game.
+   * @param seed long representing the match seed
+   */
+  public GameControl(long seed){
+    this(seed, 3);
+  }
+
+  /**
+   * Creates a seeded game where each side has the given number of units.
+   * @param seed long representing the match seed
+   * @param unitsPerSide int representing the number of units on each side, from Roster.MIN_SIZE to Roster.MAX_SIZE
+   */
+  public GameControl(long seed, int unitsPerSide){
+    this(seed, unitsPerSide, BalanceRules.STANDARD);
+  }
+
+  /**
+   * Creates a seeded game where each side has the given number of units, created and fighting under the given rules.
+   * @param seed long representing the match seed
+   * @param unitsPerSide int representing the number of units on each side, from Roster.MIN_SIZE to Roster.MAX_SIZE
+   * @param rules BalanceRules giving the level ranges, stats and damage formula
+   */
+  public GameControl(long seed, int unitsPerSide, BalanceRules rules){
+    this.random = new MatchRandom(seed);
+    this.human = new HumanPlayer(this.random, unitsPerSide, rules);
+    this.computer = new ComputerPlayer(this.random, unitsPerSide, rules);
+  }
+
+  /**
+   * Creates a game from existing players, such as when restoring a GameSnapshot. It starts at turn 0.
+   * @param random MatchRandom the players and their units roll with
+   * @param human HumanPlayer of the game
+   * @param computer ComputerPlayer of the game
+   */
+  GameControl(MatchRandom random, HumanPlayer human, ComputerPlayer computer){
+    this.random = random;
+    this.human = human;
+    this.computer = computer;
+  }
+
+  /**
+   * Returns the balance rules of this game, those of its first human unit.
+   * Note: This method does not take any parameters.
+   * @return BalanceRules the units were created with
+   */
+  public BalanceRules getRules(){
+    return this.human.getRoster().get(0).getRules();
+  }
+
+  /**
+   * Returns the seed of this game.
+   * Note: This method does not take any parameters.
+   * @return long representing the match seed
+   */
+  public long getSeed(){
+    return this.random.getSeed();
+  }
+
+  /**
+   * Sets where the game, both players, and all units publish what happens.
+   * Use SilentEvents.INSTANCE to run without any output.
+   * Note: This method does not return anything.
+   * @param events CombatEvents to publish to
+   */
+  public void setEvents(CombatEvents events){
+    this.events = events;
+    this.human.setEvents(events);
+    this.computer.setEvents(events);
+  }
 
   /**
    * Prints the game's context and rules.
    * Note: This method does not take any parameters and does not return anything.
    */
   public void printInstructions(){
-    System.out.println();
-    System.out.println("Welcome to the final battle against enemy forces. You will be facing off against the computer.");
-    System.out.println("Each of you will have 3 units with randomly generated jobs and levels.");
-    System.out.println("The jobs are: mage, knight, and archer. Archers are strong against mages, but weak against knights.");
-    System.out.println("Mages are strong against knights, but weak against archers. Knights are strong against archers, but weak against mages.");
-    System.out.println("There are two moves: attack (deal damage to one target) and block (temporarily increase defense).");
-    System.out.println("Combat is turn based; all your love units will take a turn and then all the computer's live units will take a turn.");
-    System.out.println("You have 10 turns to defeat the computer. If both players still have units standing, you only win ");
-    System.out.println("if the combined HP of your units exceeds the computer's.");
-    System.out.println("========================================================");
+    this.events.message("");
+    this.events.message("Welcome to the final battle against enemy forces. You will be facing off against the computer.");
+    this.events.message("Each of you will have " + this.human.getRoster().size() + " units with randomly generated jobs and levels.");
+    this.events.message("The jobs are: mage, knight, and archer. Archers are strong against mages, but weak against knights.");
+    this.events.message("Mages are strong against knights, but weak against archers. Knights are strong against archers, but weak against mages.");
+    this.events.message("There are two moves: attack (deal damage to one target) and block (temporarily increase defense).");
+    this.events.message("Combat is turn based; all your love units will take a turn and then all the computer's live units will take a turn.");
+    this.events.message("You have 10 turns to defeat the computer. If both players still have units standing, you only win ");
+    this.events.message("if the combined HP of your units exceeds the computer's.");
+    this.events.message("========================================================");
   }
   
   /**
-   * Prints the current status of all human units and all computer units.
+   * Sets how printStatus renders the units.
+   * Note: This method does not return anything.
+   * @param statusRenderer StatusRenderer building each status as one message, such as a diff against the last one,
+   *                       or null to print every unit as its own status event
+   */
+  public void setStatusRenderer(StatusRenderer statusRenderer){
+    this.statusRenderer = statusRenderer;
+  }
+
+  /**
+   * Prints the current status of all human units and all computer units, through the status renderer if there is one.
    * Note: This method does not take any parameters and does not return anything.
    */
   public void printStatus(){
-    System.out.println();
-    System.out.println("Your units:");
-    this.human.getFalia().printCurrentStatus();
-    this.human.getErom().printCurrentStatus();
-    this.human.getAma().printCurrentStatus();
-    System.out.println();
-    System.out.println("Computer units:");
-    this.computer.getCriati().printCurrentStatus();
-    this.computer.getLedde().printCurrentStatus();
-    this.computer.getTyllion().printCurrentStatus();
-    System.out.println();
+    if (this.statusRenderer != null) {
+      this.statusRenderer.render(this.human, this.computer, this.events);
+      return;
+    }
+    this.events.message("");
+    this.events.message("Your units:");
+    this.human.getRoster().printStatus();
+    this.events.message("");
+    this.events.message("Computer units:");
+    this.computer.getRoster().printStatus();
+    this.events.message("");
   }
 
   /**
-   * Takes the human player's turn by calling moveUnit on each of the human player's three units: Falia, Erom, and Ama.
+   * Takes the human player's turn by calling moveUnit on each of the human player's units: Falia, Erom, Ama, and so on.
    * Prints the unit's job and level before moving it. Checks if there is no winner before proceeding to the next move.
-   * If there is a winner between the first and second unit's turn or between the second and third unit's turn,
-   * then return out of the method to end the human turn.
+   * If there is a winner between two units' turns, then return out of the method to end the human turn.
    * Resets any computer temporary defense after all human units have made their move.
    * Note: This method does not return anything.
    * @param turn int representing the current turn that the game is on.
    */
   public void takeHumanTurn(int turn){
+    takeHumanTurn(turn, false);
+  }
+
+  /**
+   * Takes the human player's turn without reading any input, moving each human unit with HumanPlayer.autoMoveUnit.
+   * Works the same as takeHumanTurn otherwise.
+   * Note: This method does not return anything.
+   * @param turn int representing the current turn that the game is on.
+   */
+  public void takeScriptedHumanTurn(int turn){
+    takeHumanTurn(turn, true);
+  }
+
+  /**
+   * Moves the human units in turn order, checking for a winner between moves.
+   * Note: This method does not return anything.
+   * @param turn int representing the current turn that the game is on.
+   * @param scripted boolean true to pick moves with the scripted policy instead of reading them from input
+   */
+  private void takeHumanTurn(int turn, boolean scripted){
+    long start = GameMetrics.start();
+    FlightEvents.Turn event = new FlightEvents.Turn();
+    event.begin();
+
+    moveHumanUnits(turn, scripted);
+
+    GameMetrics.humanTurn(start);
+    if (event.shouldCommit()) {
+      event.side = "human";
+      event.turn = turn;
+      event.scripted = scripted;
+      event.commit();
+    }
+  }
+
+  /**
+   * Moves the human units in turn order, checking for a winner between moves, and resets the computer's
+   * temporary defense unless the game was won before the last unit.
+   * Note: This method does not return anything.
+   * @param turn int representing the current turn that the game is on.
+   * @param scripted boolean true to pick moves with the scripted policy instead of reading them from input
+   */
+  private void moveHumanUnits(int turn, boolean scripted){
+    Roster units = this.human.getRoster();
+
+    this.events.humanTurnStarted(turn);
+    for (int i = 0; i < units.size(); i++) {
+      if (i > 0) {
+        if (getWinner(turn) != null) return;
+        this.events.message("");
+      }
+      this.events.unitTurn(units.get(i));
+      moveHumanUnit(units.get(i), scripted);
+    }
 
-    System.out.println("Turn " + turn + ": Human player's turn.");
-    System.out.println();
-    System.out.println("Job " + this.human.getFalia().getJob() + ". Level " + this.human.getFalia().getLevel());
-    this.human.moveUnit(this.human.getFalia(), this.computer);
-    if (getWinner(turn) != null) return;
-    
-    System.out.println();
-    System.out.println("Job " + this.human.getErom().getJob() + ". Level " + this.human.getErom().getLevel());
-    this.human.moveUnit(this.human.getErom(), this.computer);
-    if (getWinner(turn) != null) return;
-
-    System.out.println();
-    System.out.println("Job " + this.human.getAma().getJob() + ". Level " + this.human.getAma().getLevel());
-    this.human.moveUnit(this.human.getAma(), this.computer);
-    
     this.computer.resetTemporaryDefense();
   }
 
+  /**
+   * Moves the given human unit, either from input or with the scripted policy.
+   * Note: This method does not return anything.
+   * @param unit Unit belonging to the human that is taking its move
+   * @param scripted boolean true to pick the move with the scripted policy
+   */
+  private void moveHumanUnit(Unit unit, boolean scripted){
+    if (scripted) {
+      this.human.autoMoveUnit(unit, this.computer);
+    } else {
+      this.human.moveUnit(unit, this.computer);
+    }
+  }
+
   /**
    * Takes the computer player's turn and resets any human temporary defense after the computer has made its moves.
+   * Each computer unit attacks the human unit at the same position (wrapping around if the human side is smaller).
+   * If the computer has a search planner, its units pick their moves with ComputerPlayer.searchStrategy instead,
+   * and if it has a policy, with ComputerPlayer.policyStrategy.
    * Note: This method does not take any parameters and does not return anything.
    */
   public void takeComputerTurn(){
+    long start = GameMetrics.start();
+    FlightEvents.Turn event = new FlightEvents.Turn();
+    event.begin();
+
+    moveComputerUnits();
+
+    GameMetrics.computerTurn(start);
+    if (event.shouldCommit()) {
+      event.side = "computer";
+      event.turn = this.turn;
+      event.scripted = true;
+      event.commit();
+    }
+  }
 
-    this.computer.moveUnit("attack", this.computer.getCriati(), this.human.getFalia(), "strong");
-    this.computer.moveUnit("attack", this.computer.getLedde(), this.human.getErom(), "strong");
-    this.computer.moveUnit("attack", this.computer.getTyllion(), this.human.getAma(), "strong");
+  /**
+   * Moves the computer units with the search planner, the policy or the fixed pairing,
+   * then resets any human temporary defense.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void moveComputerUnits(){
+
+    if (this.computer.getPlanner() != null) {
+      this.computer.searchStrategy(this.human.getRoster(), this.turn);
+      this.human.resetTemporaryDefense();
+      return;
+    }
+    if (this.computer.getPolicy() != null) {
+      this.computer.policyStrategy(this.human.getRoster());
+      this.human.resetTemporaryDefense();
+      return;
+    }
+
+    Roster units = this.computer.getRoster();
+    Roster targets = this.human.getRoster();
+    for (int i = 0; i < units.size(); i++) {
+      this.computer.moveUnit("attack", units.get(i), targets.get(i % targets.size()), Strength.STRONG);
+    }
 
     this.human.resetTemporaryDefense();
   
@@ -103,9 +302,6 @@ public class GameControl {
    */
   public String getWinner(int turn) {
 
-    int computerPoints = this.computer.getCriati().getHp() + this.computer.getLedde().getHp() + this.computer.getTyllion().getHp();
-    int humanPoints = this.human.getAma().getHp() + this.human.getErom().getHp() + this.human.getFalia().getHp();
-
     if (turn < 10) {
         if (!this.human.isKnockedOut() && !this.computer.isKnockedOut()) {
             return null;
@@ -115,6 +311,8 @@ public class GameControl {
             return "human";
         }
     } else {
+        int computerPoints = this.computer.getRoster().hpSum();
+        int humanPoints = this.human.getRoster().hpSum();
         if (computerPoints > humanPoints) {
             return "computer";
         } else if (humanPoints > computerPoints) {
@@ -127,34 +325,85 @@ public class GameControl {
 }
 
   /**
-   * Creates an instance of GameControl and contains the flow of this role-playing game.
-   * Note: This method does not return anything.
-   * @param args Not used.
+   * Plays a full match without reading any input, using the scripted policy for the human and the regular computer turn.
+   * Follows the same turn order and winner checks as main. Afterwards, turn holds the last turn played, or 10 if
+   * the game went the full 10 turns.
+   * @return String representing who won the game ("human" or "computer") or "tie" if there is a tie.
    */
-  public static void main(String[] args){
+  public String playHeadless(){
+    this.turn = 0;
+    return playUntil(10, true);
+  }
+
+  /**
+   * Plays turns from the current turn up to, but not including, stopTurn, with the same turn order and winner checks as main.
+   * Stops early if the game is won. Afterwards, turn holds the turn the game ended on, or stopTurn.
+   * @param stopTurn int representing the turn to stop at, 10 to play the game to the end
+   * @param scripted boolean true to move the human units with the scripted policy instead of reading input
+   * @return String representing who won the game ("human" or "computer") or "tie" if there is a tie,
+   * or null if the game is still going at stopTurn.
+   */
+  public String playUntil(int stopTurn, boolean scripted){
+    String winner;
 
-    GameControl gC = new GameControl();
-    gC.printInstructions();
+    while (this.turn < stopTurn) {
+      takeHumanTurn(this.turn, scripted);
+      winner = getWinner(this.turn);
+      if (winner != null) {
+        return finish(winner);
+      }
+
+      takeComputerTurn();
+      winner = getWinner(this.turn);
+      if (winner != null) {
+        return finish(winner);
+      }
+
+      this.turn++;
+    }
+
+    return this.turn >= 10 ? finish(getWinner(10)) : null;
+  }
+
+  /**
+   * Counts a finished match in the metrics, if they are recording.
+   * @param winner String representing who won the game
+   * @return winner
+   */
+  private String finish(String winner){
+    GameMetrics.matchEnded(this.turn);
+    return winner;
+  }
+
+  /**
+   * Plays a full interactive match: prints the instructions, then the status before each side's turn,
+   * reads the human player's moves from its command source and ends with the game over message.
+   * Starts at the current turn, so a game restored from a GameSnapshot picks up where it was saved.
+   * Afterwards, turn holds the turn the game ended on, or 10 if the game went the full 10 turns.
+   * @return String representing who won the game ("human" or "computer") or "tie" if there is a tie.
+   */
+  public String playInteractive(){
+    printInstructions();
 
     String winner = null;
     boolean gameWon = false;
 
-    int turn = 0;
+    int turn = this.turn;
     while (turn < 10) {
-            gC.printStatus();
-            System.out.println("------------------------------------------------");
-            System.out.println("Turn: " + turn);
+            this.turn = turn;
+            printStatus();
+            this.events.roundStarted(turn);
 
-            gC.takeHumanTurn(turn);
-            winner = gC.getWinner(turn);
+            takeHumanTurn(turn);
+            winner = getWinner(turn);
             if (winner != null) {
                     gameWon = true;
                     break;
             }
 
-            gC.printStatus();
-            gC.takeComputerTurn();
-            winner = gC.getWinner(turn);
+            printStatus();
+            takeComputerTurn();
+            winner = getWinner(turn);
             if (winner != null) {
                     gameWon = true;
                     break;
@@ -164,15 +413,79 @@ public class GameControl {
     }
 
     if (!gameWon) {
-        winner = gC.getWinner(10); // Determine the winner after 10 turns if no one has won yet
+        winner = getWinner(10); // Determine the winner after 10 turns if no one has won yet
     }
+    this.turn = turn;
+    finish(winner);
 
-    if ("computer".equals(winner)) {
-            System.out.println("All your heroes have been defeated, enemy forces have won!");
-    } else if ("human".equals(winner)) {
-            System.out.println("You've defeated the enemy!");
-    } else {
-            System.out.println("Nobody wins, it is a tie!");
-            }
+    this.events.gameOver(winner);
+    this.events.flush();
+    return winner;
+  }
+
+  /**
+   * Returns the turn the game is currently on.
+   * Note: This method does not take any parameters.
+   * @return turn
+   */
+  public int getTurn(){
+    return this.turn;
+  }
+
+  /**
+   * Creates an instance of GameControl and contains the flow of this role-playing game.
+   * Note: This method does not return anything.
+   * @param args "--search" to play against the search based computer AI,
+   * "--record" followed by a file to append the match to a match log for MatchReplayer,
+   * "--commands" followed by a file to read the human player's moves from instead of the console,
+   * "--units" followed by the number of units per side,
+   * "--genome" followed by a GenomeTrainer checkpoint to play against its best genome,
+   * "--metrics" to record GameMetrics, exposed through JMX and printed to stderr at the end,
+   * "--diff-status" to only show the units whose HP changed since the last status.
+   */
+  public static void main(String[] args){
+
+    int unitsPerSide = 3;
+    for (int i = 0; i + 1 < args.length; i++) {
+      if ("--units".equals(args[i])) {
+        unitsPerSide = Integer.parseInt(args[i + 1]);
+      }
+    }
+
+    GameControl gC = new GameControl(ThreadLocalRandom.current().nextLong(), unitsPerSide);
+    String recordFile = null;
+    for (int i = 0; i < args.length; i++) {
+      if ("--units".equals(args[i])) {
+        i++;
+      } else if ("--search".equals(args[i])) {
+        gC.computer.setPlanner(new SearchPlanner());
+      } else if ("--record".equals(args[i]) && i + 1 < args.length) {
+        recordFile = args[++i];
+      } else if ("--commands".equals(args[i]) && i + 1 < args.length) {
+        gC.human.setCommands(LineCommands.open(Path.of(args[++i])));
+      } else if ("--genome".equals(args[i]) && i + 1 < args.length) {
+        gC.computer.setPolicy(GenomeTrainer.load(Path.of(args[++i])).get(0));
+      } else if ("--metrics".equals(args[i])) {
+        GameMetrics.install();
+      } else if ("--diff-status".equals(args[i])) {
+        gC.setStatusRenderer(new StatusRenderer(true));
+      }
+    }
+    MatchRecorder recorder = null;
+    if (recordFile != null) {
+      recorder = new MatchRecorder(gC.events);
+      gC.setEvents(recorder);
+      recorder.begin(gC, false);
+    }
+    String winner = gC.playInteractive();
+
+    if (recorder != null) {
+      try (MatchLog log = MatchLog.open(Path.of(recordFile))) {
+        log.append(recorder.finish(winner, gC.getTurn()));
+      }
+    }
+    if (GameMetrics.INSTANCE.isRecording()) {
+      System.err.println(GameMetrics.INSTANCE.report());
+    }
         }
 }
\ No newline at end of file
@@ -0,0 +1,404 @@
+package rpg;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and histograms of what the engine does: turn and decision times, time waiting for input,
+ * attacks and damage by matchup, dodges by evasion, blocks and match lengths. There is one set per JVM,
+ * shared by every game, and it is exposed through JMX as rpg:type=GameMetrics.
+ *
+ * Recording is off until install is called, the JVM is started with -Drpg.metrics=true, or a JMX client turns it on.
+ * The engine asks active() before recording anything; while recording is off the JIT folds that check to a constant,
+ * so the hooks cost nothing and no clock is read. Counters are LongAdders, so games on many threads record
+ * without contending.
+ */
+public final class GameMetrics implements GameMetricsMXBean {
+
+  /**
+   * Name the metrics are registered under in the platform MBean server.
+   */
+  public static final String OBJECT_NAME = "rpg:type=GameMetrics";
+
+  /**
+   * Number of evasion values counted separately; higher evasions count with the last one.
+   */
+  static final int EVASIONS = 21;
+
+  /**
+   * Nanoseconds per reported microsecond.
+   */
+  private static final double MICROS = 1000.0;
+
+  /**
+   * The metrics of this JVM.
+   */
+  public static final GameMetrics INSTANCE = new GameMetrics();
+
+  /**
+   * Holds the metrics the engine records to, or null while recording is off. Compiled code treats the current target
+   * as a constant, so the checks in the hot paths fold away; changing it deoptimizes the code that read it.
+   */
+  private static final MutableCallSite ACTIVE_SITE =
+      new MutableCallSite(MethodHandles.constant(GameMetrics.class, null));
+
+  /**
+   * Invokes ACTIVE_SITE.
+   */
+  private static final MethodHandle ACTIVE = ACTIVE_SITE.dynamicInvoker();
+
+  static {
+    if (Boolean.getBoolean("rpg.metrics")) {
+      install();
+    }
+  }
+
+  /**
+   * Human turn times in nanoseconds.
+   */
+  final Histogram humanTurns = new Histogram();
+
+  /**
+   * Computer turn times in nanoseconds.
+   */
+  final Histogram computerTurns = new Histogram();
+
+  /**
+   * Times waiting for a human command in nanoseconds.
+   */
+  final Histogram inputWaits = new Histogram();
+
+  /**
+   * Times choosing a computer unit's move in nanoseconds.
+   */
+  final Histogram decisions = new Histogram();
+
+  /**
+   * Attacks by matchup, indexed by Strength ordinal.
+   */
+  final LongAdder[] attacks = adders(Strength.values().length);
+
+  /**
+   * Damage of attacks by matchup, indexed by Strength ordinal.
+   */
+  final LongAdder[] damage = adders(Strength.values().length);
+
+  /**
+   * Hits taken by units of every evasion.
+   */
+  final LongAdder[] incoming = adders(EVASIONS);
+
+  /**
+   * Hits dodged by units of every evasion.
+   */
+  final LongAdder[] dodges = adders(EVASIONS);
+
+  /**
+   * Blocks raised.
+   */
+  final LongAdder blocks = new LongAdder();
+
+  /**
+   * Finished matches by the turn they ended on.
+   */
+  final LongAdder[] matchLengths = adders(11);
+
+  /**
+   * Constructs empty metrics; the engine records to INSTANCE.
+   * Note: This constructor does not take any parameters.
+   */
+  private GameMetrics(){
+  }
+
+  /**
+   * Creates an array of counters.
+   * @param size int representing the number of counters
+   * @return LongAdder array of new counters
+   */
+  private static LongAdder[] adders(int size){
+    LongAdder[] adders = new LongAdder[size];
+    for (int i = 0; i < size; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server, if they are not registered yet, and starts recording.
+   * Note: This method does not take any parameters.
+   * @return GameMetrics of this JVM
+   */
+  public static synchronized GameMetrics install(){
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(INSTANCE, name);
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+    }
+    INSTANCE.setRecording(true);
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the metrics the engine records to.
+   * Note: This method does not take any parameters.
+   * @return GameMetrics to record to, or null while recording is off
+   */
+  static GameMetrics active(){
+    try {
+      return (GameMetrics) ACTIVE.invokeExact();
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the time to start measuring from, read only while recording.
+   * Note: This method does not take any parameters.
+   * @return long representing System.nanoTime, or 0 while recording is off
+   */
+  static long start(){
+    return active() != null ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records the time of a human turn.
+   * Note: This method does not return anything.
+   * @param start long returned by start when the turn began
+   */
+  static void humanTurn(long start){
+    GameMetrics metrics = active();
+    if (metrics != null && start != 0) {
+      metrics.humanTurns.record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records the time of a computer turn.
+   * Note: This method does not return anything.
+   * @param start long returned by start when the turn began
+   */
+  static void computerTurn(long start){
+    GameMetrics metrics = active();
+    if (metrics != null && start != 0) {
+      metrics.computerTurns.record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records the time spent waiting for a human command.
+   * Note: This method does not return anything.
+   * @param start long returned by start before the command was read
+   */
+  static void inputWait(long start){
+    GameMetrics metrics = active();
+    if (metrics != null && start != 0) {
+      metrics.inputWaits.record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records the time the computer spent choosing a unit's move.
+   * Note: This method does not return anything.
+   * @param start long returned by start before the decision
+   */
+  static void decision(long start){
+    GameMetrics metrics = active();
+    if (metrics != null && start != 0) {
+      metrics.decisions.record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records a finished match.
+   * Note: This method does not return anything.
+   * @param turn int representing the turn the match ended on, 10 if it went all 10 turns
+   */
+  static void matchEnded(int turn){
+    GameMetrics metrics = active();
+    if (metrics != null) {
+      metrics.matchLengths[Math.min(turn, 10)].increment();
+    }
+  }
+
+  /**
+   * Records a turn resolved by TurnEngine in one go: its time, and the attacks, dodges and blocks of its batch.
+   * Note: This method does not return anything.
+   * @param batch TurnBatch of the turn's moves
+   * @param state BattleState the turn was resolved on, holding the targets' evasion
+   * @param start long returned by start when the turn began
+   */
+  static void turnResolved(TurnBatch batch, BattleState state, long start){
+    GameMetrics metrics = active();
+    if (metrics == null || start == 0) {
+      return;
+    }
+    (batch.side == BattleState.HUMAN ? metrics.humanTurns : metrics.computerTurns).record(System.nanoTime() - start);
+    int targets = state.slot(0, 1 - batch.side, 0);
+    for (int i = 0; i < batch.size(); i++) {
+      if (batch.isBlock(i)) {
+        metrics.blocks.increment();
+        continue;
+      }
+      int strength = batch.getStrength(i).ordinal();
+      metrics.attacks[strength].increment();
+      metrics.damage[strength].add(batch.getAttack(i));
+      int evasion = Math.min(Math.max(state.evasion[targets + batch.getTarget(i)], 0), EVASIONS - 1);
+      metrics.incoming[evasion].increment();
+      if (batch.getDamage(i) == TurnBatch.DODGED) {
+        metrics.dodges[evasion].increment();
+      }
+    }
+  }
+
+  @Override
+  public boolean isRecording(){
+    return active() != null;
+  }
+
+  @Override
+  public void setRecording(boolean recording){
+    ACTIVE_SITE.setTarget(MethodHandles.constant(GameMetrics.class, recording ? this : null));
+    MutableCallSite.syncAll(new MutableCallSite[] {ACTIVE_SITE});
+  }
+
+  @Override
+  public void reset(){
+    this.humanTurns.reset();
+    this.computerTurns.reset();
+    this.inputWaits.reset();
+    this.decisions.reset();
+    for (LongAdder[] counters : new LongAdder[][] {this.attacks, this.damage, this.incoming, this.dodges,
+        this.matchLengths}) {
+      for (LongAdder counter : counters) {
+        counter.reset();
+      }
+    }
+    this.blocks.reset();
+  }
+
+  @Override
+  public Histogram.Summary getHumanTurnTime(){
+    return this.humanTurns.summary(MICROS);
+  }
+
+  @Override
+  public Histogram.Summary getComputerTurnTime(){
+    return this.computerTurns.summary(MICROS);
+  }
+
+  @Override
+  public Histogram.Summary getInputWaitTime(){
+    return this.inputWaits.summary(MICROS);
+  }
+
+  @Override
+  public Histogram.Summary getDecisionTime(){
+    return this.decisions.summary(MICROS);
+  }
+
+  @Override
+  public long[] getAttacksByMatchup(){
+    return sums(this.attacks);
+  }
+
+  @Override
+  public double[] getAverageDamageByMatchup(){
+    return ratios(sums(this.damage), sums(this.attacks));
+  }
+
+  @Override
+  public long[] getIncomingByEvasion(){
+    return sums(this.incoming);
+  }
+
+  @Override
+  public double[] getDodgeRateByEvasion(){
+    return ratios(sums(this.dodges), sums(this.incoming));
+  }
+
+  @Override
+  public long getBlocks(){
+    return this.blocks.sum();
+  }
+
+  @Override
+  public long[] getMatchLengths(){
+    return sums(this.matchLengths);
+  }
+
+  @Override
+  public long getMatches(){
+    return Arrays.stream(getMatchLengths()).sum();
+  }
+
+  /**
+   * Reads an array of counters.
+   * @param counters LongAdder array to read
+   * @return long array of their sums
+   */
+  private static long[] sums(LongAdder[] counters){
+    long[] sums = new long[counters.length];
+    for (int i = 0; i < sums.length; i++) {
+      sums[i] = counters[i].sum();
+    }
+    return sums;
+  }
+
+  /**
+   * Divides two arrays entry by entry.
+   * @param numerators long array of numerators
+   * @param denominators long array of denominators, aligned with numerators
+   * @return double array of the ratios, 0 where the denominator is 0
+   */
+  private static double[] ratios(long[] numerators, long[] denominators){
+    double[] ratios = new double[numerators.length];
+    for (int i = 0; i < ratios.length; i++) {
+      ratios[i] = denominators[i] == 0 ? 0 : (double) numerators[i] / denominators[i];
+    }
+    return ratios;
+  }
+
+  /**
+   * Returns the metrics as lines of text, for printing at the end of a run.
+   * Note: This method does not take any parameters.
+   * @return String of the report
+   */
+  public String report(){
+    StringBuilder report = new StringBuilder();
+    report.append("human turns (us): ").append(getHumanTurnTime()).append('\n');
+    report.append("computer turns (us): ").append(getComputerTurnTime()).append('\n');
+    report.append("input waits (us): ").append(getInputWaitTime()).append('\n');
+    report.append("computer decisions (us): ").append(getDecisionTime()).append('\n');
+    long[] attacks = getAttacksByMatchup();
+    double[] damage = getAverageDamageByMatchup();
+    report.append("attacks by matchup:");
+    for (Strength strength : Strength.values()) {
+      report.append(String.format(Locale.ROOT, " %s %d (average damage %.1f)", strength.label(),
+          attacks[strength.ordinal()], damage[strength.ordinal()]));
+    }
+    report.append('\n');
+    long[] incoming = getIncomingByEvasion();
+    double[] rates = getDodgeRateByEvasion();
+    report.append("dodge rate by evasion:");
+    for (int e = 0; e < incoming.length; e++) {
+      if (incoming[e] > 0) {
+        report.append(String.format(Locale.ROOT, " %d%s %.3f", e, e == EVASIONS - 1 ? "+" : "", rates[e]));
+      }
+    }
+    report.append('\n');
+    report.append("blocks: ").append(getBlocks()).append('\n');
+    report.append("match lengths: ").append(Arrays.toString(getMatchLengths()));
+    return report.toString();
+  }
+}
@@ -0,0 +1,105 @@
+package rpg;
+
+/**
+ * Management interface of GameMetrics, registered as rpg:type=GameMetrics in the platform MBean server.
+ * Times are in microseconds. Arrays by matchup follow Strength (strong, same, weak).
+ */
+public interface GameMetricsMXBean {
+
+  /**
+   * Returns whether the engine is recording metrics.
+   * Note: This method does not take any parameters.
+   * @return boolean true while recording
+   */
+  boolean isRecording();
+
+  /**
+   * Starts or stops recording metrics; the values recorded so far are kept.
+   * Note: This method does not return anything.
+   * @param recording boolean true to record
+   */
+  void setRecording(boolean recording);
+
+  /**
+   * Forgets every value recorded so far.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  void reset();
+
+  /**
+   * Returns the time of human turns, including the time spent waiting for input.
+   * Note: This method does not take any parameters.
+   * @return Histogram.Summary in microseconds
+   */
+  Histogram.Summary getHumanTurnTime();
+
+  /**
+   * Returns the time of computer turns.
+   * Note: This method does not take any parameters.
+   * @return Histogram.Summary in microseconds
+   */
+  Histogram.Summary getComputerTurnTime();
+
+  /**
+   * Returns the time spent waiting for each command of the human player.
+   * Note: This method does not take any parameters.
+   * @return Histogram.Summary in microseconds
+   */
+  Histogram.Summary getInputWaitTime();
+
+  /**
+   * Returns the time the computer spends choosing the move of one unit.
+   * Note: This method does not take any parameters.
+   * @return Histogram.Summary in microseconds
+   */
+  Histogram.Summary getDecisionTime();
+
+  /**
+   * Returns the number of attacks by matchup.
+   * Note: This method does not take any parameters.
+   * @return long array indexed by Strength ordinal
+   */
+  long[] getAttacksByMatchup();
+
+  /**
+   * Returns the average damage of an attack by matchup, before the target's defense and dodge.
+   * Note: This method does not take any parameters.
+   * @return double array indexed by Strength ordinal
+   */
+  double[] getAverageDamageByMatchup();
+
+  /**
+   * Returns the number of hits taken by units of every evasion, the last entry counting every evasion from it up.
+   * Note: This method does not take any parameters.
+   * @return long array indexed by evasion
+   */
+  long[] getIncomingByEvasion();
+
+  /**
+   * Returns the share of hits dodged by units of every evasion.
+   * Note: This method does not take any parameters.
+   * @return double array indexed by evasion, like getIncomingByEvasion
+   */
+  double[] getDodgeRateByEvasion();
+
+  /**
+   * Returns the number of blocks raised by units of either side.
+   * Note: This method does not take any parameters.
+   * @return long representing the blocks
+   */
+  long getBlocks();
+
+  /**
+   * Returns the number of finished matches by the turn they ended on, 10 meaning all 10 turns.
+   * Note: This method does not take any parameters.
+   * @return long array of 11 counts
+   */
+  long[] getMatchLengths();
+
+  /**
+   * Returns the number of finished matches.
+   * Note: This method does not take any parameters.
+   * @return long representing the matches
+   */
+  long getMatches();
+}
@@ -0,0 +1,268 @@
+package rpg;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many interactive games at once over local TCP, one thread per session.
+ * The protocol is the console game itself: the server sends the same lines the console shows, including the prompts,
+ * and reads the player's moves and targets as lines, one or more commands per line (see LineCommands).
+ * The connection is closed when the game is over. Every session has its own GameControl, players and generator.
+ * Sessions run on virtual threads where the JDK has them (Java 21 and later) and on a cached thread pool otherwise.
+ */
+public class GameServer implements AutoCloseable {
+
+  /**
+   * Number of connections the operating system queues while the server is accepting.
+   */
+  static final int BACKLOG = 4096;
+
+  /**
+   * The listening socket, bound to the loopback address.
+   */
+  private final ServerSocket serverSocket;
+
+  /**
+   * Runs one task per session.
+   */
+  private final ExecutorService sessions = newSessionExecutor();
+
+  /**
+   * True to have every session play against the search based computer AI.
+   */
+  private final boolean search;
+
+  /**
+   * True to send only the units whose HP changed in every status after a session's first, see StatusRenderer.
+   */
+  private final boolean diffStatus;
+
+  /**
+   * Number of sessions currently playing.
+   */
+  private final AtomicInteger active = new AtomicInteger();
+
+  /**
+   * Highest number of sessions that were playing at the same time.
+   */
+  private final AtomicInteger peak = new AtomicInteger();
+
+  /**
+   * Number of sessions that ended, with or without finishing their game.
+   */
+  private final AtomicLong completed = new AtomicLong();
+
+  /**
+   * Thread accepting connections, set by start.
+   */
+  private Thread acceptor;
+
+  /**
+   * Opens a server on the loopback address.
+   * @param port int representing the TCP port, or 0 to pick a free one
+   * @param search boolean true to play every session against the search based computer AI
+   * @throws IOException if the port cannot be bound
+   */
+  public GameServer(int port, boolean search) throws IOException {
+    this(port, search, false);
+  }
+
+  /**
+   * Opens a server on the loopback address, optionally sending each status as a diff against the last one.
+   * @param port int representing the TCP port, or 0 to pick a free one
+   * @param search boolean true to play every session against the search based computer AI
+   * @param diffStatus boolean true to send only the units whose HP changed since the session's last status
+   * @throws IOException if the port cannot be bound
+   */
+  public GameServer(int port, boolean search, boolean diffStatus) throws IOException {
+    this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+    this.search = search;
+    this.diffStatus = diffStatus;
+  }
+
+  /**
+   * Returns an executor that runs every task on a new virtual thread if the JDK supports it,
+   * and a cached pool of platform threads otherwise.
+   * Note: This method does not take any parameters.
+   * @return ExecutorService for one task per session
+   */
+  static ExecutorService newSessionExecutor(){
+    try {
+      // looked up reflectively so the code still compiles and runs on JDKs without virtual threads
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      return Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(null, task, "rpg-session", 256 * 1024);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Determines if sessions run on virtual threads.
+   * Note: This method does not take any parameters.
+   * @return boolean true if the JDK has virtual threads
+   */
+  static boolean hasVirtualThreads(){
+    try {
+      Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Starts accepting connections on a background thread.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  public void start(){
+    this.acceptor = new Thread(this::acceptLoop, "rpg-acceptor");
+    this.acceptor.setDaemon(true);
+    this.acceptor.start();
+  }
+
+  /**
+   * Accepts connections until the server is closed and hands each one to its own session.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void acceptLoop(){
+    while (!this.serverSocket.isClosed()) {
+      Socket socket;
+      try {
+        socket = this.serverSocket.accept();
+      } catch (SocketException e) {
+        return; // closed
+      } catch (IOException e) {
+        continue;
+      }
+      this.sessions.execute(() -> serve(socket));
+    }
+  }
+
+  /**
+   * Plays one interactive game over a connection and closes it.
+   * Note: This method does not return anything.
+   * @param socket Socket of the player
+   */
+  private void serve(Socket socket){
+    int now = this.active.incrementAndGet();
+    this.peak.accumulateAndGet(now, Math::max);
+    try (socket) {
+      socket.setTcpNoDelay(true);
+      GameControl game = new GameControl();
+      if (this.search) {
+        game.computer.setPlanner(new SearchPlanner());
+      }
+      if (this.diffStatus) {
+        game.setStatusRenderer(new StatusRenderer(true));
+      }
+      game.setEvents(new ConsoleEvents(socket.getOutputStream()));
+      game.human.setCommands(new LineCommands(socket.getInputStream()));
+      game.playInteractive();
+    } catch (IOException | UncheckedIOException | NoSuchElementException e) {
+      // the player disconnected; nothing to clean up beyond the socket
+    } finally {
+      this.active.decrementAndGet();
+      this.completed.incrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the port the server listens on.
+   * Note: This method does not take any parameters.
+   * @return int representing the TCP port
+   */
+  public int getPort(){
+    return this.serverSocket.getLocalPort();
+  }
+
+  /**
+   * Returns the number of sessions currently playing.
+   * Note: This method does not take any parameters.
+   * @return int representing the active sessions
+   */
+  public int getActiveSessions(){
+    return this.active.get();
+  }
+
+  /**
+   * Returns the highest number of sessions that were playing at the same time.
+   * Note: This method does not take any parameters.
+   * @return int representing the peak concurrent sessions
+   */
+  public int getPeakSessions(){
+    return this.peak.get();
+  }
+
+  /**
+   * Returns the number of sessions that have ended.
+   * Note: This method does not take any parameters.
+   * @return long representing the completed sessions
+   */
+  public long getCompletedSessions(){
+    return this.completed.get();
+  }
+
+  /**
+   * Stops accepting connections and waits briefly for the running sessions.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  @Override
+  public void close(){
+    try {
+      this.serverSocket.close();
+    } catch (IOException e) {
+      // already closed
+    }
+    this.sessions.shutdown();
+    try {
+      this.sessions.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs a game server until the process is stopped.
+   * @param args optional port, default 4242, "--search" to play against the search based computer AI,
+   *             "--diff-status" to send only the units whose HP changed in every status after the first,
+   *             and "--metrics" to record GameMetrics, exposed through JMX
+   * @throws IOException if the port cannot be bound
+   * @throws InterruptedException if interrupted while serving
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int port = 4242;
+    boolean search = false;
+    boolean diffStatus = false;
+    for (String arg : args) {
+      if ("--search".equals(arg)) {
+        search = true;
+      } else if ("--diff-status".equals(arg)) {
+        diffStatus = true;
+      } else if ("--metrics".equals(arg)) {
+        GameMetrics.install();
+      } else {
+        port = Integer.parseInt(arg);
+      }
+    }
+
+    GameServer server = new GameServer(port, search, diffStatus);
+    server.start();
+    System.out.println("Serving games on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort()
+        + (hasVirtualThreads() ? " with virtual threads" : " with a thread pool (no virtual threads on this JDK)"));
+    server.acceptor.join();
+  }
+}
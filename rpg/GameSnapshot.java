@@ -0,0 +1,176 @@
+package rpg;
+import java.nio.ByteBuffer;
+
+/**
+ * Saves a game between turns as a compact binary snapshot and restores it as an identical GameControl:
+ * the same units, HP, temporary defense, evasion, turn and generator state, so the restored game plays on exactly
+ * as the original would have. A game with three units per side takes 53 bytes.
+ * Where the game publishes events and reads commands is not saved; a restored game uses the defaults of a new one.
+ *
+ * Layout of a snapshot (big-endian):
+ *   0  byte VERSION
+ *   1  byte flags, see SEARCH
+ *   2  long seed of the match
+ *  10  long state of the match generator
+ *  18  byte turn
+ *  19  short number of human units
+ *  21  short number of computer units
+ *  23  UNIT_SIZE bytes per unit, human units then computer units, in turn order:
+ *      roster byte (see MatchRecorder.rosterByte), short HP, byte temporary defense, byte evasion
+ */
+public final class GameSnapshot {
+
+  /**
+   * Format version written as the first byte; restore rejects any other.
+   */
+  static final byte VERSION = 1;
+
+  /**
+   * Flag: the computer side plays with the search planner.
+   */
+  static final int SEARCH = 1;
+
+  /**
+   * Size of the fixed part of a snapshot in bytes.
+   */
+  static final int HEADER_SIZE = 23;
+
+  /**
+   * Size of one unit in a snapshot in bytes.
+   */
+  static final int UNIT_SIZE = 5;
+
+  /**
+   * Not instantiable; all methods are static.
+   */
+  private GameSnapshot(){
+  }
+
+  /**
+   * Returns the size of a game's snapshot.
+   * @param game GameControl to save
+   * @return int representing the number of bytes write puts
+   */
+  public static int size(GameControl game){
+    return HEADER_SIZE + UNIT_SIZE * (game.human.getRoster().size() + game.computer.getRoster().size());
+  }
+
+  /**
+   * Saves a game, between turns, into a new array.
+   * @param game GameControl to save
+   * @return byte array holding the snapshot
+   */
+  public static byte[] write(GameControl game){
+    byte[] snapshot = new byte[size(game)];
+    write(game, ByteBuffer.wrap(snapshot));
+    return snapshot;
+  }
+
+  /**
+   * Saves a game, between turns, at the buffer's position and advances the position past the snapshot.
+   * Every unit must have a known job, the game must use the standard balance rules,
+   * and the computer must play its fixed turn or the search planner.
+   * Note: This method does not return anything.
+   * @param game GameControl to save
+   * @param out ByteBuffer with at least size(game) bytes remaining
+   */
+  public static void write(GameControl game, ByteBuffer out){
+    if (!game.getRules().isStandard()) {
+      throw new IllegalArgumentException("Only games under the standard balance rules can be saved");
+    }
+    if (game.computer.getPolicy() != null && game.computer.getPlanner() == null) {
+      throw new IllegalArgumentException("Games against a computer policy cannot be saved");
+    }
+    Roster human = game.human.getRoster();
+    Roster computer = game.computer.getRoster();
+    out.put(VERSION);
+    out.put((byte) (game.computer.getPlanner() != null ? SEARCH : 0));
+    out.putLong(game.random.getSeed());
+    out.putLong(game.random.getState());
+    out.put((byte) game.turn);
+    out.putShort((short) human.size());
+    out.putShort((short) computer.size());
+    writeUnits(human, out);
+    writeUnits(computer, out);
+  }
+
+  /**
+   * Saves the units of one side.
+   * Note: This method does not return anything.
+   * @param roster Roster of the side
+   * @param out ByteBuffer to write to
+   */
+  private static void writeUnits(Roster roster, ByteBuffer out){
+    for (Unit unit : roster.units) {
+      if (unit.getJobType() == null) {
+        throw new IllegalArgumentException("Cannot save a unit without a known job: " + unit.getJob());
+      }
+      out.put(MatchRecorder.rosterByte(unit));
+      out.putShort((short) unit.getHp());
+      out.put((byte) unit.getTemporaryDefense());
+      out.put((byte) unit.getEvasion());
+    }
+  }
+
+  /**
+   * Restores a game saved by write.
+   * @param snapshot byte array holding the snapshot
+   * @return GameControl identical to the saved game, at the saved turn
+   */
+  public static GameControl read(byte[] snapshot){
+    return read(ByteBuffer.wrap(snapshot));
+  }
+
+  /**
+   * Restores a game saved by write from the buffer's position and advances the position past the snapshot.
+   * @param in ByteBuffer holding the snapshot
+   * @return GameControl identical to the saved game, at the saved turn
+   */
+  public static GameControl read(ByteBuffer in){
+    byte version = in.get();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported snapshot version " + version);
+    }
+    int flags = in.get();
+    MatchRandom random = new MatchRandom(in.getLong());
+    long state = in.getLong();
+    int turn = in.get();
+    int humanSize = Roster.checkSize(in.getShort() & 0xffff);
+    int computerSize = Roster.checkSize(in.getShort() & 0xffff);
+
+    Unit[] humanUnits = readUnits(HumanPlayer.NAMES, humanSize, random, in);
+    Unit[] computerUnits = readUnits(ComputerPlayer.NAMES, computerSize, random, in);
+    random.setState(state);
+    GameControl game = new GameControl(random, new HumanPlayer(random, humanUnits),
+        new ComputerPlayer(random, computerUnits));
+    if ((flags & SEARCH) != 0) {
+      game.computer.setPlanner(new SearchPlanner());
+    }
+    game.turn = turn;
+    return game;
+  }
+
+  /**
+   * Restores the units of one side.
+   * @param names String array of the side's three classic names
+   * @param size int representing the number of units
+   * @param random MatchRandom the units roll with
+   * @param in ByteBuffer to read from
+   * @return Unit array in turn order
+   */
+  private static Unit[] readUnits(String[] names, int size, MatchRandom random, ByteBuffer in){
+    Unit[] units = new Unit[size];
+    for (int i = 0; i < size; i++) {
+      int rosterByte = in.get() & 0xff;
+      if ((rosterByte >> 4) >= Job.VALUES.length) {
+        throw new IllegalArgumentException("Unknown job in snapshot: " + (rosterByte >> 4));
+      }
+      Unit unit = new Unit(Roster.name(names, i), rosterByte & 15, Job.VALUES[rosterByte >> 4], random);
+      unit.setHp(in.getShort());
+      unit.setTemporaryDefense(in.get());
+      unit.setEvasion(in.get());
+      units[i] = unit;
+    }
+    return units;
+  }
+}
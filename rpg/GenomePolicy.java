@@ -0,0 +1,193 @@
+package rpg;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A move policy whose choices are driven by a genome of weights, so GenomeTrainer can evolve it.
+ * It generalizes the if-chains of ComputerPlayer.strategy into scores:
+ * every alive target is scored by the matchup, its HP, the damage the hit would deal and whether the hit knocks it out,
+ * and the best scoring target is attacked with the matchup strength, earlier targets winning ties.
+ * Before attacking, the unit blocks instead if its side has blocks left and the block score is above 0.
+ * The side may use a share of its block allowance (alive units at the start of the turn minus one),
+ * so it always attacks at least once, like strategy. Works for either side and holds no state.
+ */
+public final class GenomePolicy implements MovePolicy {
+
+  /**
+   * Gene: score of a target the attacker is strong against.
+   */
+  public static final int STRONG = 0;
+
+  /**
+   * Gene: score of a target of the same job.
+   */
+  public static final int SAME = 1;
+
+  /**
+   * Gene: score of a target the attacker is weak against.
+   */
+  public static final int WEAK = 2;
+
+  /**
+   * Gene: score per 100 HP of the target; above 0 prefers the healthiest target, below 0 the weakest.
+   */
+  public static final int TARGET_HP = 3;
+
+  /**
+   * Gene: score per 100 damage the hit would deal if it is not dodged.
+   */
+  public static final int DAMAGE = 4;
+
+  /**
+   * Gene: score of a hit that would knock the target out.
+   */
+  public static final int KNOCKOUT = 5;
+
+  /**
+   * Gene: block score of every unit.
+   */
+  public static final int BLOCK_BIAS = 6;
+
+  /**
+   * Gene: block score added when the best target is one the unit is weak against.
+   */
+  public static final int BLOCK_WEAK = 7;
+
+  /**
+   * Gene: block score per 100 HP of the unit itself.
+   */
+  public static final int BLOCK_HP = 8;
+
+  /**
+   * Gene: share of the block allowance the side may use, from 0 to 1.
+   */
+  public static final int ALLOWANCE = 9;
+
+  /**
+   * Number of genes.
+   */
+  public static final int GENES = 10;
+
+  /**
+   * Names of the genes, indexed like the genome, as written in checkpoints.
+   */
+  static final String[] NAMES = {
+    "strong", "same", "weak", "targetHp", "damage", "knockout", "block", "blockWeak", "blockHp", "allowance"
+  };
+
+  /**
+   * A genome close to ComputerPlayer.strategy: the matchup decides first, healthier targets win within it,
+   * and units block when weak against their target while the whole allowance lasts.
+   */
+  public static final GenomePolicy STRATEGY = new GenomePolicy(new double[] {
+    4, 2, 0, 1, 0, 0, -1, 2, 0, 1
+  });
+
+  /**
+   * The genome.
+   */
+  private final double[] genes;
+
+  /**
+   * Constructs a policy from a genome.
+   * @param genes double array of GENES weights, see the gene constants; the policy keeps a copy
+   */
+  public GenomePolicy(double[] genes){
+    if (genes.length != GENES) {
+      throw new IllegalArgumentException("A genome has " + GENES + " genes: " + genes.length);
+    }
+    this.genes = genes.clone();
+  }
+
+  /**
+   * Returns a copy of the genome.
+   * Note: This method does not take any parameters.
+   * @return double array of the genes
+   */
+  public double[] getGenes(){
+    return this.genes.clone();
+  }
+
+  /**
+   * Returns a gene.
+   * @param gene int representing one of the gene constants
+   * @return double representing the gene's weight
+   */
+  public double gene(int gene){
+    return this.genes[gene];
+  }
+
+  @Override
+  public int choose(BattleState state, int battle, int side, int unit, int blocksUsed, int blockAllowance){
+    int attacker = state.slot(battle, side, unit);
+    if (state.hp[attacker] <= 0) {
+      return SKIP;
+    }
+
+    int first = state.slot(battle, 1 - side, 0);
+    int best = -1;
+    double bestScore = 0;
+    for (int t = first; t < first + state.unitsPerSide; t++) {
+      if (state.hp[t] <= 0) {
+        continue;
+      }
+      Strength strength = state.strength(attacker, t);
+      int damage = state.hitDamage(attacker, t, strength);
+      double score = this.genes[strength.ordinal()] + this.genes[TARGET_HP] * state.hp[t] / 100.0
+          + this.genes[DAMAGE] * damage / 100.0 + (damage >= state.hp[t] ? this.genes[KNOCKOUT] : 0);
+      if (best < 0 || score > bestScore) {
+        best = t;
+        bestScore = score;
+      }
+    }
+    if (best < 0) {
+      return END_TURN;
+    }
+
+    Strength strength = state.strength(attacker, best);
+    int blocks = (int) Math.round(Math.max(0, Math.min(1, this.genes[ALLOWANCE])) * blockAllowance);
+    if (blocksUsed < blocks) {
+      double blockScore = this.genes[BLOCK_BIAS] + (strength == Strength.WEAK ? this.genes[BLOCK_WEAK] : 0)
+          + this.genes[BLOCK_HP] * state.hp[attacker] / 100.0;
+      if (blockScore > 0) {
+        return BLOCK;
+      }
+    }
+    return MovePolicy.attack(best - first, strength);
+  }
+
+  /**
+   * Returns the genome as gene=weight pairs.
+   * Note: This method does not take any parameters.
+   * @return String describing the genome
+   */
+  @Override
+  public String toString(){
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < GENES; i++) {
+      text.append(i == 0 ? "" : " ").append(NAMES[i]).append('=')
+          .append(String.format(Locale.ROOT, "%.3f", this.genes[i]));
+    }
+    return text.toString();
+  }
+
+  /**
+   * Determines if another policy has the same genome.
+   * @param other Object to compare with
+   * @return boolean true if other is a GenomePolicy with equal genes
+   */
+  @Override
+  public boolean equals(Object other){
+    return other instanceof GenomePolicy && Arrays.equals(this.genes, ((GenomePolicy) other).genes);
+  }
+
+  /**
+   * Returns a hash of the genome.
+   * Note: This method does not take any parameters.
+   * @return int hash code
+   */
+  @Override
+  public int hashCode(){
+    return Arrays.hashCode(this.genes);
+  }
+}
@@ -0,0 +1,479 @@
+package rpg;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evolves GenomePolicy weights for the computer side by self-play. Every generation, each genome of the population
+ * plays the computer side against a set of opponents on the human side: the scripted human policy (GreedyPolicy)
+ * and the best genomes of recent generations (the hall of fame). Its fitness is its average score, a win counting 1
+ * and a tie 1/2. All genomes of a generation play the same seeds, and every generation plays new ones.
+ * The next generation keeps the best genomes and fills up with children of tournament-selected parents,
+ * made by uniform crossover and Gaussian mutation. Genomes are evaluated in parallel on the common fork/join pool;
+ * memory stays bounded by the population and the hall of fame, since matches are tallied and not kept.
+ * After every generation, the best genomes are written to a checkpoint file that a later run can resume from
+ * and GameControl can play against (--genome).
+ */
+public class GenomeTrainer {
+
+  /**
+   * Number of genomes per task below which a task evaluates its genomes instead of splitting further.
+   */
+  static final int SPLIT_THRESHOLD = 1;
+
+  /**
+   * Number of genomes copied unchanged into the next generation.
+   */
+  static final int ELITES = 2;
+
+  /**
+   * Number of genomes drawn for each tournament selection.
+   */
+  static final int TOURNAMENT = 3;
+
+  /**
+   * Chance that a child's gene is mutated.
+   */
+  static final double MUTATION_RATE = 0.25;
+
+  /**
+   * Number of best genomes written to every checkpoint.
+   */
+  static final int CHECKPOINT_SIZE = 8;
+
+  /**
+   * The current population.
+   */
+  private GenomePolicy[] population;
+
+  /**
+   * Fitness of every genome of the current population, filled by evaluate.
+   */
+  private double[] fitness;
+
+  /**
+   * The best genomes of recent generations, oldest first; they play the human side against the population.
+   */
+  private final ArrayDeque<GenomePolicy> hallOfFame = new ArrayDeque<>();
+
+  /**
+   * Largest size of the hall of fame.
+   */
+  private final int hallOfFameSize;
+
+  /**
+   * Number of matches every genome plays against every opponent in a generation.
+   */
+  private final int matches;
+
+  /**
+   * Generator of the initial population, the selections, crossovers, mutations and match seeds.
+   */
+  private final SplittableRandom random;
+
+  /**
+   * Number of generations evaluated so far.
+   */
+  private int generation;
+
+  /**
+   * Constructs a trainer with a population made of the given genomes, mutated copies of them and random genomes.
+   * @param size int representing the number of genomes per generation, at least ELITES + 1
+   * @param matches int representing the matches every genome plays against every opponent per generation
+   * @param hallOfFameSize int representing the number of earlier best genomes kept as opponents
+   * @param seed long seeding the trainer's generator
+   * @param start List of GenomePolicy to start from, such as GenomePolicy.STRATEGY or a loaded checkpoint
+   */
+  public GenomeTrainer(int size, int matches, int hallOfFameSize, long seed, List<GenomePolicy> start){
+    if (size <= ELITES) {
+      throw new IllegalArgumentException("A population needs more than " + ELITES + " genomes: " + size);
+    }
+    this.matches = matches;
+    this.hallOfFameSize = hallOfFameSize;
+    this.random = new SplittableRandom(seed);
+    this.population = new GenomePolicy[size];
+    for (int i = 0; i < size; i++) {
+      if (i < start.size()) {
+        this.population[i] = start.get(i);
+      } else if (!start.isEmpty() && i < size / 2) {
+        this.population[i] = mutate(start.get(i % start.size()).getGenes(), 1.0, 1.0);
+      } else {
+        double[] genes = new double[GenomePolicy.GENES];
+        for (int g = 0; g < genes.length; g++) {
+          genes[g] = g == GenomePolicy.ALLOWANCE ? this.random.nextDouble() : this.random.nextDouble(-4, 4);
+        }
+        this.population[i] = new GenomePolicy(genes);
+      }
+    }
+  }
+
+  /**
+   * Evaluates the genomes from one to another of the population against the same opponents and seeds.
+   */
+  private static final class Evaluation extends RecursiveAction {
+
+    /**
+     * Version of the serialized form, which fork/join tasks inherit but never use.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The genomes being evaluated.
+     */
+    private final transient GenomePolicy[] genomes;
+
+    /**
+     * Where the fitness of every genome is stored, aligned with genomes.
+     */
+    private final double[] fitness;
+
+    /**
+     * The human side policies every genome plays against.
+     */
+    private final transient MovePolicy[] opponents;
+
+    /**
+     * Seed of the first match against every opponent.
+     */
+    private final long firstSeed;
+
+    /**
+     * Number of matches against every opponent.
+     */
+    private final int matches;
+
+    /**
+     * Position of the first genome this task evaluates.
+     */
+    private final int from;
+
+    /**
+     * Position after the last genome this task evaluates.
+     */
+    private final int to;
+
+    /**
+     * Constructs an evaluation task.
+     * @param genomes GenomePolicy array of the population
+     * @param fitness double array to store the fitness in
+     * @param opponents MovePolicy array of the human side opponents
+     * @param firstSeed long representing the seed of the first match against every opponent
+     * @param matches int representing the number of matches against every opponent
+     * @param from int representing the first genome to evaluate
+     * @param to int representing the position after the last genome to evaluate
+     */
+    Evaluation(GenomePolicy[] genomes, double[] fitness, MovePolicy[] opponents, long firstSeed, int matches,
+        int from, int to){
+      this.genomes = genomes;
+      this.fitness = fitness;
+      this.opponents = opponents;
+      this.firstSeed = firstSeed;
+      this.matches = matches;
+      this.from = from;
+      this.to = to;
+    }
+
+    /**
+     * Evaluates this task's genomes, splitting the range in half until it is small enough.
+     * Note: This method does not take any parameters and does not return anything.
+     */
+    @Override
+    protected void compute(){
+      if (this.to - this.from <= SPLIT_THRESHOLD) {
+        TurnEngine match = new TurnEngine(3);
+        for (int i = this.from; i < this.to; i++) {
+          this.fitness[i] = score(match, this.genomes[i], this.opponents, this.firstSeed, this.matches);
+        }
+        return;
+      }
+      int middle = (this.from + this.to) >>> 1;
+      invokeAll(new Evaluation(this.genomes, this.fitness, this.opponents, this.firstSeed, this.matches,
+              this.from, middle),
+          new Evaluation(this.genomes, this.fitness, this.opponents, this.firstSeed, this.matches, middle, this.to));
+    }
+  }
+
+  /**
+   * Plays a computer policy against every opponent on the same seeds and returns its average score.
+   * @param match TurnEngine to play with
+   * @param policy MovePolicy of the computer side
+   * @param opponents MovePolicy array of the human side opponents
+   * @param firstSeed long representing the seed of the first match against every opponent
+   * @param matches int representing the number of matches against every opponent
+   * @return double representing the computer's wins plus half its ties, divided by the matches played
+   */
+  static double score(TurnEngine match, MovePolicy policy, MovePolicy[] opponents, long firstSeed, int matches){
+    double points = 0;
+    for (MovePolicy opponent : opponents) {
+      for (int m = 0; m < matches; m++) {
+        String winner = match.play(firstSeed + m, BalanceRules.STANDARD, opponent, policy);
+        points += "computer".equals(winner) ? 1 : "tie".equals(winner) ? 0.5 : 0;
+      }
+    }
+    return points / ((double) matches * opponents.length);
+  }
+
+  /**
+   * Evaluates the current population, updates the hall of fame and breeds the next generation.
+   * @return GenomePolicy array of the evaluated population, best first, aligned with getFitness
+   */
+  public GenomePolicy[] step(){
+    MovePolicy[] opponents = new MovePolicy[1 + this.hallOfFame.size()];
+    opponents[0] = GreedyPolicy.INSTANCE;
+    int o = 1;
+    for (GenomePolicy champion : this.hallOfFame) {
+      opponents[o++] = champion;
+    }
+
+    this.fitness = new double[this.population.length];
+    long firstSeed = this.random.nextLong();
+    ForkJoinPool.commonPool().invoke(new Evaluation(this.population, this.fitness, opponents, firstSeed,
+        this.matches, 0, this.population.length));
+    sortByFitness();
+    this.generation++;
+
+    GenomePolicy best = this.population[0];
+    if (!this.hallOfFame.contains(best)) {
+      this.hallOfFame.addLast(best);
+      if (this.hallOfFame.size() > this.hallOfFameSize) {
+        this.hallOfFame.removeFirst();
+      }
+    }
+
+    GenomePolicy[] evaluated = this.population.clone();
+    breed();
+    return evaluated;
+  }
+
+  /**
+   * Sorts the population and its fitness from the best genome to the worst.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void sortByFitness(){
+    Integer[] order = new Integer[this.population.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(this.fitness[b], this.fitness[a]));
+    GenomePolicy[] population = new GenomePolicy[order.length];
+    double[] fitness = new double[order.length];
+    for (int i = 0; i < order.length; i++) {
+      population[i] = this.population[order[i]];
+      fitness[i] = this.fitness[order[i]];
+    }
+    this.population = population;
+    this.fitness = fitness;
+  }
+
+  /**
+   * Replaces the sorted population with the next generation.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void breed(){
+    GenomePolicy[] next = new GenomePolicy[this.population.length];
+    System.arraycopy(this.population, 0, next, 0, ELITES);
+    // mutations shrink as the run goes on, from about 1 to a floor of 0.1
+    double sigma = Math.max(0.1, 1.0 / Math.sqrt(this.generation));
+    for (int i = ELITES; i < next.length; i++) {
+      double[] mother = select().getGenes();
+      double[] father = select().getGenes();
+      for (int g = 0; g < mother.length; g++) {
+        if (this.random.nextBoolean()) {
+          mother[g] = father[g];
+        }
+      }
+      next[i] = mutate(mother, sigma, MUTATION_RATE);
+    }
+    this.population = next;
+  }
+
+  /**
+   * Picks a parent: the fittest of TOURNAMENT genomes drawn at random from the sorted population.
+   * Note: This method does not take any parameters.
+   * @return GenomePolicy of the parent
+   */
+  private GenomePolicy select(){
+    int best = this.population.length;
+    for (int t = 0; t < TOURNAMENT; t++) {
+      best = Math.min(best, this.random.nextInt(this.population.length));
+    }
+    return this.population[best];
+  }
+
+  /**
+   * Mutates genes in place and wraps them in a policy. The allowance gene stays between 0 and 1.
+   * @param genes double array of the genes to mutate
+   * @param sigma double representing the standard deviation of a mutation
+   * @param rate double representing the chance that a gene is mutated
+   * @return GenomePolicy of the mutated genes
+   */
+  private GenomePolicy mutate(double[] genes, double sigma, double rate){
+    for (int g = 0; g < genes.length; g++) {
+      if (this.random.nextDouble() < rate) {
+        double scale = g == GenomePolicy.ALLOWANCE ? 0.25 : 1.0;
+        genes[g] += this.random.nextGaussian() * sigma * scale;
+      }
+    }
+    genes[GenomePolicy.ALLOWANCE] = Math.max(0, Math.min(1, genes[GenomePolicy.ALLOWANCE]));
+    return new GenomePolicy(genes);
+  }
+
+  /**
+   * Returns the fitness of the last evaluated population, best first.
+   * Note: This method does not take any parameters.
+   * @return double array of the fitness values
+   */
+  public double[] getFitness(){
+    return this.fitness.clone();
+  }
+
+  /**
+   * Returns the number of generations evaluated so far.
+   * Note: This method does not take any parameters.
+   * @return generation
+   */
+  public int getGeneration(){
+    return this.generation;
+  }
+
+  /**
+   * Writes the best genomes to a checkpoint, replacing the file only once it is completely written.
+   * Note: This method does not return anything.
+   * @param file Path of the checkpoint
+   * @param genomes GenomePolicy array, best first
+   * @param fitness double array of their fitness, aligned with genomes
+   * @param comment String written as the first comment line
+   */
+  public static void save(Path file, GenomePolicy[] genomes, double[] fitness, String comment){
+    Path directory = file.toAbsolutePath().getParent();
+    try {
+      Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      try (BufferedWriter out = Files.newBufferedWriter(temporary)) {
+        out.write("# " + comment);
+        out.newLine();
+        out.write("# fitness " + String.join(" ", GenomePolicy.NAMES));
+        out.newLine();
+        for (int i = 0; i < Math.min(CHECKPOINT_SIZE, genomes.length); i++) {
+          StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%.6f", fitness[i]));
+          for (double gene : genomes[i].getGenes()) {
+            line.append(' ').append(gene);
+          }
+          out.write(line.toString());
+          out.newLine();
+        }
+      }
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the genomes of a checkpoint written by save.
+   * @param file Path of the checkpoint
+   * @return List of GenomePolicy, best first
+   */
+  public static List<GenomePolicy> load(Path file){
+    List<GenomePolicy> genomes = new ArrayList<>();
+    try {
+      for (String line : Files.readAllLines(file)) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] fields = line.split("\\s+");
+        if (fields.length != GenomePolicy.GENES + 1) {
+          throw new IllegalArgumentException("Expected a fitness and " + GenomePolicy.GENES + " genes: " + line);
+        }
+        double[] genes = new double[GenomePolicy.GENES];
+        for (int g = 0; g < genes.length; g++) {
+          genes[g] = Double.parseDouble(fields[g + 1]);
+        }
+        genomes.add(new GenomePolicy(genes));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (genomes.isEmpty()) {
+      throw new IllegalArgumentException("No genomes in " + file);
+    }
+    return genomes;
+  }
+
+  /**
+   * Trains genomes and prints the progress of every generation, then compares the best genome with the built-in
+   * computer turns against the scripted human on seeds the training never played.
+   * @param args "--population" followed by the genomes per generation (default 48), "--generations" followed by
+   *             the number of generations (default 40), "--matches" followed by the matches per genome and opponent
+   *             (default 2000), "--hall-of-fame" followed by the number of earlier best genomes kept as opponents
+   *             (default 4), "--seed" followed by the trainer's seed (default 1), "--checkpoint" followed by the file
+   *             to write the best genomes to (default genomes.txt), and "--resume" to start from that file
+   */
+  public static void main(String[] args){
+    int size = 48;
+    int generations = 40;
+    int matches = 2000;
+    int hallOfFame = 4;
+    long seed = 1;
+    Path checkpoint = Path.of("genomes.txt");
+    boolean resume = false;
+    for (int i = 0; i < args.length; i++) {
+      if ("--resume".equals(args[i])) {
+        resume = true;
+      } else if (i + 1 < args.length) {
+        String value = args[++i];
+        switch (args[i - 1]) {
+          case "--population": size = Integer.parseInt(value); break;
+          case "--generations": generations = Integer.parseInt(value); break;
+          case "--matches": matches = Integer.parseInt(value); break;
+          case "--hall-of-fame": hallOfFame = Integer.parseInt(value); break;
+          case "--seed": seed = Long.parseLong(value); break;
+          case "--checkpoint": checkpoint = Path.of(value); break;
+          default: throw new IllegalArgumentException("Unknown option: " + args[i - 1]);
+        }
+      } else {
+        throw new IllegalArgumentException("Unknown option: " + args[i]);
+      }
+    }
+
+    List<GenomePolicy> start = new ArrayList<>();
+    if (resume) {
+      start.addAll(load(checkpoint));
+    }
+    start.add(GenomePolicy.STRATEGY);
+    GenomeTrainer trainer = new GenomeTrainer(size, matches, hallOfFame, seed, start);
+
+    long begin = System.nanoTime();
+    for (int g = 0; g < generations; g++) {
+      GenomePolicy[] evaluated = trainer.step();
+      double[] fitness = trainer.getFitness();
+      double mean = Arrays.stream(fitness).average().orElse(0);
+      save(checkpoint, evaluated, fitness, "GenomeTrainer generation " + trainer.getGeneration() + ", "
+          + size + " genomes, " + matches + " matches per opponent");
+      System.out.println(String.format(Locale.ROOT, "generation %d: best %.4f, mean %.4f, %.1f s; %s",
+          trainer.getGeneration(), fitness[0], mean, (System.nanoTime() - begin) / 1e9, evaluated[0]));
+    }
+
+    // a fresh seed range the training did not play
+    MovePolicy[] human = {GreedyPolicy.INSTANCE};
+    long holdout = Long.MIN_VALUE / 2;
+    int holdoutMatches = 20_000;
+    TurnEngine match = new TurnEngine(3);
+    System.out.println(String.format(Locale.ROOT,
+        "against the scripted human on %d new seeds: best genome %.4f, strategy %.4f, fixed computer turn %.4f",
+        holdoutMatches, score(match, load(checkpoint).get(0), human, holdout, holdoutMatches),
+        score(match, StrategyPolicy.INSTANCE, human, holdout, holdoutMatches),
+        score(match, PairingPolicy.INSTANCE, human, holdout, holdoutMatches)));
+  }
+}
@@ -0,0 +1,34 @@
+package rpg;
+
+/**
+ * The scripted human policy of HumanPlayer.autoMoveUnit: attack the target ComputerPlayer.selectOptimalTarget
+ * would pick, with the matchup strength, or block if there is no such target. Knocked out units skip.
+ * Works for either side.
+ */
+public final class GreedyPolicy implements MovePolicy {
+
+  /**
+   * The shared instance; the policy holds no state.
+   */
+  public static final GreedyPolicy INSTANCE = new GreedyPolicy();
+
+  /**
+   * Use INSTANCE instead.
+   */
+  private GreedyPolicy(){
+  }
+
+  @Override
+  public int choose(BattleState state, int battle, int side, int unit, int blocksUsed, int blockAllowance){
+    int attacker = state.slot(battle, side, unit);
+    if (state.hp[attacker] <= 0) {
+      return SKIP;
+    }
+
+    int target = state.selectOptimalTarget(battle, attacker, 1 - side);
+    if (target < 0) {
+      return BLOCK;
+    }
+    return MovePolicy.attack(target - state.slot(battle, 1 - side, 0), state.strength(attacker, target));
+  }
+}
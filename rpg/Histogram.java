@@ -0,0 +1,218 @@
+package rpg;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Counts non-negative values, such as durations in nanoseconds, in power of two buckets: bucket b holds the values
+ * from 2^(b-1) to 2^b - 1, and bucket 0 holds 0. Percentiles are read as the upper bound of their bucket, capped by the
+ * largest value, so they are at most twice the true value. Safe to record from many threads at once; recording never locks or allocates.
+ */
+public final class Histogram {
+
+  /**
+   * Number of buckets, enough for any non-negative long.
+   */
+  static final int BUCKETS = 64;
+
+  /**
+   * Number of values recorded in every bucket.
+   */
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+  /**
+   * Sum of the values recorded.
+   */
+  private final LongAdder sum = new LongAdder();
+
+  /**
+   * Largest value recorded.
+   */
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Constructs an empty histogram.
+   * Note: This constructor does not take any parameters.
+   */
+  public Histogram(){
+    for (int b = 0; b < BUCKETS; b++) {
+      this.buckets[b] = new LongAdder();
+    }
+  }
+
+  /**
+   * Counts a value. Negative values count as 0.
+   * Note: This method does not return anything.
+   * @param value long to count
+   */
+  public void record(long value){
+    value = Math.max(value, 0);
+    this.buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+    this.sum.add(value);
+    this.max.accumulate(value);
+  }
+
+  /**
+   * Forgets every value recorded. Values recorded while it runs may be kept or dropped.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  public void reset(){
+    for (LongAdder bucket : this.buckets) {
+      bucket.reset();
+    }
+    this.sum.reset();
+    this.max.reset();
+  }
+
+  /**
+   * Returns the count, mean, median, 99th percentile and maximum of the values recorded so far.
+   * @param unit double representing the number of recorded units per reported unit, such as 1000 to report
+   *             nanoseconds as microseconds
+   * @return Summary of the histogram
+   */
+  public Summary summary(double unit){
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      counts[b] = this.buckets[b].sum();
+      count += counts[b];
+    }
+    double mean = count == 0 ? 0 : this.sum.sum() / (double) count / unit;
+    double max = this.max.get();
+    return new Summary(count, mean, Math.min(percentile(counts, count, 0.5), max) / unit,
+        Math.min(percentile(counts, count, 0.99), max) / unit, max / unit);
+  }
+
+  /**
+   * Returns the upper bound of the bucket holding a percentile.
+   * @param counts long array of the bucket counts
+   * @param count long representing the sum of the counts
+   * @param fraction double representing the percentile, from 0 to 1
+   * @return double representing the bucket's largest value, 0 if nothing was recorded
+   */
+  private static double percentile(long[] counts, long count, double fraction){
+    long rank = (long) Math.ceil(count * fraction);
+    long seen = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      seen += counts[b];
+      if (seen >= rank && seen > 0) {
+        return b == 0 ? 0 : Math.scalb(1.0, b) - 1;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * A point in time view of a histogram, shown by JMX clients as a composite of its getters.
+   */
+  public static final class Summary {
+
+    /**
+     * Number of values recorded.
+     */
+    private final long count;
+
+    /**
+     * Mean of the values.
+     */
+    private final double mean;
+
+    /**
+     * Median, as the upper bound of its bucket.
+     */
+    private final double p50;
+
+    /**
+     * 99th percentile, as the upper bound of its bucket.
+     */
+    private final double p99;
+
+    /**
+     * Largest value.
+     */
+    private final double max;
+
+    /**
+     * Constructs a summary.
+     * @param count long representing the number of values
+     * @param mean double representing the mean
+     * @param p50 double representing the median
+     * @param p99 double representing the 99th percentile
+     * @param max double representing the largest value
+     */
+    public Summary(long count, double mean, double p50, double p99, double max){
+      this.count = count;
+      this.mean = mean;
+      this.p50 = p50;
+      this.p99 = p99;
+      this.max = max;
+    }
+
+    /**
+     * Rebuilds a summary from its JMX form.
+     * @param data CompositeData with the summary's getters as items
+     * @return Summary holding the same values
+     */
+    public static Summary from(CompositeData data){
+      return new Summary((Long) data.get("count"), (Double) data.get("mean"), (Double) data.get("p50"),
+          (Double) data.get("p99"), (Double) data.get("max"));
+    }
+
+    /**
+     * Returns the number of values recorded.
+     * Note: This method does not take any parameters.
+     * @return count
+     */
+    public long getCount(){
+      return this.count;
+    }
+
+    /**
+     * Returns the mean of the values.
+     * Note: This method does not take any parameters.
+     * @return mean
+     */
+    public double getMean(){
+      return this.mean;
+    }
+
+    /**
+     * Returns the median.
+     * Note: This method does not take any parameters.
+     * @return p50
+     */
+    public double getP50(){
+      return this.p50;
+    }
+
+    /**
+     * Returns the 99th percentile.
+     * Note: This method does not take any parameters.
+     * @return p99
+     */
+    public double getP99(){
+      return this.p99;
+    }
+
+    /**
+     * Returns the largest value.
+     * Note: This method does not take any parameters.
+     * @return max
+     */
+    public double getMax(){
+      return this.max;
+    }
+
+    /**
+     * Returns the summary as one line.
+     * Note: This method does not take any parameters.
+     * @return String with the count, mean, median, 99th percentile and maximum
+     */
+    @Override
+    public String toString(){
+      return String.format(Locale.ROOT, "count %d, mean %.2f, p50 %.2f, p99 %.2f, max %.2f",
+          this.count, this.mean, this.p50, this.p99, this.max);
+    }
+  }
+}
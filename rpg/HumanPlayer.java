@@ -1,6 +1,6 @@
 package rpg;
 import java.util.Random;
-import java.util.Scanner;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents the human player and holds their units in this role-playing game.
@@ -22,27 +22,119 @@ public class HumanPlayer {
    */
   Unit ama;
 
+  /**
+   * All human units in turn order, starting with Falia, Erom and Ama.
+   */
+  Roster roster;
+
+  /**
+   * The classic names of the human units.
+   */
+  static final String[] NAMES = {"Falia", "Erom", "Ama"};
+
   /**
    * A random number generator to be used for returning random levels and jobs.
    */
-  Random random = new Random();
+  RandomGenerator random;
+
+  /**
+   * Where moves and targets are read from, standard input by default.
+   */
+  CommandSource commands = ScannerCommands.STANDARD;
 
   /**
-   * A scanner to be used for selecting moves and targets.
+   * Where the human player publishes prompts and rejected input.
    */
-  Scanner scan = new Scanner(System.in);
+  CombatEvents events = ConsoleEvents.STANDARD;
 
   /**
    * Constructs a human player.
    */
   public HumanPlayer(){
-    this.falia = new Unit("Falia", generateLevel(),generateJob());
-    this.erom = new Unit("Erom", generateLevel(),generateJob());
-    this.ama = new Unit("Ama", generateLevel(),generateJob());
+    this(new Random());
+  }
+
+  /**
+   * Constructs a human player, drawing every level and job roll from the given generator.
+   * The generator is shared with the units, so one generator can drive a whole match.
+   * @param random RandomGenerator of the match this player plays in
+   */
+  public HumanPlayer(RandomGenerator random){
+    this(random, 3);
+  }
+
+  /**
+   * Constructs a human player with the given number of units, generated in turn order with the same level and job rules.
+   * @param random RandomGenerator of the match this player plays in
+   * @param size int representing the number of units, from Roster.MIN_SIZE to Roster.MAX_SIZE
+   */
+  public HumanPlayer(RandomGenerator random, int size){
+    this(random, size, BalanceRules.STANDARD);
+  }
+
+  /**
+   * Constructs a human player with the given number of units, generated in turn order with the same level and job rules.
+   * The level ranges and stats come from the given balance rules.
+   * @param random RandomGenerator of the match this player plays in
+   * @param size int representing the number of units, from Roster.MIN_SIZE to Roster.MAX_SIZE
+   * @param rules BalanceRules the units are created with
+   */
+  public HumanPlayer(RandomGenerator random, int size, BalanceRules rules){
+    this.random = random;
+    Unit[] units = new Unit[Roster.checkSize(size)];
+    for (int i = 0; i < units.length; i++) {
+      units[i] = new Unit(Roster.name(NAMES, i), generateLevel(),generateJob(), random, rules);
+    }
+    this.roster = new Roster(units, true);
+    this.falia = units[0];
+    this.erom = units[1];
+    this.ama = units[2];
+  }
+
+  /**
+   * Constructs a human player with the given units, such as when restoring a GameSnapshot.
+   * @param random RandomGenerator of the match this player plays in
+   * @param units Unit array in turn order, of Roster.MIN_SIZE to Roster.MAX_SIZE units; the player keeps the array
+   */
+  HumanPlayer(RandomGenerator random, Unit[] units){
+    Roster.checkSize(units.length);
+    this.random = random;
+    this.roster = new Roster(units, true);
+    this.falia = units[0];
+    this.erom = units[1];
+    this.ama = units[2];
   }
 
   // Getters and Setters
 
+  /**
+   * Sets where the human player and its units publish what happens to them.
+   * Note: This method does not return anything.
+   * @param events CombatEvents to publish to
+   */
+  public void setEvents(CombatEvents events){
+    this.events = events;
+    this.roster.setEvents(events);
+  }
+
+  /**
+   * Sets where moveUnit reads moves and targets from.
+   * Note: This method does not return anything.
+   * @param commands CommandSource to read from, such as a QueueCommands or LineCommands
+   */
+  public void setCommands(CommandSource commands){
+    this.commands = commands;
+  }
+
+  /**
+   * Returns all human units.
+   * Note: This method does not take any parameters.
+   * @return roster
+   */
+  public Roster getRoster(){
+    return this.roster;
+  }
+
   /**
    * Returns the falia Unit.
    * Note: This method does not take any parameters.
@@ -130,12 +222,13 @@ public class HumanPlayer {
    * @return String of "attack" or "block" or null
    */
   public String validateMove(String move){
-    if (move.toLowerCase().charAt(0) == 'a'){
+    char first = Character.toLowerCase(move.charAt(0));
+    if (first == 'a'){
       return "attack";
-    } else if (move.toLowerCase().charAt(0) == 'b') {
+    } else if (first == 'b') {
       return "block";
     } else {
-      System.out.println("Please enter an 'a' or 'b'");
+      this.events.invalidMove(move);
       return null;
     }
   }
@@ -150,24 +243,20 @@ public class HumanPlayer {
 
   public Unit selectTarget(String targetName, ComputerPlayer computer){
 
-    // Retrieve all computer units
-    Unit[] computerUnits = {computer.getCriati(), computer.getLedde(), computer.getTyllion() };
-    
-    // Loop through each unit and check if the targetName matches
-    for (Unit unit : computerUnits) {
-        if (unit.name.equalsIgnoreCase(targetName)) {
-            if (unit.getHp() > 0) {
-                return unit;
-            } else {
-                System.out.println("The target has already been vanquished.");
-                return null;
-            }
+    // look the name up among all computer units
+    Unit unit = computer.getRoster().find(targetName);
+    if (unit != null) {
+        if (unit.getHp() > 0) {
+            return unit;
+        } else {
+            this.events.targetVanquished(unit);
+            return null;
         }
+    }
+    // If no matching unit found
+    this.events.targetNotFound(targetName);
+    return null;
   }
-  // If no matching unit found
-  System.out.println("The target is not a member of the enemy’s forces.");
-  return null;
-}
 
   /**
    * Determines the strength of the attacker by comparing the attacker's job and the job of the target.
@@ -178,22 +267,9 @@ public class HumanPlayer {
    * @return String representing the strength of the attacker relative to the target
    */
   public String determineAttackerStrength(Unit attacker, Unit target){
-    String determinedStrength;
 
-    // assign determinedStrength by comparing job of attacker with job of the target
-    if(attacker.getJob().equalsIgnoreCase(target.getJob())){
-      determinedStrength = "same";
-    }
-    else if((attacker.getJob().equalsIgnoreCase("knight") && target.getJob().equalsIgnoreCase("archer")) ||
-            (attacker.getJob().equalsIgnoreCase("archer") && target.getJob().equalsIgnoreCase("mage")) ||
-            (attacker.getJob().equalsIgnoreCase("mage") && target.getJob().equalsIgnoreCase("knight"))){
-      determinedStrength = "strong";
-    }
-    else{
-      determinedStrength = "weak";
-    }
-
-    return determinedStrength;
+    // look up the precomputed job matchup instead of comparing job names
+    return Matchups.strength(attacker, target).label();
   }
 
   /**
@@ -207,25 +283,32 @@ public class HumanPlayer {
     if (unit.getHp() > 0) {
         // Perform the move
     } else {
-        System.out.println("The unit is not alive");
+        this.events.unitNotAlive(unit);
         return;
     }
 
-    System.out.println("Please select a move 'Attack as a' or 'Block as b': ");
-    String move = scan.next();
+    this.events.message("Please select a move 'Attack as a' or 'Block as b': ");
+    this.events.flush();
+    long start = GameMetrics.start();
+    String move = this.commands.next();
+    GameMetrics.inputWait(start);
     String validateMove = validateMove(move);
 
     if (validateMove != null) {
         if (validateMove.equals("attack")) {
-            System.out.println("Please enter the name of the target: ");
-            String targetName = scan.next();
+            this.events.message("Please enter the name of the target: ");
+            this.events.flush();
+            start = GameMetrics.start();
+            String targetName = this.commands.next();
+            GameMetrics.inputWait(start);
             Unit target = selectTarget(targetName, computer);
             if (target != null) {
-                String attackMethod = determineAttackerStrength(unit, target);
+                Strength attackMethod = Matchups.strength(unit, target);
+                this.events.attackLaunched(unit, target);
                 int damage = unit.attack(attackMethod);
                 target.receiveDamage(damage);
             } else {
-                System.out.println("Error: Please pick another target.");
+                this.events.targetRetry();
             }
         } else if (validateMove.equals("block")) {
             unit.block();
@@ -233,25 +316,49 @@ public class HumanPlayer {
     }
 }
 
+  /**
+   * For the given unit, picks and performs a move without reading any input.
+   * The unit attacks the target the computer's own targeting rules would pick, or blocks if there is no such target.
+   * Used to play headless matches with a scripted policy on the human side.
+   * Note: This method does not return anything.
+   * @param unit Unit that is currently taking a turn
+   * @param computer ComputerPlayer that human is playing against
+   */
+  public void autoMoveUnit(Unit unit, ComputerPlayer computer) {
+    if (unit.getHp() <= 0) {
+        this.events.unitNotAlive(unit);
+        return;
+    }
+
+    // reuse the computer's targeting rules against the computer's own units
+    Unit target = computer.selectOptimalTarget(computer.getRoster(), unit);
+    if (target != null) {
+        Strength attackMethod = Matchups.strength(unit, target);
+        this.events.attackLaunched(unit, target);
+        int damage = unit.attack(attackMethod);
+        target.receiveDamage(damage);
+    } else {
+        unit.block();
+    }
+  }
+
   /**
    * Resets temporary defensive buff of each human unit by setting temporaryDefense back to 0.
    * Note: This method does not take any parameters and does not return anything.
    */
   public void resetTemporaryDefense(){
-    this.erom.setTemporaryDefense(0);
-    this.falia.setTemporaryDefense(0);
-    this.ama.setTemporaryDefense(0);
+    this.roster.resetTemporaryDefense();
   }
 
   /**
    * Determines if human player has lost or is knocked out.
-   * This is done by checking if all of its three units are knocked out.
+   * This is done by checking if all of its units are knocked out.
    * Note: This method does not take any parameters.
    * @return boolean true if human has no units left or false
    */
   public boolean isKnockedOut(){
 
     // return true if all human units have 0 HP or less
-    return this.falia.getHp() <= 0 && this.erom.getHp() <= 0 && this.ama.getHp() <= 0;
+    return this.roster.isKnockedOut();
   }
 }
\ No newline at end of file
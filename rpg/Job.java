@@ -0,0 +1,51 @@
+package rpg;
+
+/**
+ * The jobs a unit can take on. The ordinal is used to index the matchup table in Matchups.
+ */
+public enum Job {
+  MAGE("mage"),
+  KNIGHT("knight"),
+  ARCHER("archer");
+
+  /**
+   * All jobs in ordinal order, cached so lookups do not copy the array.
+   */
+  static final Job[] VALUES = values();
+
+  /**
+   * The job's name as used in game text, such as "mage".
+   */
+  private final String label;
+
+  /**
+   * Constructs a job with the given name.
+   * @param label String representing the job's name in game text
+   */
+  Job(String label){
+    this.label = label;
+  }
+
+  /**
+   * Returns the job's name as used in game text.
+   * Note: This method does not take any parameters.
+   * @return label
+   */
+  public String label(){
+    return this.label;
+  }
+
+  /**
+   * Returns the job with the given name, ignoring case.
+   * @param name String representing the name of a job, such as "mage"
+   * @return Job with that name or null if there is no such job
+   */
+  public static Job fromName(String name){
+    for (Job job : VALUES) {
+      if (job.label.equalsIgnoreCase(name)) {
+        return job;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,92 @@
+package rpg;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads commands from a stream or file a whole line at a time, so a line can carry a whole turn's commands
+ * ("a Criati b a Ledde") and the stream is only read once per line. Blank lines are skipped.
+ */
+public final class LineCommands implements CommandSource {
+
+  /**
+   * The reader lines come from.
+   */
+  private final BufferedReader reader;
+
+  /**
+   * Commands of the current line not handed out yet.
+   */
+  private final ArrayDeque<String> pending = new ArrayDeque<>();
+
+  /**
+   * Constructs a source reading lines from the given reader.
+   * @param reader BufferedReader to read lines from
+   */
+  public LineCommands(BufferedReader reader){
+    this.reader = reader;
+  }
+
+  /**
+   * Constructs a source reading lines from the given stream.
+   * @param stream InputStream to read lines from
+   */
+  public LineCommands(InputStream stream){
+    this(new BufferedReader(new InputStreamReader(stream)));
+  }
+
+  /**
+   * Opens a command file.
+   * @param file Path of a file with one or more commands per line
+   * @return LineCommands reading the file
+   */
+  public static LineCommands open(Path file){
+    try {
+      return new LineCommands(Files.newBufferedReader(file));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public String next(){
+    while (this.pending.isEmpty()) {
+      String line;
+      try {
+        line = this.reader.readLine();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (line == null) {
+        throw new NoSuchElementException("No more commands");
+      }
+      split(line, this.pending);
+    }
+    return this.pending.pollFirst();
+  }
+
+  /**
+   * Splits a line on whitespace and adds its commands to the end of a queue.
+   * Note: This method does not return anything.
+   * @param line String of commands separated by whitespace
+   * @param commands ArrayDeque to add the commands to
+   */
+  static void split(String line, ArrayDeque<String> commands){
+    int start = -1;
+    for (int i = 0; i <= line.length(); i++) {
+      boolean blank = i == line.length() || Character.isWhitespace(line.charAt(i));
+      if (blank && start >= 0) {
+        commands.addLast(line.substring(start, i));
+        start = -1;
+      } else if (!blank && start < 0) {
+        start = i;
+      }
+    }
+  }
+}
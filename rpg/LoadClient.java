@@ -0,0 +1,220 @@
+package rpg;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for GameServer: plays many games at once over localhost, answering every prompt with a random move
+ * or target, and reports move latency percentiles and sessions per core.
+ * The latency of a move is the time from sending a command to receiving the next prompt, or the end of the game.
+ */
+public class LoadClient {
+
+  /**
+   * Prompt the server shows before reading a move.
+   */
+  static final String MOVE_PROMPT = "Please select a move";
+
+  /**
+   * Prompt the server shows before reading a target.
+   */
+  static final String TARGET_PROMPT = "Please enter the name of the target";
+
+  /**
+   * Port of the server to play against.
+   */
+  private final int port;
+
+  /**
+   * Time a player waits before answering a prompt, in milliseconds, like a person thinking; not part of the latency.
+   */
+  private final long thinkMillis;
+
+  /**
+   * Number of games still to start.
+   */
+  private final AtomicInteger remaining;
+
+  /**
+   * Latencies of all moves in nanoseconds, filled as sessions end.
+   */
+  private long[] latencies = new long[0];
+
+  /**
+   * Number of latencies recorded.
+   */
+  private int latencyCount = 0;
+
+  /**
+   * Constructs a load generator.
+   * @param port int representing the server's port on the loopback address
+   * @param sessions int representing the number of games to play in total
+   * @param thinkMillis long representing the time to wait before answering each prompt, in milliseconds
+   */
+  public LoadClient(int port, int sessions, long thinkMillis){
+    this.port = port;
+    this.thinkMillis = thinkMillis;
+    this.remaining = new AtomicInteger(sessions);
+  }
+
+  /**
+   * Plays games until all sessions have been started, one game at a time.
+   * Note: This method does not return anything.
+   * @param seed long seeding the random moves of this player
+   */
+  private void player(long seed){
+    SplittableRandom random = new SplittableRandom(seed);
+    long[] own = new long[256];
+    int count = 0;
+    while (this.remaining.getAndDecrement() > 0) {
+      try {
+        count = playSession(random, own, count);
+        if (count > own.length - 64) {
+          own = Arrays.copyOf(own, own.length * 2);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    addLatencies(own, count);
+  }
+
+  /**
+   * Plays one game to the end, answering every prompt.
+   * @param random SplittableRandom picking moves and targets
+   * @param latencies long array to store move latencies in, with room for at least 60 more
+   * @param count int representing the number of latencies already stored
+   * @return int representing the number of latencies stored afterwards
+   * @throws IOException if the connection fails
+   * @throws InterruptedException if interrupted while thinking
+   */
+  private int playSession(SplittableRandom random, long[] latencies, int count)
+      throws IOException, InterruptedException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), this.port)) {
+      socket.setTcpNoDelay(true);
+      BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+      PrintWriter out = new PrintWriter(socket.getOutputStream(), false);
+      String[] targets = {"Criati", "Ledde", "Tyllion"};
+
+      long sent = 0;
+      String line;
+      while ((line = in.readLine()) != null) {
+        String command;
+        if (line.startsWith(MOVE_PROMPT)) {
+          command = random.nextInt(5) == 0 ? "b" : "a";
+        } else if (line.startsWith(TARGET_PROMPT)) {
+          command = targets[random.nextInt(targets.length)];
+        } else {
+          continue;
+        }
+        if (sent != 0 && count < latencies.length) {
+          latencies[count++] = System.nanoTime() - sent;
+        }
+        if (this.thinkMillis > 0) {
+          Thread.sleep(this.thinkMillis);
+        }
+        out.println(command);
+        out.flush();
+        sent = System.nanoTime();
+      }
+      if (sent != 0 && count < latencies.length) {
+        latencies[count++] = System.nanoTime() - sent;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Adds a player's latencies to the shared list.
+   * Note: This method does not return anything.
+   * @param own long array of latencies
+   * @param count int representing the number of latencies in own
+   */
+  private synchronized void addLatencies(long[] own, int count){
+    if (this.latencyCount + count > this.latencies.length) {
+      this.latencies = Arrays.copyOf(this.latencies, Math.max(this.latencyCount + count, this.latencies.length * 2));
+    }
+    System.arraycopy(own, 0, this.latencies, this.latencyCount, count);
+    this.latencyCount += count;
+  }
+
+  /**
+   * Returns a latency percentile of all recorded moves.
+   * @param sorted long array of sorted latencies
+   * @param percentile double from 0 to 100
+   * @return double representing the latency in microseconds
+   */
+  private static double percentile(long[] sorted, double percentile){
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+  }
+
+  /**
+   * Plays the given number of games with the given number of concurrent players and prints the results.
+   * @param args optional number of games (default 2000), concurrent players (default 500), think time per prompt
+   *             in milliseconds (default 0), and the port of a running server; without a port, a server is started
+   *             in this process on a free port
+   * @throws IOException if the server cannot be started
+   * @throws InterruptedException if interrupted while waiting for the players
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    long thinkMillis = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+    GameServer server = null;
+    int port;
+    if (args.length > 3) {
+      port = Integer.parseInt(args[3]);
+    } else {
+      server = new GameServer(0, false);
+      server.start();
+      port = server.getPort();
+    }
+
+    LoadClient client = new LoadClient(port, sessions, thinkMillis);
+    ExecutorService players = GameServer.newSessionExecutor();
+    long start = System.nanoTime();
+    for (int i = 0; i < concurrency; i++) {
+      long seed = i;
+      players.execute(() -> client.player(seed));
+    }
+    players.shutdown();
+    players.awaitTermination(1, TimeUnit.HOURS);
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    long[] sorted = Arrays.copyOf(client.latencies, client.latencyCount);
+    Arrays.sort(sorted);
+    int cores = Runtime.getRuntime().availableProcessors();
+    double perSecond = sessions / seconds;
+
+    System.out.println("Played " + sessions + " games with " + concurrency + " concurrent players in "
+        + String.format("%.2f", seconds) + " s on " + cores + " cores"
+        + (GameServer.hasVirtualThreads() ? " (virtual threads)" : " (platform threads)"));
+    System.out.println(String.format("%.0f sessions per second, %.0f sessions per second per core", perSecond,
+        perSecond / cores));
+    if (server != null) {
+      System.out.println(String.format("peak %d concurrent sessions, %.0f per core", server.getPeakSessions(),
+          (double) server.getPeakSessions() / cores));
+      server.close();
+    }
+    System.out.println(String.format("move latency over %d moves: p50 %.0f us, p99 %.0f us, p99.9 %.0f us, max %.0f us",
+        sorted.length, percentile(sorted, 50), percentile(sorted, 99), percentile(sorted, 99.9),
+        percentile(sorted, 100)));
+  }
+}
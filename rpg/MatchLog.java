@@ -0,0 +1,448 @@
+package rpg;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A file of recorded matches, memory-mapped for reading and writing in segments of SEGMENT_SIZE bytes.
+ * The file starts with a 24 byte header (magic, version, record size, bytes in use, number of matches) followed by
+ * entries of two kinds, which never cross a segment boundary; the rest of a segment an entry does not fit in is left
+ * as zero padding:
+ *   RECORD: tag byte, then one MatchRecorder record with every action of a match typed in or planned by search
+ *   RANGE:  tag byte, long first seed, int count, then one outcome byte per match (see packOutcome) for count scripted
+ *           matches with consecutive seeds, which replay from their seed alone
+ * Appending is synchronized; batch runs reserve their ranges once and then write the outcomes from any thread
+ * without locking, since every match owns its own byte.
+ */
+public final class MatchLog implements AutoCloseable {
+
+  /**
+   * Marks the start of a match log file ("RPGM").
+   */
+  static final int MAGIC = 0x5250474d;
+
+  /**
+   * Version of the file layout.
+   */
+  static final short VERSION = 2;
+
+  /**
+   * Size of the file header in bytes.
+   */
+  static final int HEADER_SIZE = 24;
+
+  /**
+   * Tag of the zero padding at the end of a segment.
+   */
+  static final int PAD = 0;
+
+  /**
+   * Tag of a full match record.
+   */
+  static final int RECORD = 1;
+
+  /**
+   * Tag of a range of scripted matches.
+   */
+  static final int RANGE = 2;
+
+  /**
+   * Bit set in every outcome byte that was written, so a match that was reserved but never played reads back as 0.
+   */
+  static final int WRITTEN = 0x80;
+
+  /**
+   * Size of a range entry before its outcome bytes.
+   */
+  static final int RANGE_HEADER = 13;
+
+  /**
+   * Largest number of matches in one range entry.
+   */
+  static final int RANGE_MATCHES = 1 << 16;
+
+  /**
+   * Size of a mapped segment is 2^SEGMENT_BITS bytes.
+   */
+  static final int SEGMENT_BITS = 30;
+
+  /**
+   * Size of a mapped segment in bytes.
+   */
+  static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+  /**
+   * Smallest mapping of the last segment, which grows by doubling up to SEGMENT_SIZE.
+   */
+  static final int MIN_MAPPING = 1 << 16;
+
+  /**
+   * The open file.
+   */
+  private final FileChannel channel;
+
+  /**
+   * The current mapping of every segment; all but the last map the whole segment.
+   */
+  private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+  /**
+   * Number of bytes mapped, from the start of the file.
+   */
+  private long mapped;
+
+  /**
+   * Number of bytes written or reserved, from the start of the file.
+   */
+  private long end;
+
+  /**
+   * Number of matches written or reserved.
+   */
+  private long matches;
+
+  /**
+   * Opens a log on an open channel and maps the bytes in use.
+   * @param channel FileChannel opened for reading and writing
+   * @param end long representing the number of bytes in use
+   * @param matches long representing the number of matches in the file
+   */
+  private MatchLog(FileChannel channel, long end, long matches){
+    this.channel = channel;
+    this.end = end;
+    this.matches = matches;
+    ensure(end);
+  }
+
+  /**
+   * Creates a new, empty log, replacing any file at the given path.
+   * @param file Path of the log file
+   * @return MatchLog ready for appending
+   */
+  public static MatchLog create(Path file){
+    try {
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+      MatchLog log = new MatchLog(channel, HEADER_SIZE, 0);
+      MappedByteBuffer header = log.segments[0];
+      header.putInt(0, MAGIC);
+      header.putShort(4, VERSION);
+      header.putShort(6, (short) MatchRecorder.RECORD_SIZE);
+      log.writeHeader();
+      return log;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Opens an existing log for reading and appending, or creates it if there is no file at the given path.
+   * @param file Path of the log file
+   * @return MatchLog holding the matches already in the file
+   */
+  public static MatchLog open(Path file){
+    try {
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      if (channel.size() == 0) {
+        channel.close();
+        return create(file);
+      }
+      if (channel.size() < HEADER_SIZE) {
+        channel.close();
+        throw new IllegalArgumentException("Not a match log: " + file);
+      }
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      header.order(ByteOrder.BIG_ENDIAN);
+      if (header.getInt(0) != MAGIC || header.getShort(4) != VERSION
+          || header.getShort(6) != MatchRecorder.RECORD_SIZE) {
+        channel.close();
+        throw new IllegalArgumentException("Not a version " + VERSION + " match log: " + file);
+      }
+      return new MatchLog(channel, header.getLong(8), header.getLong(16));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Maps the file up to at least the given byte, growing the file if needed.
+   * Note: This method does not return anything.
+   * @param limit long representing the number of bytes from the start of the file that must be mapped
+   */
+  private void ensure(long limit){
+    if (limit <= this.mapped) {
+      return;
+    }
+    MappedByteBuffer[] segments = this.segments;
+    int count = (int) ((limit - 1 >>> SEGMENT_BITS) + 1);
+    if (count > segments.length) {
+      segments = Arrays.copyOf(segments, count);
+    }
+    try {
+      for (int i = 0; i < count; i++) {
+        long start = (long) i << SEGMENT_BITS;
+        long length = i < count - 1 ? SEGMENT_SIZE
+            : Math.min(SEGMENT_SIZE, Math.max(limit - start, Math.max(MIN_MAPPING, 2 * (this.mapped - start))));
+        if (segments[i] == null || segments[i].capacity() < length) {
+          segments[i] = this.channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.mapped = ((long) (count - 1) << SEGMENT_BITS) + segments[count - 1].capacity();
+    this.segments = segments;
+  }
+
+  /**
+   * Reserves room for an entry at the end of the log, starting a new segment if it does not fit in the current one.
+   * @param size int representing the size of the entry in bytes
+   * @return long representing the position of the entry
+   */
+  private long allocate(int size){
+    long position = this.end;
+    if ((position & SEGMENT_SIZE - 1) + size > SEGMENT_SIZE) {
+      // the rest of the segment stays zero, which reads back as padding
+      position = (position >>> SEGMENT_BITS) + 1 << SEGMENT_BITS;
+    }
+    ensure(position + size);
+    this.end = position + size;
+    return position;
+  }
+
+  /**
+   * Writes the bytes in use and the number of matches to the header.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void writeHeader(){
+    this.segments[0].putLong(8, this.end);
+    this.segments[0].putLong(16, this.matches);
+  }
+
+  /**
+   * Returns the segment holding a position.
+   * @param position long representing a byte position in the file
+   * @return MappedByteBuffer of the segment
+   */
+  private MappedByteBuffer segment(long position){
+    return this.segments[(int) (position >>> SEGMENT_BITS)];
+  }
+
+  /**
+   * Returns the offset of a position in its segment.
+   * @param position long representing a byte position in the file
+   * @return int offset within the segment
+   */
+  private static int offset(long position){
+    return (int) (position & SEGMENT_SIZE - 1);
+  }
+
+  /**
+   * Reserves range entries for a run of scripted matches with consecutive seeds, to be filled in with Batch.write.
+   * Matches that are never written read back with outcome 0.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches
+   * @return Batch writing the outcomes of the matches
+   */
+  public synchronized Batch reserve(long firstSeed, long matches){
+    long[] ranges = new long[(int) ((matches + RANGE_MATCHES - 1) / RANGE_MATCHES)];
+    for (int i = 0; i < ranges.length; i++) {
+      int count = (int) Math.min(RANGE_MATCHES, matches - (long) i * RANGE_MATCHES);
+      long position = allocate(RANGE_HEADER + count);
+      MappedByteBuffer segment = segment(position);
+      int offset = offset(position);
+      segment.put(offset, (byte) RANGE);
+      segment.putLong(offset + 1, firstSeed + (long) i * RANGE_MATCHES);
+      segment.putInt(offset + 9, count);
+      ranges[i] = position + RANGE_HEADER;
+    }
+    this.matches += matches;
+    writeHeader();
+    return new Batch(firstSeed, ranges);
+  }
+
+  /**
+   * Appends one full match record to the end of the log.
+   * @param record byte array of MatchRecorder.RECORD_SIZE bytes
+   * @return long representing the position of the entry
+   */
+  public synchronized long append(byte[] record){
+    long position = allocate(1 + MatchRecorder.RECORD_SIZE);
+    segment(position).put(offset(position), (byte) RECORD);
+    segment(position).put(offset(position) + 1, record, 0, MatchRecorder.RECORD_SIZE);
+    this.matches++;
+    writeHeader();
+    return position;
+  }
+
+  /**
+   * Packs the outcome of a match into its byte in a range.
+   * @param winner String "human", "computer" or "tie"
+   * @param turn int representing the turn the match ended on, 0 to 10
+   * @return int with WRITTEN set, the winner as in MatchRecorder records in bits 4 and 5 and the turn in the low nibble
+   */
+  static int packOutcome(String winner, int turn){
+    return WRITTEN | MatchRecorder.winnerCode(winner) << 4 | turn;
+  }
+
+  /**
+   * Returns the position of the first entry.
+   * Note: This method does not take any parameters.
+   * @return long position of the first entry, equal to end() if the log is empty
+   */
+  public long first(){
+    return HEADER_SIZE;
+  }
+
+  /**
+   * Returns the position after the last entry.
+   * Note: This method does not take any parameters.
+   * @return end
+   */
+  public synchronized long end(){
+    return this.end;
+  }
+
+  /**
+   * Returns the position of the entry after the given one, skipping the padding at the end of a segment.
+   * @param entry long representing the position of an entry
+   * @return long position of the next entry, or end() after the last one
+   */
+  public long next(long entry){
+    long next = entry + (isRange(entry) ? RANGE_HEADER + rangeSize(entry) : 1 + MatchRecorder.RECORD_SIZE);
+    if (next < end() && offset(next) != 0 && segment(next).get(offset(next)) == PAD) {
+      next = (next >>> SEGMENT_BITS) + 1 << SEGMENT_BITS;
+    }
+    return next;
+  }
+
+  /**
+   * Returns whether an entry is a range of scripted matches.
+   * @param entry long representing the position of an entry
+   * @return boolean true for a range, false for a full record
+   */
+  public boolean isRange(long entry){
+    return segment(entry).get(offset(entry)) == RANGE;
+  }
+
+  /**
+   * Returns the seed of the first match of a range.
+   * @param entry long representing the position of a range entry
+   * @return long seed
+   */
+  public long rangeSeed(long entry){
+    return segment(entry).getLong(offset(entry) + 1);
+  }
+
+  /**
+   * Returns the number of matches in a range.
+   * @param entry long representing the position of a range entry
+   * @return int count
+   */
+  public int rangeSize(long entry){
+    return segment(entry).getInt(offset(entry) + 9);
+  }
+
+  /**
+   * Returns the outcome byte of one match of a range.
+   * @param entry long representing the position of a range entry
+   * @param match int representing the match within the range
+   * @return int outcome, see packOutcome, or 0 if it was never written
+   */
+  public int outcome(long entry, int match){
+    return segment(entry).get(offset(entry) + RANGE_HEADER + match) & 0xff;
+  }
+
+  /**
+   * Copies the record out of a full record entry.
+   * Note: This method does not return anything.
+   * @param entry long representing the position of a record entry
+   * @param record byte array of at least MatchRecorder.RECORD_SIZE bytes to copy the record into
+   */
+  public void read(long entry, byte[] record){
+    if (isRange(entry)) {
+      throw new IllegalArgumentException("Entry " + entry + " is a range, not a record");
+    }
+    segment(entry).get(offset(entry) + 1, record, 0, MatchRecorder.RECORD_SIZE);
+  }
+
+  /**
+   * Returns the number of matches in the log, including reserved ones.
+   * Note: This method does not take any parameters.
+   * @return matches
+   */
+  public synchronized long size(){
+    return this.matches;
+  }
+
+  /**
+   * Writes the mapped entries out to the file.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  public synchronized void force(){
+    for (MappedByteBuffer segment : this.segments) {
+      segment.force();
+    }
+  }
+
+  /**
+   * Writes the entries out, trims the file to the entries in use, and closes it.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  @Override
+  public synchronized void close(){
+    try {
+      force();
+      this.segments = null;
+      this.channel.truncate(this.end);
+      this.channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The range entries reserved for one batch run, which any thread may write the outcome of any match to.
+   */
+  public final class Batch {
+
+    /**
+     * Seed of the first match of the batch.
+     */
+    private final long firstSeed;
+
+    /**
+     * Position of the first outcome byte of every range, in seed order.
+     */
+    private final long[] ranges;
+
+    /**
+     * Constructs the batch.
+     * @param firstSeed long representing the seed of the first match
+     * @param ranges long array of the position of the first outcome byte of every range
+     */
+    Batch(long firstSeed, long[] ranges){
+      this.firstSeed = firstSeed;
+      this.ranges = ranges;
+    }
+
+    /**
+     * Writes the outcome of one match.
+     * Note: This method does not return anything.
+     * @param seed long representing the seed of the match
+     * @param winner String "human", "computer" or "tie"
+     * @param turn int representing the turn the match ended on
+     */
+    public void write(long seed, String winner, int turn){
+      long match = seed - this.firstSeed;
+      long position = this.ranges[(int) (match / RANGE_MATCHES)] + match % RANGE_MATCHES;
+      segment(position).put(offset(position), (byte) packOutcome(winner, turn));
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package rpg;
+import java.util.random.RandomGenerator;
+
+/**
+ * The random number generator of a single match: seedable, splittable, and with a state that can be read and restored.
+ * Uses the SplitMix64 algorithm, the same one behind java.util.SplittableRandom.
+ * One instance drives every roll of a match (levels, jobs, and dodges), so a seed replays the same game on any thread.
+ * Not thread-safe; parallel simulations give every match its own instance instead of sharing one.
+ */
+public final class MatchRandom implements RandomGenerator {
+
+  /**
+   * The odd constant added to the state on every step.
+   */
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  /**
+   * The seed this generator was created with.
+   */
+  private final long seed;
+
+  /**
+   * The current state, advanced by GOLDEN_GAMMA on every step.
+   */
+  private long state;
+
+  /**
+   * Constructs a generator for the given seed.
+   * @param seed long representing the match seed
+   */
+  public MatchRandom(long seed){
+    this.seed = seed;
+    this.state = mix64(seed);
+  }
+
+  /**
+   * Returns the next 64 random bits.
+   * Note: This method does not take any parameters.
+   * @return long of random bits
+   */
+  @Override
+  public long nextLong(){
+    return mix64(this.state += GOLDEN_GAMMA);
+  }
+
+  /**
+   * Returns the next 32 random bits, taken from the high half of nextLong.
+   * Note: This method does not take any parameters.
+   * @return int of random bits
+   */
+  @Override
+  public int nextInt(){
+    return (int) (nextLong() >>> 32);
+  }
+
+  /**
+   * Returns a new generator seeded from this one, for handing to independent work such as another match.
+   * Note: This method does not take any parameters.
+   * @return MatchRandom with its own stream
+   */
+  public MatchRandom split(){
+    return new MatchRandom(nextLong());
+  }
+
+  /**
+   * Returns the seed this generator was created with.
+   * Note: This method does not take any parameters.
+   * @return seed
+   */
+  public long getSeed(){
+    return this.seed;
+  }
+
+  /**
+   * Returns the current state, which together with setState allows pausing and resuming the stream.
+   * Note: This method does not take any parameters.
+   * @return state
+   */
+  public long getState(){
+    return this.state;
+  }
+
+  /**
+   * Restores a state previously returned by getState.
+   * Note: This method does not return anything.
+   * @param state long representing the state to continue from
+   */
+  public void setState(long state){
+    this.state = state;
+  }
+
+  /**
+   * Scrambles the bits of the given value (the SplitMix64 finalizer).
+   * @param z long to scramble
+   * @return long of well mixed bits
+   */
+  static long mix64(long z){
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,354 @@
+package rpg;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Records a match as one fixed-width binary record while passing every event on to another sink.
+ * The record holds everything needed to replay the match with MatchReplayer: the seed, how each side picked its moves,
+ * the starting rosters, and every action with its dodge outcome. Damage is not stored, it follows from the rest.
+ *
+ * Layout of a record (RECORD_SIZE bytes, big-endian):
+ *   0  long seed
+ *   8  byte flags, see SCRIPTED, SEARCH and TRUNCATED
+ *   9  byte winner: 0 human, 1 tie, 2 computer
+ *  10  byte turn the match ended on, 10 if it went all turns
+ *  11  byte number of actions
+ *  12  6 roster bytes, human units then computer units: job ordinal in the high nibble, level in the low nibble
+ *  18  2 unused bytes
+ *  20  MAX_ACTIONS action bytes: side (bit 7), unit (bits 5-6), kind (bits 3-4), target (bits 1-2), dodged (bit 0)
+ */
+public final class MatchRecorder implements CombatEvents {
+
+  /**
+   * Size of one record in bytes.
+   */
+  static final int RECORD_SIZE = 80;
+
+  /**
+   * Position of the first action byte in a record.
+   */
+  static final int ACTIONS = 20;
+
+  /**
+   * Room for actions in a record: at most three moves per side in each of the 10 turns.
+   */
+  static final int MAX_ACTIONS = RECORD_SIZE - ACTIONS;
+
+  /**
+   * Flag: the human side played with the scripted policy instead of input.
+   */
+  static final int SCRIPTED = 1;
+
+  /**
+   * Flag: the computer side played with the search planner.
+   */
+  static final int SEARCH = 2;
+
+  /**
+   * Flag: the match had more actions than fit in the record; the rest were not recorded.
+   */
+  static final int TRUNCATED = 4;
+
+  /**
+   * Action kind: the unit attacked its target.
+   */
+  static final int ATTACK = 0;
+
+  /**
+   * Action kind: the unit blocked.
+   */
+  static final int BLOCK = 1;
+
+  /**
+   * Action kind: the unit lost its move to an invalid move or target.
+   */
+  static final int PASS = 2;
+
+  /**
+   * Sink every event is passed on to.
+   */
+  private final CombatEvents next;
+
+  /**
+   * The record of the current match, reused for every match.
+   */
+  private final byte[] record = new byte[RECORD_SIZE];
+
+  /**
+   * View of record for writing multi-byte fields.
+   */
+  private final ByteBuffer view = ByteBuffer.wrap(this.record);
+
+  /**
+   * The units of the current match: human units in slots 0 to 2, computer units in slots 3 to 5.
+   */
+  private final Unit[] units = new Unit[6];
+
+  /**
+   * Number of actions recorded in the current match.
+   */
+  private int actions;
+
+  /**
+   * The human unit whose move is being taken, for recording lost moves.
+   */
+  private Unit mover;
+
+  /**
+   * Constructs a recorder.
+   * @param next CombatEvents to pass every event on to, such as SilentEvents.INSTANCE or ConsoleEvents.STANDARD
+   */
+  public MatchRecorder(CombatEvents next){
+    this.next = next;
+  }
+
+  /**
+   * Starts the record of a new match with three units per side and the standard balance rules. Call before the first turn,
+   * with the recorder set as the game's events.
+   * Note: This method does not return anything.
+   * @param game GameControl of the match to record
+   * @param scripted boolean true if the human side plays with the scripted policy
+   */
+  public void begin(GameControl game, boolean scripted){
+    if (game.human.getRoster().size() != 3 || game.computer.getRoster().size() != 3) {
+      throw new IllegalArgumentException("Only matches with three units per side can be recorded");
+    }
+    if (!game.getRules().isStandard()) {
+      throw new IllegalArgumentException("Only matches under the standard balance rules can be recorded");
+    }
+    if (game.computer.getPolicy() != null && game.computer.getPlanner() == null) {
+      throw new IllegalArgumentException("Matches against a computer policy cannot be recorded");
+    }
+    Arrays.fill(this.record, (byte) 0);
+    this.actions = 0;
+    this.mover = null;
+    this.units[0] = game.human.getFalia();
+    this.units[1] = game.human.getErom();
+    this.units[2] = game.human.getAma();
+    this.units[3] = game.computer.getCriati();
+    this.units[4] = game.computer.getLedde();
+    this.units[5] = game.computer.getTyllion();
+
+    this.view.putLong(0, game.getSeed());
+    int flags = (scripted ? SCRIPTED : 0) | (game.computer.getPlanner() != null ? SEARCH : 0);
+    this.record[8] = (byte) flags;
+    for (int i = 0; i < this.units.length; i++) {
+      this.record[12 + i] = rosterByte(this.units[i]);
+    }
+  }
+
+  /**
+   * Completes the record of the current match.
+   * @param winner String "human", "computer" or "tie"
+   * @param turn int representing the turn the match ended on
+   * @return byte array holding the record; it is reused by the next match, so write it out before then
+   */
+  public byte[] finish(String winner, int turn){
+    this.record[9] = (byte) winnerCode(winner);
+    this.record[10] = (byte) turn;
+    this.record[11] = (byte) this.actions;
+    return this.record;
+  }
+
+  /**
+   * Returns the code a record stores a winner as.
+   * @param winner String "human", "computer" or "tie"
+   * @return int 0 for human, 1 for tie, 2 for computer
+   */
+  static int winnerCode(String winner){
+    return "human".equals(winner) ? 0 : "tie".equals(winner) ? 1 : 2;
+  }
+
+  /**
+   * Packs a unit's job and level into a roster byte.
+   * @param unit Unit to pack
+   * @return byte with the job ordinal in the high nibble and the level in the low nibble
+   */
+  static byte rosterByte(Unit unit){
+    return (byte) (unit.getJobType().ordinal() << 4 | unit.getLevel());
+  }
+
+  /**
+   * Returns the slot of a unit of the current match, 0 to 5.
+   * @param unit Unit to look up
+   * @return int slot, or -1 if the unit is not part of the match
+   */
+  private int slot(Unit unit){
+    for (int i = 0; i < this.units.length; i++) {
+      if (this.units[i] == unit) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Adds one action to the record, or flags the record as truncated once it is full.
+   * Note: This method does not return anything.
+   * @param unit Unit taking the action
+   * @param kind int ATTACK, BLOCK or PASS
+   * @param target Unit being attacked, or null
+   */
+  private void action(Unit unit, int kind, Unit target){
+    if (this.actions == MAX_ACTIONS) {
+      this.record[8] |= TRUNCATED;
+      return;
+    }
+    int slot = slot(unit);
+    int targetSlot = target == null ? 0 : slot(target) % 3;
+    this.record[ACTIONS + this.actions++] = (byte) ((slot / 3) << 7 | (slot % 3) << 5 | kind << 3 | targetSlot << 1);
+  }
+
+  /**
+   * Returns the side of an action byte.
+   * @param action int action byte
+   * @return int 0 for the human side, 1 for the computer side
+   */
+  static int side(int action){
+    return action >> 7 & 1;
+  }
+
+  /**
+   * Returns the unit position of an action byte.
+   * @param action int action byte
+   * @return int position of the acting unit on its side, 0 to 2
+   */
+  static int unit(int action){
+    return action >> 5 & 3;
+  }
+
+  /**
+   * Returns the kind of an action byte.
+   * @param action int action byte
+   * @return int ATTACK, BLOCK or PASS
+   */
+  static int kind(int action){
+    return action >> 3 & 3;
+  }
+
+  /**
+   * Returns the target position of an action byte.
+   * @param action int action byte
+   * @return int position of the target on the other side, 0 to 2
+   */
+  static int target(int action){
+    return action >> 1 & 3;
+  }
+
+  /**
+   * Returns whether the attack of an action byte was dodged.
+   * @param action int action byte
+   * @return boolean true if the target dodged
+   */
+  static boolean dodged(int action){
+    return (action & 1) != 0;
+  }
+
+  @Override
+  public void unitStatus(Unit unit){
+    this.next.unitStatus(unit);
+  }
+
+  @Override
+  public void dodged(Unit target){
+    if (this.actions > 0) {
+      this.record[ACTIONS + this.actions - 1] |= 1;
+    }
+    this.next.dodged(target);
+  }
+
+  @Override
+  public void damageReceived(Unit target, int damage){
+    this.next.damageReceived(target, damage);
+  }
+
+  @Override
+  public void attackLaunched(Unit attacker, Unit target){
+    action(attacker, ATTACK, target);
+    this.next.attackLaunched(attacker, target);
+  }
+
+  @Override
+  public void blockRaised(Unit unit){
+    action(unit, BLOCK, null);
+    this.next.blockRaised(unit);
+  }
+
+  @Override
+  public void blocking(Unit unit){
+    this.next.blocking(unit);
+  }
+
+  @Override
+  public void attacking(Unit unit){
+    this.next.attacking(unit);
+  }
+
+  @Override
+  public void hpRemaining(Unit target){
+    this.next.hpRemaining(target);
+  }
+
+  @Override
+  public void allTargetsFallen(){
+    this.next.allTargetsFallen();
+  }
+
+  @Override
+  public void unitNotAlive(Unit unit){
+    this.next.unitNotAlive(unit);
+  }
+
+  @Override
+  public void invalidMove(String move){
+    action(this.mover, PASS, null);
+    this.next.invalidMove(move);
+  }
+
+  @Override
+  public void targetVanquished(Unit target){
+    this.next.targetVanquished(target);
+  }
+
+  @Override
+  public void targetNotFound(String targetName){
+    this.next.targetNotFound(targetName);
+  }
+
+  @Override
+  public void targetRetry(){
+    action(this.mover, PASS, null);
+    this.next.targetRetry();
+  }
+
+  @Override
+  public void humanTurnStarted(int turn){
+    this.next.humanTurnStarted(turn);
+  }
+
+  @Override
+  public void unitTurn(Unit unit){
+    this.mover = unit;
+    this.next.unitTurn(unit);
+  }
+
+  @Override
+  public void roundStarted(int turn){
+    this.next.roundStarted(turn);
+  }
+
+  @Override
+  public void gameOver(String winner){
+    this.next.gameOver(winner);
+  }
+
+  @Override
+  public void message(String line){
+    this.next.message(line);
+  }
+
+  @Override
+  public void flush(){
+    this.next.flush();
+  }
+}
@@ -0,0 +1,189 @@
+package rpg;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Replays recorded matches from a MatchLog through the GameControl turn loop, without any output.
+ * A match is re-run from its seed: scripted matches of a range replay by themselves, and moves typed in by a human are
+ * fed back from the recorded actions. Matches are numbered in log order, counting every match of a range.
+ * A replay can stop at any turn to inspect the game at that point.
+ */
+public class MatchReplayer {
+
+  /**
+   * The log the matches are read from.
+   */
+  private final MatchLog log;
+
+  /**
+   * The record being replayed, if it is a full record.
+   */
+  private final byte[] record = new byte[MatchRecorder.RECORD_SIZE];
+
+  /**
+   * Records every replay, so it can be compared with the original.
+   */
+  private final MatchRecorder recorder = new MatchRecorder(SilentEvents.INSTANCE);
+
+  /**
+   * The record of the last replay of a full record.
+   */
+  private byte[] replayed;
+
+  /**
+   * Winner of the last replay, or null if it stopped before the match ended.
+   */
+  private String winner;
+
+  /**
+   * Constructs a replayer for a log.
+   * @param log MatchLog holding the matches to replay
+   */
+  public MatchReplayer(MatchLog log){
+    this.log = log;
+  }
+
+  /**
+   * Replays a recorded match up to the start of the given turn.
+   * @param index long representing the match to replay, in log order
+   * @param stopTurn int representing the turn to stop at, 10 to replay the whole match
+   * @return GameControl positioned at the start of stopTurn, or at the end of the match if it ended before then
+   */
+  public GameControl replay(long index, int stopTurn){
+    long remaining = index;
+    for (long entry = this.log.first(); entry < this.log.end(); entry = this.log.next(entry)) {
+      int matches = this.log.isRange(entry) ? this.log.rangeSize(entry) : 1;
+      if (remaining < matches) {
+        return replay(entry, (int) remaining, stopTurn);
+      }
+      remaining -= matches;
+    }
+    throw new IndexOutOfBoundsException("Match " + index + " past the end of the log");
+  }
+
+  /**
+   * Replays one match of a log entry up to the start of the given turn.
+   * @param entry long representing the position of the entry
+   * @param match int representing the match within a range entry, 0 for a record
+   * @param stopTurn int representing the turn to stop at, 10 to replay the whole match
+   * @return GameControl positioned at the start of stopTurn, or at the end of the match if it ended before then
+   */
+  private GameControl replay(long entry, int match, int stopTurn){
+    if (this.log.isRange(entry)) {
+      GameControl game = new GameControl(this.log.rangeSeed(entry) + match);
+      game.setEvents(SilentEvents.INSTANCE);
+      this.winner = game.playUntil(stopTurn, true);
+      return game;
+    }
+
+    this.log.read(entry, this.record);
+    long seed = ByteBuffer.wrap(this.record).getLong(0);
+    int flags = this.record[8];
+    boolean scripted = (flags & MatchRecorder.SCRIPTED) != 0;
+
+    GameControl game = new GameControl(seed);
+    game.setEvents(this.recorder);
+    if ((flags & MatchRecorder.SEARCH) != 0) {
+      game.computer.setPlanner(new SearchPlanner());
+    }
+    Unit[] units = {game.human.getFalia(), game.human.getErom(), game.human.getAma(),
+        game.computer.getCriati(), game.computer.getLedde(), game.computer.getTyllion()};
+    for (int i = 0; i < units.length; i++) {
+      if (MatchRecorder.rosterByte(units[i]) != this.record[12 + i]) {
+        throw new IllegalStateException("Record at " + entry + " does not match the roster of seed " + seed);
+      }
+    }
+    if (!scripted) {
+      game.human.setCommands(humanMoves(units));
+    }
+
+    this.recorder.begin(game, scripted);
+    this.winner = game.playUntil(stopTurn, scripted);
+    this.replayed = this.recorder.finish(this.winner, game.getTurn());
+    return game;
+  }
+
+  /**
+   * Rebuilds the input a human typed from the human actions of the current record.
+   * Lost moves are replayed as an invalid move, which has the same effect.
+   * @param units Unit array of the match, human units first
+   * @return QueueCommands holding the moves and target names
+   */
+  private QueueCommands humanMoves(Unit[] units){
+    QueueCommands moves = new QueueCommands();
+    int actions = this.record[11];
+    for (int i = 0; i < actions; i++) {
+      int action = this.record[MatchRecorder.ACTIONS + i] & 0xff;
+      if (MatchRecorder.side(action) != 0) {
+        continue;
+      }
+      int kind = MatchRecorder.kind(action);
+      if (kind == MatchRecorder.ATTACK) {
+        moves.add("a", units[3 + MatchRecorder.target(action)].name);
+      } else if (kind == MatchRecorder.BLOCK) {
+        moves.add("b");
+      } else {
+        moves.add("x");
+      }
+    }
+    return moves;
+  }
+
+  /**
+   * Replays a whole match and checks that it plays out exactly as recorded.
+   * @param entry long representing the position of the entry
+   * @param match int representing the match within a range entry, 0 for a record
+   * @return boolean true if the replay gives the same record, or for a range the same winner and turn
+   */
+  public boolean verify(long entry, int match){
+    GameControl game = replay(entry, match, 10);
+    if (this.log.isRange(entry)) {
+      return this.log.outcome(entry, match) == MatchLog.packOutcome(this.winner, game.getTurn());
+    }
+    return Arrays.equals(this.record, this.replayed);
+  }
+
+  /**
+   * Replays a match log.
+   * With only a file, replays and checks every match and prints replays per second.
+   * With a match index and a turn, replays that match up to the start of the turn and prints the units' status.
+   * Run with -Drpg.decisionCache=true to print the DecisionCache's hit rate after checking every match.
+   * @param args match log file, then optionally the match index and the turn to stop at
+   */
+  public static void main(String[] args){
+    try (MatchLog log = MatchLog.open(Path.of(args[0]))) {
+      MatchReplayer replayer = new MatchReplayer(log);
+
+      if (args.length > 1) {
+        long index = Long.parseLong(args[1]);
+        int stopTurn = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        GameControl game = replayer.replay(index, stopTurn);
+        String winner = game.getWinner(game.getTurn());
+        game.setEvents(ConsoleEvents.STANDARD);
+        ConsoleEvents.STANDARD.message("Match " + index + " (seed " + game.getSeed() + ") at turn " + game.getTurn()
+            + (winner != null ? ", winner: " + winner : ""));
+        game.printStatus();
+        ConsoleEvents.STANDARD.flush();
+        return;
+      }
+
+      long start = System.nanoTime();
+      long mismatches = 0;
+      for (long entry = log.first(); entry < log.end(); entry = log.next(entry)) {
+        int matches = log.isRange(entry) ? log.rangeSize(entry) : 1;
+        for (int i = 0; i < matches; i++) {
+          if (!replayer.verify(entry, i)) {
+            mismatches++;
+          }
+        }
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.println("Replayed " + log.size() + " matches in " + String.format("%.2f", seconds) + " s ("
+          + String.format("%.0f", log.size() / seconds) + " matches per second), " + mismatches + " mismatches");
+      if (DecisionCache.SHARED != null) {
+        System.out.println(DecisionCache.SHARED);
+      }
+    }
+  }
+}
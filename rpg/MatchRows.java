@@ -0,0 +1,122 @@
+package rpg;
+
+/**
+ * A block of finished matches laid out by column, filled by one simulation task and written by a ResultStream:
+ * for every match the seed, every unit's job and level, the winner, the turn it ended on and each side's HP left.
+ * Blocks are reused, so a stream's memory stays the same however many matches go through it.
+ */
+final class MatchRows {
+
+  /**
+   * Winner code of a match the human side won.
+   */
+  static final byte HUMAN_WON = 0;
+
+  /**
+   * Winner code of a match the computer side won.
+   */
+  static final byte COMPUTER_WON = 1;
+
+  /**
+   * Winner code of a tie.
+   */
+  static final byte TIE = 2;
+
+  /**
+   * Number of units on each side.
+   */
+  final int unitsPerSide;
+
+  /**
+   * Number of matches the block holds.
+   */
+  final int capacity;
+
+  /**
+   * Number of matches in the block.
+   */
+  int size;
+
+  /**
+   * Seed of every match.
+   */
+  final long[] seed;
+
+  /**
+   * Job ordinal of every unit, by slot (human units, then computer units) and then by match: match m's unit in slot s
+   * is at s * capacity + m.
+   */
+  final byte[] job;
+
+  /**
+   * Level of every unit, laid out like job.
+   */
+  final byte[] level;
+
+  /**
+   * Winner code of every match.
+   */
+  final byte[] winner;
+
+  /**
+   * Turn every match ended on, 10 if it went all 10 turns.
+   */
+  final byte[] turn;
+
+  /**
+   * Combined HP the human side had left in every match.
+   */
+  final int[] humanHp;
+
+  /**
+   * Combined HP the computer side had left in every match.
+   */
+  final int[] computerHp;
+
+  /**
+   * Constructs an empty block.
+   * @param unitsPerSide int representing the number of units on each side
+   * @param capacity int representing the number of matches the block holds
+   */
+  MatchRows(int unitsPerSide, int capacity){
+    this.unitsPerSide = unitsPerSide;
+    this.capacity = capacity;
+    this.seed = new long[capacity];
+    this.job = new byte[2 * unitsPerSide * capacity];
+    this.level = new byte[2 * unitsPerSide * capacity];
+    this.winner = new byte[capacity];
+    this.turn = new byte[capacity];
+    this.humanHp = new int[capacity];
+    this.computerHp = new int[capacity];
+  }
+
+  /**
+   * Adds a finished match.
+   * Note: This method does not return anything.
+   * @param seed long representing the match seed
+   * @param state BattleState holding the match's units in battle 0 as they ended
+   * @param winner String returned by GameControl.getWinner: "human", "computer" or "tie"
+   * @param turn int representing the turn the match ended on
+   */
+  void add(long seed, BattleState state, String winner, int turn){
+    int row = this.size++;
+    this.seed[row] = seed;
+    for (int slot = 0; slot < 2 * this.unitsPerSide; slot++) {
+      this.job[slot * this.capacity + row] = state.job[slot];
+      this.level[slot * this.capacity + row] = (byte) state.level[slot];
+    }
+    this.winner[row] = "human".equals(winner) ? HUMAN_WON : "computer".equals(winner) ? COMPUTER_WON : TIE;
+    this.turn[row] = (byte) turn;
+    this.humanHp[row] = state.hpSum(0, BattleState.HUMAN);
+    this.computerHp[row] = state.hpSum(0, BattleState.COMPUTER);
+  }
+
+  /**
+   * Returns the name of a winner code, as GameControl.getWinner gives it.
+   * @param code byte representing the winner code
+   * @return String "human", "computer" or "tie"
+   */
+  static String winnerName(byte code){
+    return code == HUMAN_WON ? "human" : code == COMPUTER_WON ? "computer" : "tie";
+  }
+}
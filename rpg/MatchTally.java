@@ -0,0 +1,246 @@
+package rpg;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Holds the win, tie, match length and HP left counts of a batch of simulated matches.
+ * Every count is a plain sum, so tallies merged in any order give the same result.
+ */
+public class MatchTally {
+
+  /**
+   * HP covered by one bucket of the HP left histograms.
+   */
+  public static final int HP_BUCKET = 10;
+
+  /**
+   * Number of buckets in the HP left histograms; the last one holds everything from (HP_BUCKETS - 1) * HP_BUCKET up.
+   */
+  public static final int HP_BUCKETS = 32;
+
+  /**
+   * Number of matches won by the human player.
+   */
+  long humanWins = 0;
+
+  /**
+   * Number of matches won by the computer player.
+   */
+  long computerWins = 0;
+
+  /**
+   * Number of matches that ended in a tie.
+   */
+  long ties = 0;
+
+  /**
+   * Number of matches by the turn they ended on, from 0 to 10 (10 meaning the game went all 10 turns).
+   */
+  long[] turnCounts = new long[11];
+
+  /**
+   * Number of matches by the human side's combined HP at the end, in buckets of HP_BUCKET.
+   */
+  long[] humanHpCounts = new long[HP_BUCKETS];
+
+  /**
+   * Number of matches by the computer side's combined HP at the end, in buckets of HP_BUCKET.
+   */
+  long[] computerHpCounts = new long[HP_BUCKETS];
+
+  /**
+   * Combined HP the human side had left, summed over all matches.
+   */
+  long humanHp = 0;
+
+  /**
+   * Combined HP the computer side had left, summed over all matches.
+   */
+  long computerHp = 0;
+
+  /**
+   * Counts one finished match.
+   * Note: This method does not return anything.
+   * @param winner String returned by GameControl.getWinner: "human", "computer" or "tie"
+   * @param turn int representing the turn the match ended on
+   */
+  public void record(String winner, int turn){
+    if ("human".equals(winner)) {
+      this.humanWins++;
+    } else if ("computer".equals(winner)) {
+      this.computerWins++;
+    } else {
+      this.ties++;
+    }
+    this.turnCounts[turn]++;
+  }
+
+  /**
+   * Counts one finished match along with the HP each side had left.
+   * Note: This method does not return anything.
+   * @param winner String returned by GameControl.getWinner: "human", "computer" or "tie"
+   * @param turn int representing the turn the match ended on
+   * @param humanHp int representing the human side's combined HP at the end
+   * @param computerHp int representing the computer side's combined HP at the end
+   */
+  public void record(String winner, int turn, int humanHp, int computerHp){
+    record(winner, turn);
+    this.humanHpCounts[Math.min(humanHp / HP_BUCKET, HP_BUCKETS - 1)]++;
+    this.computerHpCounts[Math.min(computerHp / HP_BUCKET, HP_BUCKETS - 1)]++;
+    this.humanHp += humanHp;
+    this.computerHp += computerHp;
+  }
+
+  /**
+   * Adds the counts of another tally to this one.
+   * @param other MatchTally to add to this one
+   * @return this tally
+   */
+  public MatchTally merge(MatchTally other){
+    this.humanWins += other.humanWins;
+    this.computerWins += other.computerWins;
+    this.ties += other.ties;
+    for (int i = 0; i < this.turnCounts.length; i++) {
+      this.turnCounts[i] += other.turnCounts[i];
+    }
+    for (int b = 0; b < HP_BUCKETS; b++) {
+      this.humanHpCounts[b] += other.humanHpCounts[b];
+      this.computerHpCounts[b] += other.computerHpCounts[b];
+    }
+    this.humanHp += other.humanHp;
+    this.computerHp += other.computerHp;
+    return this;
+  }
+
+  /**
+   * Writes every count, so another process can read the tally back with read and merge it.
+   * Note: This method does not return anything.
+   * @param out DataOutput to write to
+   * @throws IOException if the write fails
+   */
+  public void write(DataOutput out) throws IOException {
+    out.writeLong(this.humanWins);
+    out.writeLong(this.computerWins);
+    out.writeLong(this.ties);
+    for (long count : this.turnCounts) {
+      out.writeLong(count);
+    }
+    for (int b = 0; b < HP_BUCKETS; b++) {
+      out.writeLong(this.humanHpCounts[b]);
+      out.writeLong(this.computerHpCounts[b]);
+    }
+    out.writeLong(this.humanHp);
+    out.writeLong(this.computerHp);
+  }
+
+  /**
+   * Reads a tally written by write.
+   * @param in DataInput to read from
+   * @return MatchTally with the counts read
+   * @throws IOException if the read fails or ends early
+   */
+  public static MatchTally read(DataInput in) throws IOException {
+    MatchTally tally = new MatchTally();
+    tally.humanWins = in.readLong();
+    tally.computerWins = in.readLong();
+    tally.ties = in.readLong();
+    for (int i = 0; i < tally.turnCounts.length; i++) {
+      tally.turnCounts[i] = in.readLong();
+    }
+    for (int b = 0; b < HP_BUCKETS; b++) {
+      tally.humanHpCounts[b] = in.readLong();
+      tally.computerHpCounts[b] = in.readLong();
+    }
+    tally.humanHp = in.readLong();
+    tally.computerHp = in.readLong();
+    return tally;
+  }
+
+  /**
+   * Returns the total number of matches counted.
+   * Note: This method does not take any parameters.
+   * @return long representing the number of matches
+   */
+  public long getMatches(){
+    return this.humanWins + this.computerWins + this.ties;
+  }
+
+  /**
+   * Returns the number of matches won by the human player.
+   * Note: This method does not take any parameters.
+   * @return humanWins
+   */
+  public long getHumanWins(){
+    return this.humanWins;
+  }
+
+  /**
+   * Returns the number of matches won by the computer player.
+   * Note: This method does not take any parameters.
+   * @return computerWins
+   */
+  public long getComputerWins(){
+    return this.computerWins;
+  }
+
+  /**
+   * Returns the number of matches that ended in a tie.
+   * Note: This method does not take any parameters.
+   * @return ties
+   */
+  public long getTies(){
+    return this.ties;
+  }
+
+  /**
+   * Returns the number of matches that ended with a side's combined HP in a bucket.
+   * @param side int representing the side, BattleState.HUMAN or BattleState.COMPUTER
+   * @param bucket int representing the bucket, from 0 to HP_BUCKETS - 1, covering HP_BUCKET HP each
+   * @return long representing the number of matches
+   */
+  public long getHpCount(int side, int bucket){
+    return (side == BattleState.HUMAN ? this.humanHpCounts : this.computerHpCounts)[bucket];
+  }
+
+  /**
+   * Returns the average combined HP a side had left at the end of a match.
+   * @param side int representing the side, BattleState.HUMAN or BattleState.COMPUTER
+   * @return double representing the average HP left
+   */
+  public double getAverageHp(int side){
+    return (double) (side == BattleState.HUMAN ? this.humanHp : this.computerHp) / Math.max(getMatches(), 1);
+  }
+
+  /**
+   * Returns the average number of turns played per match, counting a match that ended on turn t as t + 1 turns.
+   * Note: This method does not take any parameters.
+   * @return double representing the average match length in turns
+   */
+  public double getAverageTurns(){
+    long matches = getMatches();
+    if (matches == 0) {
+      return 0;
+    }
+
+    long turns = 0;
+    for (int i = 0; i < this.turnCounts.length; i++) {
+      // a match that went the distance played turns 0 to 9
+      turns += this.turnCounts[i] * Math.min(i + 1, 10);
+    }
+    return (double) turns / matches;
+  }
+
+  /**
+   * Returns a one-line summary of the win and tie distribution.
+   * Note: This method does not take any parameters.
+   * @return String summarizing this tally
+   */
+  @Override
+  public String toString(){
+    long matches = Math.max(getMatches(), 1);
+    return String.format("human %.2f%%, computer %.2f%%, tie %.2f%%, average length %.2f turns",
+        100.0 * this.humanWins / matches, 100.0 * this.computerWins / matches,
+        100.0 * this.ties / matches, getAverageTurns());
+  }
+}
@@ -0,0 +1,76 @@
+package rpg;
+
+/**
+ * Precomputed job matchups shared by both players. The damage multiplier of each strength is part of BalanceRules.
+ * Mages are strong against knights, knights against archers, and archers against mages.
+ */
+public final class Matchups {
+
+  /**
+   * Attacker strength for every attacker job and target job, indexed by attacker ordinal * 3 + target ordinal.
+   */
+  static final Strength[] TABLE = buildTable();
+
+  /**
+   * Damage multiplier for every attacker strength in the original game, indexed by Strength ordinal;
+   * only the starting values of BalanceRules, which every game reads its multipliers from.
+   */
+  static final double[] MULTIPLIERS = {1.2, 1.0, 0.5};
+
+  /**
+   * Not instantiable; all lookups are static.
+   */
+  private Matchups(){
+  }
+
+  /**
+   * Builds the job by job matchup table.
+   * Note: This method does not take any parameters.
+   * @return Strength array indexed by attacker ordinal * 3 + target ordinal
+   */
+  private static Strength[] buildTable(){
+    Strength[] table = new Strength[9];
+    for (Job attacker : Job.VALUES) {
+      for (Job target : Job.VALUES) {
+        Strength strength;
+        if (attacker == target) {
+          strength = Strength.SAME;
+        } else if ((attacker == Job.KNIGHT && target == Job.ARCHER) ||
+                   (attacker == Job.ARCHER && target == Job.MAGE) ||
+                   (attacker == Job.MAGE && target == Job.KNIGHT)) {
+          strength = Strength.STRONG;
+        } else {
+          strength = Strength.WEAK;
+        }
+        table[attacker.ordinal() * 3 + target.ordinal()] = strength;
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Returns the strength of an attacker with the given job against a target with the given job.
+   * @param attacker Job of the attacking unit
+   * @param target Job of the unit being attacked
+   * @return Strength of the attacker relative to the target
+   */
+  public static Strength strength(Job attacker, Job target){
+    return TABLE[attacker.ordinal() * 3 + target.ordinal()];
+  }
+
+  /**
+   * Returns the strength of the attacker relative to the target.
+   * Units with a job outside of mage, knight and archer are compared by name: the same job is "same", anything else is "weak".
+   * @param attacker Unit that is attacking the target
+   * @param target Unit that is being attacked
+   * @return Strength of the attacker relative to the target
+   */
+  public static Strength strength(Unit attacker, Unit target){
+    Job attackerJob = attacker.getJobType();
+    Job targetJob = target.getJobType();
+    if (attackerJob != null && targetJob != null) {
+      return TABLE[attackerJob.ordinal() * 3 + targetJob.ordinal()];
+    }
+    return attacker.getJob().equalsIgnoreCase(target.getJob()) ? Strength.SAME : Strength.WEAK;
+  }
+}
@@ -0,0 +1,69 @@
+package rpg;
+
+/**
+ * Picks a unit's move from a BattleState, so a side's behavior can be played out without Unit objects.
+ * Moves are encoded as ints: an attack packs the target's position on the other side and the strength used,
+ * the other moves are the negative constants below.
+ */
+public interface MovePolicy {
+
+  /**
+   * The unit blocks.
+   */
+  int BLOCK = -1;
+
+  /**
+   * The unit does nothing, for example because it is knocked out.
+   */
+  int SKIP = -2;
+
+  /**
+   * The unit does nothing and the rest of its side does not move this turn either.
+   */
+  int END_TURN = -3;
+
+  /**
+   * All strengths in ordinal order, for decoding moves.
+   */
+  Strength[] STRENGTHS = Strength.values();
+
+  /**
+   * Picks the move of one unit.
+   * @param state BattleState holding the battle
+   * @param battle int representing the battle
+   * @param side int representing the moving unit's side, BattleState.HUMAN or BattleState.COMPUTER
+   * @param unit int representing the moving unit's position on its side
+   * @param blocksUsed int representing the number of blocks the side already used this turn
+   * @param blockAllowance int representing the side's alive units at the start of the turn minus one
+   * @return int representing the move: an attack from attack(), BLOCK, SKIP or END_TURN
+   */
+  int choose(BattleState state, int battle, int side, int unit, int blocksUsed, int blockAllowance);
+
+  /**
+   * Encodes an attack.
+   * @param target int representing the target's position on the other side
+   * @param strength Strength the damage is calculated with
+   * @return int representing the move
+   */
+  static int attack(int target, Strength strength){
+    return target << 2 | strength.ordinal();
+  }
+
+  /**
+   * Returns the target's position of an attack move.
+   * @param move int representing an attack move
+   * @return int representing the target's position on the other side
+   */
+  static int target(int move){
+    return move >> 2;
+  }
+
+  /**
+   * Returns the strength of an attack move.
+   * @param move int representing an attack move
+   * @return Strength the damage is calculated with
+   */
+  static Strength strength(int move){
+    return STRENGTHS[move & 3];
+  }
+}
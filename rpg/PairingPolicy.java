@@ -0,0 +1,24 @@
+package rpg;
+
+/**
+ * The fixed computer turn of GameControl.takeComputerTurn: unit i attacks the enemy unit at the same position
+ * as "strong", whether or not either unit is still alive.
+ */
+public final class PairingPolicy implements MovePolicy {
+
+  /**
+   * The shared instance; the policy holds no state.
+   */
+  public static final PairingPolicy INSTANCE = new PairingPolicy();
+
+  /**
+   * Use INSTANCE instead.
+   */
+  private PairingPolicy(){
+  }
+
+  @Override
+  public int choose(BattleState state, int battle, int side, int unit, int blocksUsed, int blockAllowance){
+    return MovePolicy.attack(unit, Strength.STRONG);
+  }
+}
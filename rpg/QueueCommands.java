@@ -0,0 +1,54 @@
+package rpg;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+/**
+ * Hands out commands queued in memory, for bots and regression runs that decide the human side's moves in code.
+ */
+public final class QueueCommands implements CommandSource {
+
+  /**
+   * Commands not handed out yet.
+   */
+  private final ArrayDeque<String> commands = new ArrayDeque<>();
+
+  /**
+   * Queues commands, each one a move or a target name.
+   * @param commands String values to queue, in order
+   * @return this source
+   */
+  public QueueCommands add(String... commands){
+    for (String command : commands) {
+      this.commands.addLast(command);
+    }
+    return this;
+  }
+
+  /**
+   * Queues every command of a line such as "a Criati b a Ledde", for example a whole turn.
+   * @param line String of commands separated by whitespace
+   * @return this source
+   */
+  public QueueCommands addLine(String line){
+    LineCommands.split(line, this.commands);
+    return this;
+  }
+
+  /**
+   * Returns the number of commands not handed out yet.
+   * Note: This method does not take any parameters.
+   * @return int representing the queued commands
+   */
+  public int size(){
+    return this.commands.size();
+  }
+
+  @Override
+  public String next(){
+    String command = this.commands.pollFirst();
+    if (command == null) {
+      throw new NoSuchElementException("No more queued commands");
+    }
+    return command;
+  }
+}
@@ -0,0 +1,510 @@
+package rpg;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes one row per simulated match to a file while the simulation runs, and keeps win rates by job composition
+ * and level band alongside. Simulation tasks fill blocks of MatchRows and hand them to one writer thread; the blocks
+ * are reused, so memory stays the same at any match count. A task never waits for a block: when none is free it writes
+ * a filled one itself and reuses it, so tasks slow down to the pace of the file instead of parking pool threads, and
+ * only when every block is being filled does it add a new one. Blocks arrive in the order tasks finish, not in seed
+ * order. If the writer stops early, or a task fails while holding a block, the stream fails: acquire throws from then
+ * on and close reports the failure.
+ *
+ * The columnar format starts with the magic number, the format version and the units per side, followed by blocks:
+ * the number of rows, then each column for all of the block's rows (seeds, then every slot's jobs, then every slot's
+ * levels, then winner codes, turns, human HP and computer HP), and a block of 0 rows at the end. The CSV format has
+ * a header and the same values one row per match, with jobs and winners by name.
+ */
+public class ResultStream implements AutoCloseable {
+
+  /**
+   * First int of a columnar file, "RPGC".
+   */
+  static final int MAGIC = 0x52504743;
+
+  /**
+   * Version of the columnar format.
+   */
+  static final int VERSION = 1;
+
+  /**
+   * Number of blocks a stream starts with: two for every worker of the common pool, so each worker can fill one while
+   * the writer holds another. More are added only if every block is being filled at once.
+   */
+  static final int BLOCKS = 2 * Math.max(ForkJoinPool.getCommonPoolParallelism(), 1);
+
+  /**
+   * Number of matches per block, one simulation task's worth.
+   */
+  static final int BLOCK_ROWS = BatchSimulator.SPLIT_THRESHOLD;
+
+  /**
+   * Level band names, by band.
+   */
+  private static final String[] BANDS = {"low", "medium", "high"};
+
+  /**
+   * Number of units on each side.
+   */
+  private final int unitsPerSide;
+
+  /**
+   * Rules the matches are played under, for the level bands.
+   */
+  private final BalanceRules rules;
+
+  /**
+   * True to write CSV instead of the columnar format.
+   */
+  private final boolean csv;
+
+  /**
+   * The file being written.
+   */
+  private final DataOutputStream out;
+
+  /**
+   * Blocks ready to be filled.
+   */
+  private final Queue<MatchRows> free = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Filled blocks waiting for the writer, followed by an empty block once the stream is closed.
+   */
+  private final BlockingQueue<MatchRows> filled = new LinkedBlockingQueue<>();
+
+  /**
+   * Counts of every group seen, by group key (see groupKey): matches, human wins, computer wins, ties.
+   * Only touched while writing a block.
+   */
+  private final Map<Long, long[]> groups = new TreeMap<>();
+
+  /**
+   * Thread writing the blocks and counting the groups.
+   */
+  private final Thread writer;
+
+  /**
+   * Number of rows written.
+   */
+  private long rows;
+
+  /**
+   * First failure, of a write, of the writer or of a task holding a block, after which blocks are still drained but
+   * no longer written.
+   */
+  private volatile IOException failure;
+
+  /**
+   * True once the writer no longer takes blocks; filled blocks then go straight back to the free queue.
+   */
+  private volatile boolean stopped;
+
+  /**
+   * Opens a stream writing to a file, which is replaced if it exists.
+   * @param path Path of the file
+   * @param csv boolean true to write CSV, false for the columnar format
+   * @param unitsPerSide int representing the number of units on each side
+   * @param rules BalanceRules the matches are played under
+   * @throws IOException if the file cannot be created
+   */
+  public ResultStream(Path path, boolean csv, int unitsPerSide, BalanceRules rules) throws IOException {
+    this.unitsPerSide = unitsPerSide;
+    this.rules = rules;
+    this.csv = csv;
+    this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+    for (int b = 0; b < BLOCKS; b++) {
+      this.free.add(new MatchRows(unitsPerSide, BLOCK_ROWS));
+    }
+    if (csv) {
+      this.out.write(csvHeader(unitsPerSide).getBytes(StandardCharsets.US_ASCII));
+    } else {
+      this.out.writeInt(MAGIC);
+      this.out.writeInt(VERSION);
+      this.out.writeInt(unitsPerSide);
+    }
+    this.writer = new Thread(this::writeLoop, "rpg-results");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Takes an empty block to fill. If none is free, writes a filled one first and takes it, and if none is filled
+   * either, every block is in a task's hands and a new one is made.
+   * Note: This method does not take any parameters.
+   * @return MatchRows to fill with at most BLOCK_ROWS matches and hand back with submit, or with abandon if filling fails
+   * @throws IllegalStateException if the writer has stopped
+   */
+  MatchRows acquire(){
+    if (this.stopped) {
+      throw new IllegalStateException("The result writer has stopped", this.failure);
+    }
+    MatchRows block = this.free.poll();
+    if (block == null) {
+      // rather than wait for the writer, do its work
+      block = this.filled.poll();
+      if (block != null) {
+        write(block);
+        block.size = 0;
+      } else {
+        block = new MatchRows(this.unitsPerSide, BLOCK_ROWS);
+      }
+    }
+    return block;
+  }
+
+  /**
+   * Hands a filled block to the writer, or straight back to the free queue if it is empty or the writer has stopped.
+   * Note: This method does not return anything.
+   * @param block MatchRows taken with acquire
+   */
+  void submit(MatchRows block){
+    if (this.stopped || block.size == 0) {
+      // an empty block has nothing to write, and in the columnar format would read back as the end of the file
+      release(block);
+      return;
+    }
+    this.filled.add(block);
+    if (this.stopped) {
+      // the writer stopped while the block went in, and may have missed it
+      recycle();
+    }
+  }
+
+  /**
+   * Hands back a block whose task failed before filling it, and fails the stream since its rows are missing.
+   * Note: This method does not return anything.
+   * @param block MatchRows taken with acquire
+   */
+  void abandon(MatchRows block){
+    fail(new IOException("A simulation task failed before handing in its rows"));
+    release(block);
+  }
+
+  /**
+   * Empties a block and puts it back in the free queue.
+   * Note: This method does not return anything.
+   * @param block MatchRows to put back
+   */
+  private void release(MatchRows block){
+    block.size = 0;
+    this.free.add(block);
+  }
+
+  /**
+   * Moves every filled block back to the free queue once the writer has stopped, dropping the empty end block.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void recycle(){
+    for (MatchRows block = this.filled.poll(); block != null; block = this.filled.poll()) {
+      if (block.capacity > 0) {
+        release(block);
+      }
+    }
+  }
+
+  /**
+   * Keeps the first failure of the stream.
+   * Note: This method does not return anything.
+   * @param e IOException describing the failure
+   */
+  private synchronized void fail(IOException e){
+    if (this.failure == null) {
+      this.failure = e;
+    }
+  }
+
+  /**
+   * Writes and counts blocks until the zero-capacity block that ends the stream, returning every block to the free
+   * queue. If the writer is interrupted or fails, the stream fails and every block goes back to the tasks.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void writeLoop(){
+    try {
+      while (true) {
+        MatchRows block = this.filled.take();
+        if (block.capacity == 0) {
+          return;
+        }
+        write(block);
+        release(block);
+      }
+    } catch (InterruptedException e) {
+      fail(new InterruptedIOException("The result writer was interrupted"));
+      stop();
+    } catch (RuntimeException | Error e) {
+      fail(new IOException("The result writer failed", e));
+      stop();
+      throw e;
+    }
+  }
+
+  /**
+   * Counts a filled block and writes it unless the stream has failed; one block at a time, by the writer or a task.
+   * Note: This method does not return anything.
+   * @param block MatchRows to write
+   */
+  private synchronized void write(MatchRows block){
+    count(block);
+    if (this.failure == null) {
+      try {
+        if (this.csv) {
+          writeCsv(block, this.out);
+        } else {
+          writeColumns(block);
+        }
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+    this.rows += block.size;
+  }
+
+  /**
+   * Marks the writer as stopped and hands every filled block back.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void stop(){
+    this.stopped = true;
+    recycle();
+  }
+
+  /**
+   * Writes a block in the columnar format.
+   * Note: This method does not return anything.
+   * @param block MatchRows to write
+   * @throws IOException if the write fails
+   */
+  private void writeColumns(MatchRows block) throws IOException {
+    DataOutputStream out = this.out;
+    int size = block.size;
+    out.writeInt(size);
+    for (int row = 0; row < size; row++) {
+      out.writeLong(block.seed[row]);
+    }
+    for (int slot = 0; slot < 2 * this.unitsPerSide; slot++) {
+      out.write(block.job, slot * block.capacity, size);
+    }
+    for (int slot = 0; slot < 2 * this.unitsPerSide; slot++) {
+      out.write(block.level, slot * block.capacity, size);
+    }
+    out.write(block.winner, 0, size);
+    out.write(block.turn, 0, size);
+    for (int row = 0; row < size; row++) {
+      out.writeInt(block.humanHp[row]);
+    }
+    for (int row = 0; row < size; row++) {
+      out.writeInt(block.computerHp[row]);
+    }
+  }
+
+  /**
+   * Writes a block as CSV rows.
+   * Note: This method does not return anything.
+   * @param block MatchRows to write
+   * @param out OutputStream to write to
+   * @throws IOException if the write fails
+   */
+  private static void writeCsv(MatchRows block, OutputStream out) throws IOException {
+    StringBuilder line = new StringBuilder(128);
+    byte[] bytes = new byte[128];
+    for (int row = 0; row < block.size; row++) {
+      line.setLength(0);
+      line.append(block.seed[row]);
+      for (int slot = 0; slot < 2 * block.unitsPerSide; slot++) {
+        line.append(',').append(Job.VALUES[block.job[slot * block.capacity + row]].label())
+            .append(',').append(block.level[slot * block.capacity + row]);
+      }
+      line.append(',').append(MatchRows.winnerName(block.winner[row])).append(',').append(block.turn[row])
+          .append(',').append(block.humanHp[row]).append(',').append(block.computerHp[row]).append('\n');
+      if (bytes.length < line.length()) {
+        bytes = new byte[line.length() * 2];
+      }
+      for (int i = 0; i < line.length(); i++) {
+        bytes[i] = (byte) line.charAt(i);
+      }
+      out.write(bytes, 0, line.length());
+    }
+  }
+
+  /**
+   * Returns the CSV header line.
+   * @param unitsPerSide int representing the number of units on each side
+   * @return String of the column names, ending in a line break
+   */
+  private static String csvHeader(int unitsPerSide){
+    StringBuilder header = new StringBuilder("seed");
+    for (int side = BattleState.HUMAN; side <= BattleState.COMPUTER; side++) {
+      String name = side == BattleState.HUMAN ? "human" : "computer";
+      for (int unit = 1; unit <= unitsPerSide; unit++) {
+        header.append(',').append(name).append(unit).append("Job,").append(name).append(unit).append("Level");
+      }
+    }
+    return header.append(",winner,turn,humanHp,computerHp\n").toString();
+  }
+
+  /**
+   * Counts every match of a block in its group.
+   * Note: This method does not return anything.
+   * @param block MatchRows to count
+   */
+  private void count(MatchRows block){
+    for (int row = 0; row < block.size; row++) {
+      long[] counts = this.groups.computeIfAbsent(groupKey(block, row), key -> new long[4]);
+      counts[0]++;
+      counts[1 + block.winner[row]]++;
+    }
+  }
+
+  /**
+   * Returns the group of a match: for each side, the number of mages and knights (the rest are archers) and the
+   * level band of the side's average level, 30 bits per side with the human side in the high bits.
+   * @param block MatchRows holding the match
+   * @param row int representing the match's row
+   * @return long representing the group key
+   */
+  private long groupKey(MatchRows block, int row){
+    long key = 0;
+    for (int side = BattleState.HUMAN; side <= BattleState.COMPUTER; side++) {
+      int mages = 0;
+      int knights = 0;
+      int levels = 0;
+      for (int unit = 0; unit < this.unitsPerSide; unit++) {
+        int slot = (side * this.unitsPerSide + unit) * block.capacity + row;
+        mages += block.job[slot] == Job.MAGE.ordinal() ? 1 : 0;
+        knights += block.job[slot] == Job.KNIGHT.ordinal() ? 1 : 0;
+        levels += block.level[slot];
+      }
+      int band = levels < this.rules.get("mediumLevel") * this.unitsPerSide ? 0
+          : levels < this.rules.get("highLevel") * this.unitsPerSide ? 1 : 2;
+      key = key << 30 | (long) mages << 16 | (long) knights << 2 | band;
+    }
+    return key;
+  }
+
+  /**
+   * Stops the stream once every block handed in so far is written, and closes the file.
+   * Note: This method does not take any parameters and does not return anything.
+   * @throws IOException if a write failed or the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.writer.isAlive()) {
+      this.filled.add(new MatchRows(this.unitsPerSide, 0));
+      try {
+        this.writer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while closing the result stream", e);
+      }
+      if (!this.csv && this.failure == null) {
+        this.out.writeInt(0);
+      }
+    }
+    this.out.close();
+    if (this.failure != null) {
+      throw this.failure;
+    }
+  }
+
+  /**
+   * Returns the number of rows written so far.
+   * Note: This method does not take any parameters.
+   * @return long representing the rows
+   */
+  public synchronized long getRows(){
+    return this.rows;
+  }
+
+  /**
+   * Prints the win rates of every group as CSV: each side's numbers of mages, knights and archers and level band,
+   * then the number of matches and the human, computer and tie rates. Call after close.
+   * Note: This method does not return anything.
+   * @param out PrintStream to print to
+   */
+  public void printGroups(PrintStream out){
+    out.println("humanMages,humanKnights,humanArchers,humanLevels,computerMages,computerKnights,computerArchers,"
+        + "computerLevels,matches,human,computer,tie");
+    for (Map.Entry<Long, long[]> group : this.groups.entrySet()) {
+      StringBuilder row = new StringBuilder();
+      for (int shift = 30; shift >= 0; shift -= 30) {
+        long side = group.getKey() >>> shift;
+        int mages = (int) (side >>> 16 & 0x3fff);
+        int knights = (int) (side >>> 2 & 0x3fff);
+        row.append(mages).append(',').append(knights).append(',').append(this.unitsPerSide - mages - knights)
+            .append(',').append(BANDS[(int) (side & 3)]).append(',');
+      }
+      long[] counts = group.getValue();
+      out.println(row.append(counts[0]).append(String.format(Locale.ROOT, ",%.4f,%.4f,%.4f", (double) counts[1] / counts[0],
+          (double) counts[2] / counts[0], (double) counts[3] / counts[0])));
+    }
+  }
+
+  /**
+   * Reads a columnar file back and prints it as CSV.
+   * Note: This method does not return anything.
+   * @param path Path of the columnar file
+   * @param output OutputStream to print the CSV to
+   * @throws IOException if the file cannot be read or is not a columnar result file
+   */
+  public static void toCsv(Path path, OutputStream output) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a result file: " + path);
+      }
+      int unitsPerSide = in.readInt();
+      BufferedOutputStream out = new BufferedOutputStream(output, 1 << 16);
+      out.write(csvHeader(unitsPerSide).getBytes(StandardCharsets.US_ASCII));
+      for (int size = in.readInt(); size > 0; size = in.readInt()) {
+        MatchRows block = new MatchRows(unitsPerSide, size);
+        for (int row = 0; row < size; row++) {
+          block.seed[row] = in.readLong();
+        }
+        in.readFully(block.job);
+        in.readFully(block.level);
+        in.readFully(block.winner);
+        in.readFully(block.turn);
+        for (int row = 0; row < size; row++) {
+          block.humanHp[row] = in.readInt();
+        }
+        for (int row = 0; row < size; row++) {
+          block.computerHp[row] = in.readInt();
+        }
+        block.size = size;
+        writeCsv(block, out);
+      }
+      out.flush();
+    }
+  }
+
+  /**
+   * Prints a columnar result file as CSV.
+   * @param args the path of the file
+   * @throws IOException if the file cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: java rpg.ResultStream results.bin");
+      return;
+    }
+    toCsv(Path.of(args[0]), System.out);
+  }
+}
@@ -0,0 +1,259 @@
+package rpg;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The units of one side, in turn order. A side has at least 3 units; the first three carry the classic names
+ * and further units repeat them with a number, such as "Falia2".
+ */
+public class Roster {
+
+  /**
+   * Smallest number of units a side can have.
+   */
+  public static final int MIN_SIZE = 3;
+
+  /**
+   * Largest number of units a side can have.
+   */
+  public static final int MAX_SIZE = 10_000;
+
+  /**
+   * Smallest roster that gets a TargetIndex; below it, scanning every unit is faster than keeping the index up to date.
+   */
+  static final int INDEX_MIN_SIZE = 32;
+
+  /**
+   * The units, in turn order.
+   */
+  final Unit[] units;
+
+  /**
+   * Index of the alive units by job and HP, built on the first target selection against a large roster.
+   */
+  private TargetIndex targetIndex;
+
+  /**
+   * True if the units report their HP changes to this roster, which then keeps alive and hpSum up to date.
+   */
+  private final boolean tracked;
+
+  /**
+   * Number of units with HP above 0, kept up to date if tracked.
+   */
+  private int alive;
+
+  /**
+   * Total HP of all units, kept up to date if tracked.
+   */
+  private int totalHp;
+
+  /**
+   * Units by lowercase name, built on the first lookup by name.
+   */
+  private Map<String, Unit> byName;
+
+  /**
+   * Constructs a roster of the given units, for example to pick a target among them.
+   * The units keep reporting to the roster of their player, so counts and sums are found by scanning.
+   * @param units Unit array in turn order; the roster keeps the array
+   */
+  public Roster(Unit[] units){
+    this(units, false);
+  }
+
+  /**
+   * Constructs a roster of the given units, optionally as the roster of their player.
+   * @param units Unit array in turn order; the roster keeps the array
+   * @param owner boolean true to have the units report every HP change to this roster, so it keeps its alive
+   *              count and HP sum up to date; a unit reports to one roster only, the last one that owned it
+   */
+  Roster(Unit[] units, boolean owner){
+    this.units = units;
+    this.tracked = owner;
+    if (owner) {
+      for (int i = 0; i < units.length; i++) {
+        units[i].roster = this;
+        units[i].rosterPosition = i;
+        this.totalHp += units[i].getHp();
+        if (units[i].getHp() > 0) {
+          this.alive++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Updates the alive count, HP sum and target index after a unit's HP changed. Called by the unit.
+   * Note: This method does not return anything.
+   * @param unit Unit whose HP changed
+   * @param oldHp int representing the unit's HP before the change
+   */
+  void hpChanged(Unit unit, int oldHp){
+    int hp = unit.getHp();
+    this.totalHp += hp - oldHp;
+    if (oldHp > 0 != hp > 0) {
+      this.alive += hp > 0 ? 1 : -1;
+    }
+    if (this.targetIndex != null) {
+      this.targetIndex.hpChanged(unit, oldHp);
+    }
+  }
+
+  /**
+   * Returns the name of the unit at a position, from the side's three classic names.
+   * @param names String array of the three classic names
+   * @param index int representing the unit's position in the roster
+   * @return String of the name, with a number appended after the first three units
+   */
+  static String name(String[] names, int index){
+    String name = names[index % names.length];
+    return index < names.length ? name : name + (index / names.length + 1);
+  }
+
+  /**
+   * Checks that a roster size is supported.
+   * @param size int representing the number of units
+   * @return int size
+   */
+  static int checkSize(int size){
+    if (size < MIN_SIZE || size > MAX_SIZE) {
+      throw new IllegalArgumentException("A side has " + MIN_SIZE + " to " + MAX_SIZE + " units: " + size);
+    }
+    return size;
+  }
+
+  /**
+   * Returns the number of units.
+   * Note: This method does not take any parameters.
+   * @return int representing the roster size
+   */
+  public int size(){
+    return this.units.length;
+  }
+
+  /**
+   * Returns the unit at a position.
+   * @param index int representing the position in turn order
+   * @return Unit at that position
+   */
+  public Unit get(int index){
+    return this.units[index];
+  }
+
+  /**
+   * Looks up a unit by name, ignoring case.
+   * @param name String representing the unit's name
+   * @return Unit with that name, or null if there is none
+   */
+  public Unit find(String name){
+    if (this.byName == null) {
+      this.byName = new HashMap<>(this.units.length * 2);
+      for (Unit unit : this.units) {
+        this.byName.putIfAbsent(unit.name.toLowerCase(Locale.ROOT), unit);
+      }
+    }
+    return this.byName.get(name.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Returns the index of alive units by job and HP for picking targets, building it on first use.
+   * Only player rosters of at least INDEX_MIN_SIZE units whose jobs are all known get an index.
+   * Note: This method does not take any parameters.
+   * @return TargetIndex of this roster, or null if targets are picked by scanning the roster
+   */
+  TargetIndex targetIndex(){
+    if (this.targetIndex == null && this.tracked && this.units.length >= INDEX_MIN_SIZE) {
+      for (Unit unit : this.units) {
+        if (unit.getJobType() == null) {
+          return null;
+        }
+      }
+      this.targetIndex = new TargetIndex(this);
+    }
+    return this.targetIndex;
+  }
+
+  /**
+   * Sets where every unit publishes what happens to it.
+   * Note: This method does not return anything.
+   * @param events CombatEvents to publish to
+   */
+  public void setEvents(CombatEvents events){
+    for (Unit unit : this.units) {
+      unit.setEvents(events);
+    }
+  }
+
+  /**
+   * Prints the current status of every unit.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  public void printStatus(){
+    for (Unit unit : this.units) {
+      unit.printCurrentStatus();
+    }
+  }
+
+  /**
+   * Counts the units that are currently alive (above 0 HP). O(1) for a player's roster.
+   * Note: This method does not take any parameters.
+   * @return int representing the number of alive units
+   */
+  public int countAlive(){
+    if (this.tracked) {
+      return this.alive;
+    }
+    int count = 0;
+    for (Unit unit : this.units) {
+      if (unit.getHp() > 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Determines if every unit is knocked out. O(1) for a player's roster.
+   * Note: This method does not take any parameters.
+   * @return boolean true if no unit has HP above 0
+   */
+  public boolean isKnockedOut(){
+    if (this.tracked) {
+      return this.alive == 0;
+    }
+    for (Unit unit : this.units) {
+      if (unit.getHp() > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds up the HP of every unit. O(1) for a player's roster.
+   * Note: This method does not take any parameters.
+   * @return int representing the side's total HP
+   */
+  public int hpSum(){
+    if (this.tracked) {
+      return this.totalHp;
+    }
+    int sum = 0;
+    for (Unit unit : this.units) {
+      sum += unit.getHp();
+    }
+    return sum;
+  }
+
+  /**
+   * Resets the temporary defensive buff of every unit back to 0.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  public void resetTemporaryDefense(){
+    for (Unit unit : this.units) {
+      unit.setTemporaryDefense(0);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package rpg;
+import java.io.InputStream;
+import java.util.Scanner;
+
+/**
+ * Reads commands one token at a time with a Scanner, as typed at the console.
+ */
+public final class ScannerCommands implements CommandSource {
+
+  /**
+   * The shared source for standard input, used by default. Created once, since every game reads the same stream.
+   */
+  public static final ScannerCommands STANDARD = new ScannerCommands(System.in);
+
+  /**
+   * The scanner tokens are read with.
+   */
+  private final Scanner scan;
+
+  /**
+   * Constructs a source reading from the given stream.
+   * @param stream InputStream to read commands from
+   */
+  public ScannerCommands(InputStream stream){
+    this.scan = new Scanner(stream);
+  }
+
+  @Override
+  public String next(){
+    return this.scan.next();
+  }
+}
@@ -0,0 +1,398 @@
+package rpg;
+
+/**
+ * Expectimax search over the computer's attack, block, and target choices.
+ * From the moving computer unit, the search plays out the rest of the computer turn (maximizing),
+ * then the human's reply (modeled with the scripted human policy, see BattleState.selectOptimalTarget),
+ * for a configurable number of rounds. Every attack is a chance node over the target's dodge roll.
+ * Evaluations are cached in a fixed-size transposition table, so memory stays bounded.
+ */
+public class SearchPlanner {
+
+  /**
+   * Move returned when the unit should block instead of attacking.
+   */
+  public static final int BLOCK = -1;
+
+  /**
+   * Score of a won game, before adding the HP difference.
+   */
+  static final double WIN = 10000;
+
+  /**
+   * Weight of each alive unit in the evaluation of unfinished games.
+   */
+  static final double ALIVE_WEIGHT = 10;
+
+  /**
+   * Number of full rounds (rest of the computer turn plus the human reply) to search.
+   */
+  private final int rounds;
+
+  /**
+   * Keys of the transposition table; 0 marks an empty entry.
+   */
+  private final long[] keys;
+
+  /**
+   * Cached values of the transposition table, aligned with keys.
+   */
+  private final double[] values;
+
+  /**
+   * Mask turning a hash into a table index.
+   */
+  private final int mask;
+
+  /**
+   * Fingerprint of the fixed stats of the battle being searched, mixed into every key.
+   */
+  private long rosterKey;
+
+  /**
+   * Number of positions evaluated since construction.
+   */
+  private long nodes = 0;
+
+  /**
+   * Number of transposition table hits since construction.
+   */
+  private long tableHits = 0;
+
+  /**
+   * Constructs a planner that searches one round with a table of 2^16 entries (1 MB).
+   */
+  public SearchPlanner(){
+    this(1, 16);
+  }
+
+  /**
+   * Constructs a planner with the given depth and table size.
+   * @param rounds int representing the number of rounds to search, at least 1
+   * @param tableBits int representing the log2 of the number of table entries
+   */
+  public SearchPlanner(int rounds, int tableBits){
+    if (rounds < 1) {
+      throw new IllegalArgumentException("rounds must be at least 1: " + rounds);
+    }
+    this.rounds = rounds;
+    this.keys = new long[1 << tableBits];
+    this.values = new double[1 << tableBits];
+    this.mask = (1 << tableBits) - 1;
+  }
+
+  /**
+   * Chooses the move of one computer unit in battle 0 of the given three-on-three state.
+   * The state is searched in place and left as it was given.
+   * @param state BattleState holding the current battle in battle 0
+   * @param mover int representing the position of the moving unit on the computer side
+   * @param blocksUsed int representing the number of blocks the computer already used this turn
+   * @param blockAllowance int representing the maximum number of blocks this turn
+   * @param turn int representing the current turn
+   * @return int representing the position of the human unit to attack, or BLOCK
+   */
+  public int chooseMove(BattleState state, int mover, int blocksUsed, int blockAllowance, int turn){
+    this.rosterKey = rosterKey(state);
+
+    int attacker = state.slot(0, BattleState.COMPUTER, mover);
+    int bestMove = BLOCK;
+    double bestValue = Double.NEGATIVE_INFINITY;
+
+    for (int i = 0; i < state.unitsPerSide; i++) {
+      int target = state.slot(0, BattleState.HUMAN, i);
+      if (state.hp[target] <= 0) {
+        continue;
+      }
+      double value = attackValue(state, attacker, target, mover + 1, blocksUsed, blockAllowance, this.rounds, turn);
+      if (value > bestValue) {
+        bestValue = value;
+        bestMove = i;
+      }
+    }
+
+    if (blocksUsed < blockAllowance) {
+      double value = blockValue(state, attacker, mover + 1, blocksUsed, blockAllowance, this.rounds, turn);
+      if (value > bestValue) {
+        bestMove = BLOCK;
+      }
+    }
+    return bestMove;
+  }
+
+  /**
+   * Returns the expected value of the computer turn continuing at the given unit.
+   * @param state BattleState being searched
+   * @param mover int representing the position of the next computer unit to move
+   * @param blocksUsed int representing the number of blocks used this turn
+   * @param blockAllowance int representing the maximum number of blocks this turn
+   * @param roundsLeft int representing the number of rounds left to search, including this one
+   * @param turn int representing the current turn
+   * @return double representing the expected score for the computer
+   */
+  private double computerMove(BattleState state, int mover, int blocksUsed, int blockAllowance, int roundsLeft, int turn){
+    // skip knocked out units
+    while (mover < state.unitsPerSide && state.hp[state.slot(0, BattleState.COMPUTER, mover)] <= 0) {
+      mover++;
+    }
+    if (mover == state.unitsPerSide || state.isKnockedOut(0, BattleState.HUMAN)) {
+      return endComputerTurn(state, roundsLeft, turn);
+    }
+
+    long key = key(state, mover, blocksUsed, blockAllowance, roundsLeft, turn);
+    int index = (int) key & this.mask;
+    if (this.keys[index] == key) {
+      this.tableHits++;
+      return this.values[index];
+    }
+    this.nodes++;
+
+    int attacker = state.slot(0, BattleState.COMPUTER, mover);
+    double best = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < state.unitsPerSide; i++) {
+      int target = state.slot(0, BattleState.HUMAN, i);
+      if (state.hp[target] > 0) {
+        best = Math.max(best, attackValue(state, attacker, target, mover + 1, blocksUsed, blockAllowance, roundsLeft, turn));
+      }
+    }
+    if (blocksUsed < blockAllowance) {
+      best = Math.max(best, blockValue(state, attacker, mover + 1, blocksUsed, blockAllowance, roundsLeft, turn));
+    }
+
+    this.keys[index] = key;
+    this.values[index] = best;
+    return best;
+  }
+
+  /**
+   * Returns the expected value of a computer attack, averaging over the target's dodge roll.
+   * @param state BattleState being searched
+   * @param attacker int representing the attacker's slot
+   * @param target int representing the target's slot
+   * @param next int representing the position of the computer unit moving after this one
+   * @param blocksUsed int representing the number of blocks used this turn
+   * @param blockAllowance int representing the maximum number of blocks this turn
+   * @param roundsLeft int representing the number of rounds left to search
+   * @param turn int representing the current turn
+   * @return double representing the expected score for the computer
+   */
+  private double attackValue(BattleState state, int attacker, int target, int next, int blocksUsed,
+                             int blockAllowance, int roundsLeft, int turn){
+    double dodge = dodgeChance(state, target);
+    int hpBefore = state.hp[target];
+
+    state.applyDamage(target, state.hitDamage(attacker, target));
+    double hit = computerMove(state, next, blocksUsed, blockAllowance, roundsLeft, turn);
+    state.hp[target] = hpBefore;
+
+    if (dodge == 0) {
+      return hit;
+    }
+    double dodged = computerMove(state, next, blocksUsed, blockAllowance, roundsLeft, turn);
+    return dodge * dodged + (1 - dodge) * hit;
+  }
+
+  /**
+   * Returns the value of a computer block.
+   * @param state BattleState being searched
+   * @param unit int representing the blocking unit's slot
+   * @param next int representing the position of the computer unit moving after this one
+   * @param blocksUsed int representing the number of blocks used this turn, not counting this one
+   * @param blockAllowance int representing the maximum number of blocks this turn
+   * @param roundsLeft int representing the number of rounds left to search
+   * @param turn int representing the current turn
+   * @return double representing the expected score for the computer
+   */
+  private double blockValue(BattleState state, int unit, int next, int blocksUsed, int blockAllowance,
+                            int roundsLeft, int turn){
+    int before = state.temporaryDefense[unit];
+    state.block(unit);
+    double value = computerMove(state, next, blocksUsed + 1, blockAllowance, roundsLeft, turn);
+    state.temporaryDefense[unit] = before;
+    return value;
+  }
+
+  /**
+   * Ends the computer turn the way GameControl does: winner check, human temporary defense reset, next turn.
+   * @param state BattleState being searched
+   * @param roundsLeft int representing the number of rounds left to search
+   * @param turn int representing the turn that is ending
+   * @return double representing the expected score for the computer
+   */
+  private double endComputerTurn(BattleState state, int roundsLeft, int turn){
+    if (state.isKnockedOut(0, BattleState.HUMAN) || state.isKnockedOut(0, BattleState.COMPUTER)) {
+      return terminal(state, turn);
+    }
+    if (turn + 1 >= 10) {
+      return terminal(state, 10);
+    }
+
+    int first = state.slot(0, BattleState.HUMAN, 0);
+    int[] saved = new int[state.unitsPerSide];
+    System.arraycopy(state.temporaryDefense, first, saved, 0, saved.length);
+    state.resetTemporaryDefense(0, BattleState.HUMAN);
+
+    double value = humanMove(state, 0, roundsLeft, turn + 1);
+
+    System.arraycopy(saved, 0, state.temporaryDefense, first, saved.length);
+    return value;
+  }
+
+  /**
+   * Returns the expected value of the human turn continuing at the given unit, using the scripted human policy.
+   * @param state BattleState being searched
+   * @param mover int representing the position of the next human unit to move
+   * @param roundsLeft int representing the number of rounds left to search
+   * @param turn int representing the current turn
+   * @return double representing the expected score for the computer
+   */
+  private double humanMove(BattleState state, int mover, int roundsLeft, int turn){
+    while (mover < state.unitsPerSide && state.hp[state.slot(0, BattleState.HUMAN, mover)] <= 0) {
+      mover++;
+    }
+    if (mover == state.unitsPerSide) {
+      return endHumanTurn(state, roundsLeft, turn);
+    }
+
+    int attacker = state.slot(0, BattleState.HUMAN, mover);
+    int target = state.selectOptimalTarget(0, attacker, BattleState.COMPUTER);
+    if (target < 0) {
+      int before = state.temporaryDefense[attacker];
+      state.block(attacker);
+      double value = humanMove(state, mover + 1, roundsLeft, turn);
+      state.temporaryDefense[attacker] = before;
+      return value;
+    }
+
+    double dodge = dodgeChance(state, target);
+    int hpBefore = state.hp[target];
+
+    state.applyDamage(target, state.hitDamage(attacker, target));
+    double hit = state.isKnockedOut(0, BattleState.COMPUTER) ? terminal(state, turn)
+        : humanMove(state, mover + 1, roundsLeft, turn);
+    state.hp[target] = hpBefore;
+
+    if (dodge == 0) {
+      return hit;
+    }
+    double dodged = humanMove(state, mover + 1, roundsLeft, turn);
+    return dodge * dodged + (1 - dodge) * hit;
+  }
+
+  /**
+   * Ends the human turn: resets computer temporary defense and either evaluates or searches the next computer turn.
+   * @param state BattleState being searched
+   * @param roundsLeft int representing the number of rounds left to search, including the one ending
+   * @param turn int representing the current turn
+   * @return double representing the expected score for the computer
+   */
+  private double endHumanTurn(BattleState state, int roundsLeft, int turn){
+    int first = state.slot(0, BattleState.COMPUTER, 0);
+    int[] saved = new int[state.unitsPerSide];
+    System.arraycopy(state.temporaryDefense, first, saved, 0, saved.length);
+    state.resetTemporaryDefense(0, BattleState.COMPUTER);
+
+    double value;
+    if (roundsLeft <= 1) {
+      value = evaluate(state);
+    } else {
+      int allowance = state.countAliveUnits(0, BattleState.COMPUTER) - 1;
+      value = computerMove(state, 0, 0, allowance, roundsLeft - 1, turn);
+    }
+
+    System.arraycopy(saved, 0, state.temporaryDefense, first, saved.length);
+    return value;
+  }
+
+  /**
+   * Scores a finished game following GameControl.getWinner.
+   * @param state BattleState being searched
+   * @param turn int representing the turn the game ended on, 10 for the HP comparison
+   * @return double representing the score for the computer
+   */
+  private double terminal(BattleState state, int turn){
+    String winner = state.getWinner(0, turn);
+    double difference = state.hpSum(0, BattleState.COMPUTER) - state.hpSum(0, BattleState.HUMAN);
+    if ("computer".equals(winner)) {
+      return WIN + difference;
+    } else if ("human".equals(winner)) {
+      return -WIN + difference;
+    }
+    return difference;
+  }
+
+  /**
+   * Scores an unfinished game by HP and alive unit difference.
+   * @param state BattleState being searched
+   * @return double representing the score for the computer
+   */
+  private double evaluate(BattleState state){
+    double hp = state.hpSum(0, BattleState.COMPUTER) - state.hpSum(0, BattleState.HUMAN);
+    double alive = state.countAliveUnits(0, BattleState.COMPUTER) - state.countAliveUnits(0, BattleState.HUMAN);
+    return hp + ALIVE_WEIGHT * alive;
+  }
+
+  /**
+   * Returns the chance that the unit in the given slot dodges, matching the roll in Unit.receiveDamage.
+   * @param state BattleState being searched
+   * @param target int representing the target's slot
+   * @return double representing the dodge probability
+   */
+  static double dodgeChance(BattleState state, int target){
+    return DamageTable.dodgeChance(state.evasion[target]);
+  }
+
+  /**
+   * Hashes the fixed stats of battle 0 so different rosters never share table entries.
+   * @param state BattleState being searched
+   * @return long fingerprint of the roster
+   */
+  private static long rosterKey(BattleState state){
+    long key = 0x2545f4914f6cdd1dL;
+    for (int slot = 0; slot < state.unitsPerBattle; slot++) {
+      key = MatchRandom.mix64(key ^ (state.attack[slot] | (long) state.defense[slot] << 16
+          | (long) state.evasion[slot] << 32 | (long) state.job[slot] << 48));
+    }
+    return key;
+  }
+
+  /**
+   * Hashes a search position into a table key. Never returns 0, which marks empty entries.
+   * @param state BattleState being searched
+   * @param mover int representing the position of the next computer unit to move
+   * @param blocksUsed int representing the number of blocks used this turn
+   * @param blockAllowance int representing the maximum number of blocks this turn
+   * @param roundsLeft int representing the number of rounds left to search
+   * @param turn int representing the current turn
+   * @return long key of the position
+   */
+  private long key(BattleState state, int mover, int blocksUsed, int blockAllowance, int roundsLeft, int turn){
+    long hp = 0;
+    long defense = 0;
+    for (int slot = 0; slot < state.unitsPerBattle; slot++) {
+      hp = hp * 257 + state.hp[slot];
+      defense = defense * 31 + state.temporaryDefense[slot];
+    }
+    long position = mover | blocksUsed << 4 | blockAllowance << 8 | roundsLeft << 12 | (long) turn << 20;
+
+    long key = MatchRandom.mix64(this.rosterKey ^ MatchRandom.mix64(hp ^ MatchRandom.mix64(defense ^ position)));
+    return key == 0 ? 1 : key;
+  }
+
+  /**
+   * Returns the number of positions evaluated since construction.
+   * Note: This method does not take any parameters.
+   * @return nodes
+   */
+  public long getNodes(){
+    return this.nodes;
+  }
+
+  /**
+   * Returns the number of transposition table hits since construction.
+   * Note: This method does not take any parameters.
+   * @return tableHits
+   */
+  public long getTableHits(){
+    return this.tableHits;
+  }
+}
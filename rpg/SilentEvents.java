@@ -0,0 +1,98 @@
+package rpg;
+
+/**
+ * Drops every event. Used for headless and batch runs where nothing is shown.
+ */
+public final class SilentEvents implements CombatEvents {
+
+  /**
+   * The shared instance; the sink holds no state.
+   */
+  public static final SilentEvents INSTANCE = new SilentEvents();
+
+  /**
+   * Use INSTANCE instead.
+   */
+  private SilentEvents(){
+  }
+
+  @Override
+  public void unitStatus(Unit unit){
+  }
+
+  @Override
+  public void dodged(Unit target){
+  }
+
+  @Override
+  public void damageReceived(Unit target, int damage){
+  }
+
+  @Override
+  public void attackLaunched(Unit attacker, Unit target){
+  }
+
+  @Override
+  public void blockRaised(Unit unit){
+  }
+
+  @Override
+  public void blocking(Unit unit){
+  }
+
+  @Override
+  public void attacking(Unit unit){
+  }
+
+  @Override
+  public void hpRemaining(Unit target){
+  }
+
+  @Override
+  public void allTargetsFallen(){
+  }
+
+  @Override
+  public void unitNotAlive(Unit unit){
+  }
+
+  @Override
+  public void invalidMove(String move){
+  }
+
+  @Override
+  public void targetVanquished(Unit target){
+  }
+
+  @Override
+  public void targetNotFound(String targetName){
+  }
+
+  @Override
+  public void targetRetry(){
+  }
+
+  @Override
+  public void humanTurnStarted(int turn){
+  }
+
+  @Override
+  public void unitTurn(Unit unit){
+  }
+
+  @Override
+  public void roundStarted(int turn){
+  }
+
+  @Override
+  public void gameOver(String winner){
+  }
+
+  @Override
+  public void message(String line){
+  }
+
+  @Override
+  public void flush(){
+  }
+}
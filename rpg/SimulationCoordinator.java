@@ -0,0 +1,505 @@
+package rpg;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a simulation job, a seed range played under one set of balance rules, into shards of consecutive seeds and
+ * hands them to SimulationWorker processes over TCP. A worker asks for shards one at a time on its connection and
+ * sends back each shard's MatchTally; a shard whose worker disconnects, dies, goes silent for longer than the lease or
+ * answers with a tally that does not fit the shard goes back in the queue for the next worker. Every connection starts
+ * with the protocol version and a job id drawn for this coordinator, and every answer carries the job id back, so a
+ * worker of another version or job is turned away instead of having its tally merged. Only the first result of every
+ * shard is kept, and tallies are plain sums, so the merged result is exactly what BatchSimulator gives for the whole
+ * range, whichever workers played it.
+ * The coordinator can start its own workers on this machine; workers on other machines connect to its address.
+ */
+public class SimulationCoordinator implements AutoCloseable {
+
+  /**
+   * Shard number sent to a worker to tell it the job is over.
+   */
+  static final int NO_MORE_SHARDS = -1;
+
+  /**
+   * Version of the protocol between coordinator and workers, raised on every change to what they send each other.
+   */
+  static final int PROTOCOL_VERSION = 2;
+
+  /**
+   * Id of this coordinator's job, drawn at random so answers meant for another job are recognized.
+   */
+  private final long jobId = ThreadLocalRandom.current().nextLong();
+
+  /**
+   * The listening socket.
+   */
+  private final ServerSocket serverSocket;
+
+  /**
+   * Runs one task per worker connection.
+   */
+  private final ExecutorService connections = GameServer.newSessionExecutor();
+
+  /**
+   * Seed of the first match of the job.
+   */
+  private final long firstSeed;
+
+  /**
+   * Number of matches in the job.
+   */
+  private final long matches;
+
+  /**
+   * Number of matches per shard; the last shard may be shorter.
+   */
+  private final long shardSize;
+
+  /**
+   * Rules every match is played under.
+   */
+  private final BalanceRules rules;
+
+  /**
+   * Milliseconds a worker may take to return a shard before it is treated as dead.
+   */
+  private final int leaseMillis;
+
+  /**
+   * Shards waiting for a worker, by number.
+   */
+  private final BlockingQueue<Integer> queue = new LinkedBlockingQueue<>();
+
+  /**
+   * Result of every shard, or null until it is back.
+   */
+  private final MatchTally[] results;
+
+  /**
+   * Counts down once per shard as results come back.
+   */
+  private final CountDownLatch remaining;
+
+  /**
+   * Number of shards handed out again after their worker failed.
+   */
+  private final AtomicInteger retries = new AtomicInteger();
+
+  /**
+   * Number of workers that have connected.
+   */
+  private final AtomicInteger workers = new AtomicInteger();
+
+  /**
+   * Worker processes started by this coordinator.
+   */
+  private final List<Process> processes = new ArrayList<>();
+
+  /**
+   * Thread accepting worker connections, set by start.
+   */
+  private Thread acceptor;
+
+  /**
+   * Opens a coordinator for a job.
+   * @param address InetAddress to listen on, the loopback address for workers on this machine only
+   * @param port int representing the TCP port, or 0 to pick a free one
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   * @param shardSize long representing the number of matches per shard
+   * @param rules BalanceRules every match is played under
+   * @param leaseMillis int representing how long a worker may take for one shard, in milliseconds
+   * @throws IOException if the port cannot be bound
+   */
+  public SimulationCoordinator(InetAddress address, int port, long firstSeed, long matches, long shardSize,
+      BalanceRules rules, int leaseMillis) throws IOException {
+    if (matches < 1 || shardSize < 1) {
+      throw new IllegalArgumentException("A job needs at least one match and one match per shard");
+    }
+    long shards = (matches + shardSize - 1) / shardSize;
+    if (shards > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many shards: " + shards);
+    }
+    this.firstSeed = firstSeed;
+    this.matches = matches;
+    this.shardSize = shardSize;
+    this.rules = rules;
+    this.leaseMillis = leaseMillis;
+    this.results = new MatchTally[(int) shards];
+    this.remaining = new CountDownLatch((int) shards);
+    for (int shard = 0; shard < shards; shard++) {
+      this.queue.add(shard);
+    }
+    this.serverSocket = new ServerSocket(port, GameServer.BACKLOG, address);
+  }
+
+  /**
+   * Starts accepting workers on a background thread.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  public void start(){
+    this.acceptor = new Thread(this::acceptLoop, "rpg-coordinator");
+    this.acceptor.setDaemon(true);
+    this.acceptor.start();
+  }
+
+  /**
+   * Starts worker processes on this machine, with the same Java and class path as this one. A worker that dies
+   * while the job is running is replaced, as long as some shard came back since it started, so workers that cannot
+   * start do not restart forever.
+   * Note: This method does not return anything.
+   * @param count int representing the number of workers to start
+   * @throws IOException if a process cannot be started
+   */
+  public void startLocalWorkers(int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      startLocalWorker();
+    }
+  }
+
+  /**
+   * Starts one worker process on this machine connected to this coordinator.
+   * Note: This method does not take any parameters and does not return anything.
+   * @throws IOException if the process cannot be started
+   */
+  private void startLocalWorker() throws IOException {
+    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    String host = this.serverSocket.getInetAddress().isAnyLocalAddress()
+        ? InetAddress.getLoopbackAddress().getHostAddress() : this.serverSocket.getInetAddress().getHostAddress();
+    Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+        SimulationWorker.class.getName(), host, String.valueOf(getPort()))
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+    long returnedBefore = returned();
+    synchronized (this.processes) {
+      this.processes.add(process);
+    }
+    process.onExit().thenRun(() -> {
+      if (this.remaining.getCount() > 0 && !this.serverSocket.isClosed() && returned() > returnedBefore) {
+        try {
+          startLocalWorker();
+        } catch (IOException e) {
+          System.err.println("Could not restart a worker: " + e.getMessage());
+        }
+      }
+    });
+  }
+
+  /**
+   * Accepts workers until the coordinator is closed and serves each one on its own task.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void acceptLoop(){
+    while (!this.serverSocket.isClosed()) {
+      Socket socket;
+      try {
+        socket = this.serverSocket.accept();
+      } catch (SocketException e) {
+        return; // closed
+      } catch (IOException e) {
+        continue;
+      }
+      this.workers.incrementAndGet();
+      this.connections.execute(() -> serve(socket));
+    }
+  }
+
+  /**
+   * Hands shards to one worker until the job is done or the worker fails. The protocol version, job id and rules are
+   * sent once and the worker answers with its protocol version and the job id. Then every shard is sent as its number,
+   * first seed and size; the worker answers each with the job id, the shard number and its tally, which must hold as
+   * many matches as the shard. The shard in hand when the worker fails or answers wrong goes back in the queue.
+   * Note: This method does not return anything.
+   * @param socket Socket of the worker
+   */
+  private void serve(Socket socket){
+    Integer shard = null;
+    try (socket) {
+      socket.setTcpNoDelay(true);
+      socket.setSoTimeout(this.leaseMillis);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      out.writeInt(PROTOCOL_VERSION);
+      out.writeLong(this.jobId);
+      writeRules(out, this.rules);
+      out.flush();
+      int version = in.readInt();
+      if (version != PROTOCOL_VERSION || in.readLong() != this.jobId) {
+        throw new IOException("Worker speaks protocol " + version + " or joined another job");
+      }
+      while (true) {
+        shard = nextShard();
+        if (shard == null) {
+          out.writeInt(NO_MORE_SHARDS);
+          out.flush();
+          return;
+        }
+        long first = (long) shard * this.shardSize;
+        long size = Math.min(this.shardSize, this.matches - first);
+        out.writeInt(shard);
+        out.writeLong(this.firstSeed + first);
+        out.writeLong(size);
+        out.flush();
+        if (in.readLong() != this.jobId || in.readInt() != shard) {
+          throw new IOException("Worker answered for another job or shard");
+        }
+        MatchTally tally = MatchTally.read(in);
+        if (tally.getMatches() != size) {
+          throw new IOException("Worker returned " + tally.getMatches() + " matches for a shard of " + size);
+        }
+        complete(shard, tally);
+        shard = null;
+      }
+    } catch (IOException e) {
+      // the worker died, hung, broke the protocol or sent a wrong tally; its shard goes to the next worker
+    } finally {
+      if (shard != null && this.results[shard] == null) {
+        this.retries.incrementAndGet();
+        this.queue.add(shard);
+      }
+    }
+  }
+
+  /**
+   * Waits for a shard to hand out. Returns null once every shard is back; while the last shards are out,
+   * a waiting worker stays connected in case one of them has to be played again.
+   * Note: This method does not take any parameters.
+   * @return Integer representing the shard number, or null if the job is done
+   */
+  private Integer nextShard(){
+    try {
+      while (this.remaining.getCount() > 0) {
+        Integer shard = this.queue.poll(100, TimeUnit.MILLISECONDS);
+        if (shard != null && this.results[shard] == null) {
+          return shard;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return null;
+  }
+
+  /**
+   * Keeps the first result of a shard.
+   * Note: This method does not return anything.
+   * @param shard int representing the shard number
+   * @param tally MatchTally of the shard
+   */
+  private synchronized void complete(int shard, MatchTally tally){
+    if (this.results[shard] == null) {
+      this.results[shard] = tally;
+      this.remaining.countDown();
+    }
+  }
+
+  /**
+   * Returns the number of shards whose result is back.
+   * Note: This method does not take any parameters.
+   * @return long representing the finished shards
+   */
+  private long returned(){
+    return this.results.length - this.remaining.getCount();
+  }
+
+  /**
+   * Waits for every shard and merges their tallies in shard order.
+   * Note: This method does not take any parameters.
+   * @return MatchTally of the whole job
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public MatchTally await() throws InterruptedException {
+    this.remaining.await();
+    MatchTally tally = new MatchTally();
+    for (MatchTally result : this.results) {
+      tally.merge(result);
+    }
+    return tally;
+  }
+
+  /**
+   * Writes a rule set as the value of every balance parameter.
+   * Note: This method does not return anything.
+   * @param out DataOutputStream to write to
+   * @param rules BalanceRules to write
+   * @throws IOException if the write fails
+   */
+  static void writeRules(DataOutputStream out, BalanceRules rules) throws IOException {
+    out.writeInt(BalanceRules.PARAMETERS.length);
+    for (String parameter : BalanceRules.PARAMETERS) {
+      out.writeUTF(parameter);
+      out.writeDouble(rules.get(parameter));
+    }
+  }
+
+  /**
+   * Reads a rule set written by writeRules.
+   * @param in DataInputStream to read from
+   * @return BalanceRules with the values read
+   * @throws IOException if the read fails or the rules do not make a playable game
+   */
+  static BalanceRules readRules(DataInputStream in) throws IOException {
+    String[] parameters = new String[in.readInt()];
+    double[] values = new double[parameters.length];
+    for (int p = 0; p < parameters.length; p++) {
+      parameters[p] = in.readUTF();
+      values[p] = in.readDouble();
+    }
+    try {
+      return BalanceRules.STANDARD.with(parameters, values);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unplayable rules: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Returns the port the coordinator listens on.
+   * Note: This method does not take any parameters.
+   * @return int representing the TCP port
+   */
+  public int getPort(){
+    return this.serverSocket.getLocalPort();
+  }
+
+  /**
+   * Returns the number of shards in the job.
+   * Note: This method does not take any parameters.
+   * @return int representing the shards
+   */
+  public int getShards(){
+    return this.results.length;
+  }
+
+  /**
+   * Returns the number of shards handed out again after their worker failed.
+   * Note: This method does not take any parameters.
+   * @return int representing the retries
+   */
+  public int getRetries(){
+    return this.retries.get();
+  }
+
+  /**
+   * Returns the number of workers that have connected.
+   * Note: This method does not take any parameters.
+   * @return int representing the workers
+   */
+  public int getWorkers(){
+    return this.workers.get();
+  }
+
+  /**
+   * Stops accepting workers, tells connected workers to stop, and ends the worker processes it started.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  @Override
+  public void close(){
+    try {
+      this.serverSocket.close();
+    } catch (IOException e) {
+      // already closed
+    }
+    this.connections.shutdown();
+    try {
+      this.connections.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this.processes) {
+      for (Process process : this.processes) {
+        process.destroy();
+      }
+    }
+  }
+
+  /**
+   * Runs a distributed simulation and prints its tally, HP left and shard statistics.
+   * @param args "--matches" followed by the number of matches (default 1000000), "--seed" followed by the first
+   *             match seed (default 0), "--shard" followed by the matches per shard (default 100000), "--workers"
+   *             followed by the number of worker processes to start on this machine (default 2, 0 to only wait for
+   *             remote ones), "--bind" followed by the address to listen on (default the loopback address; use
+   *             0.0.0.0 for workers on other machines), "--port" followed by the port (default 4343), "--lease"
+   *             followed by the seconds a worker may take per shard (default 600), then any balance parameters as
+   *             name=value, such as hp=120 strong=1.4
+   * @throws IOException if the port cannot be bound or a worker cannot be started
+   * @throws InterruptedException if interrupted while waiting for the shards
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    long matches = 1_000_000;
+    long firstSeed = 0;
+    long shardSize = 100_000;
+    int localWorkers = 2;
+    InetAddress address = InetAddress.getLoopbackAddress();
+    int port = 4343;
+    int leaseSeconds = 600;
+    List<String> parameters = new ArrayList<>();
+    List<Double> values = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("--matches".equals(args[i]) && i + 1 < args.length) {
+        matches = Long.parseLong(args[++i]);
+      } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+        firstSeed = Long.parseLong(args[++i]);
+      } else if ("--shard".equals(args[i]) && i + 1 < args.length) {
+        shardSize = Long.parseLong(args[++i]);
+      } else if ("--workers".equals(args[i]) && i + 1 < args.length) {
+        localWorkers = Integer.parseInt(args[++i]);
+      } else if ("--bind".equals(args[i]) && i + 1 < args.length) {
+        address = InetAddress.getByName(args[++i]);
+      } else if ("--port".equals(args[i]) && i + 1 < args.length) {
+        port = Integer.parseInt(args[++i]);
+      } else if ("--lease".equals(args[i]) && i + 1 < args.length) {
+        leaseSeconds = Integer.parseInt(args[++i]);
+      } else if (args[i].indexOf('=') > 0) {
+        parameters.add(args[i].substring(0, args[i].indexOf('=')));
+        values.add(Double.parseDouble(args[i].substring(args[i].indexOf('=') + 1)));
+      } else {
+        System.err.println("Usage: java rpg.SimulationCoordinator [--matches N] [--seed S] [--shard N] [--workers N]"
+            + " [--bind ADDRESS] [--port P] [--lease SECONDS] [name=value ...]");
+        System.err.println("Parameters: " + String.join(", ", BalanceRules.PARAMETERS));
+        return;
+      }
+    }
+    double[] point = new double[values.size()];
+    for (int p = 0; p < point.length; p++) {
+      point[p] = values.get(p);
+    }
+    BalanceRules rules = BalanceRules.STANDARD.with(parameters.toArray(new String[0]), point);
+
+    long start = System.nanoTime();
+    MatchTally tally;
+    try (SimulationCoordinator coordinator = new SimulationCoordinator(address, port, firstSeed, matches, shardSize,
+        rules, Math.multiplyExact(leaseSeconds, 1000))) {
+      coordinator.start();
+      System.err.println("Coordinating " + coordinator.getShards() + " shards on " + address.getHostAddress() + ":"
+          + coordinator.getPort());
+      coordinator.startLocalWorkers(localWorkers);
+      tally = coordinator.await();
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.println("Played " + tally.getMatches() + " matches (seeds " + firstSeed + " to "
+          + (firstSeed + matches - 1) + ") in " + coordinator.getShards() + " shards on " + coordinator.getWorkers()
+          + " workers in " + String.format("%.2f", seconds) + " s, " + coordinator.getRetries() + " shards retried");
+      System.out.println(String.format("%.0f matches per second", tally.getMatches() / seconds));
+    }
+    System.out.println(tally);
+    System.out.println(String.format("average HP left: human %.2f, computer %.2f",
+        tally.getAverageHp(BattleState.HUMAN), tally.getAverageHp(BattleState.COMPUTER)));
+  }
+}
@@ -0,0 +1,66 @@
+package rpg;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Plays shards of a SimulationCoordinator's job: connects to the coordinator, checks its protocol version, reads the
+ * job id and rules and answers with its own version and the job id, then plays every shard it is given with
+ * BatchSimulator across all cores of this machine and sends back its tally under the job id, until the coordinator
+ * says the job is over. Start as many as the machine has room for; each one uses every core.
+ */
+public class SimulationWorker {
+
+  /**
+   * Plays shards until the coordinator has no more.
+   * @param host String representing the coordinator's address
+   * @param port int representing the coordinator's port
+   * @return long representing the number of matches played
+   * @throws IOException if the connection fails, the coordinator speaks another protocol version or sends unplayable rules
+   */
+  public static long work(String host, int port) throws IOException {
+    long played = 0;
+    try (Socket socket = new Socket(host, port)) {
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      int version = in.readInt();
+      if (version != SimulationCoordinator.PROTOCOL_VERSION) {
+        throw new IOException("Coordinator speaks protocol " + version + ", this worker "
+            + SimulationCoordinator.PROTOCOL_VERSION);
+      }
+      long jobId = in.readLong();
+      BalanceRules rules = SimulationCoordinator.readRules(in);
+      out.writeInt(SimulationCoordinator.PROTOCOL_VERSION);
+      out.writeLong(jobId);
+      out.flush();
+      for (int shard = in.readInt(); shard != SimulationCoordinator.NO_MORE_SHARDS; shard = in.readInt()) {
+        long firstSeed = in.readLong();
+        long matches = in.readLong();
+        MatchTally tally = ForkJoinPool.commonPool().invoke(new BatchSimulator(firstSeed, matches, rules));
+        out.writeLong(jobId);
+        out.writeInt(shard);
+        tally.write(out);
+        out.flush();
+        played += matches;
+      }
+    }
+    return played;
+  }
+
+  /**
+   * Runs a worker until its coordinator's job is over.
+   * @param args the coordinator's address (default the loopback address) and port (default 4343)
+   * @throws IOException if the connection fails
+   */
+  public static void main(String[] args) throws IOException {
+    String host = args.length > 0 ? args[0] : "127.0.0.1";
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : 4343;
+    long played = work(host, port);
+    System.out.println("Played " + played + " matches for " + host + ":" + port);
+  }
+}
@@ -0,0 +1,114 @@
+package rpg;
+
+/**
+ * Renders GameControl.printStatus as one block of text per call, built in a buffer that is reused for every call and
+ * handed to the events as a single message. In diff mode it remembers the HP it last showed for every unit and, after
+ * the first full status, only shows the units whose HP changed since, with the knocked out notice for the ones that
+ * fell; a status with no change prints nothing. Without diff mode every call is a full redraw with the same text as
+ * the unbuffered status. One renderer belongs to one game.
+ */
+public class StatusRenderer {
+
+  /**
+   * True to only show what changed since the last status.
+   */
+  private final boolean diff;
+
+  /**
+   * The text of the status being rendered, reused for every call.
+   */
+  private final StringBuilder buffer = new StringBuilder(512);
+
+  /**
+   * HP last shown for every human unit, or null if no status has been shown yet.
+   */
+  private int[] humanHp;
+
+  /**
+   * HP last shown for every computer unit, or null if no status has been shown yet.
+   */
+  private int[] computerHp;
+
+  /**
+   * Constructs a renderer.
+   * @param diff boolean true to only show what changed since the last status, false to redraw everything every time
+   */
+  public StatusRenderer(boolean diff){
+    this.diff = diff;
+  }
+
+  /**
+   * Makes the next status a full one, such as after the player's view was cleared.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  public void redraw(){
+    this.humanHp = null;
+    this.computerHp = null;
+  }
+
+  /**
+   * Renders the status of both sides and hands it to the events in one message.
+   * Note: This method does not return anything.
+   * @param human HumanPlayer whose units are shown first
+   * @param computer ComputerPlayer whose units are shown second
+   * @param events CombatEvents to write the status to
+   */
+  public void render(HumanPlayer human, ComputerPlayer computer, CombatEvents events){
+    Unit[] humanUnits = human.getRoster().units;
+    Unit[] computerUnits = computer.getRoster().units;
+    boolean full = !this.diff || this.humanHp == null || this.humanHp.length != humanUnits.length
+        || this.computerHp.length != computerUnits.length;
+    if (full) {
+      this.humanHp = new int[humanUnits.length];
+      this.computerHp = new int[computerUnits.length];
+    }
+
+    StringBuilder buffer = this.buffer;
+    buffer.setLength(0);
+    buffer.append('\n');
+    boolean changed = appendSide(buffer, "Your units:", humanUnits, this.humanHp, full);
+    changed |= appendSide(buffer, "Computer units:", computerUnits, this.computerHp, full);
+    if (full || changed) {
+      // the events end the message with a line break of their own
+      buffer.setLength(buffer.length() - 1);
+      events.message(buffer.toString());
+    }
+  }
+
+  /**
+   * Adds one side's units to the status: all of them for a full status, else the ones whose HP changed,
+   * under the side's heading, which is left out if none did.
+   * @param buffer StringBuilder holding the status
+   * @param heading String naming the side
+   * @param units Unit array of the side, in turn order
+   * @param shown int array of the HP last shown for every unit, updated to the HP shown now
+   * @param full boolean true to show every unit
+   * @return boolean true if a unit was shown
+   */
+  private static boolean appendSide(StringBuilder buffer, String heading, Unit[] units, int[] shown, boolean full){
+    int start = buffer.length();
+    buffer.append(heading).append('\n');
+    boolean any = false;
+    for (int i = 0; i < units.length; i++) {
+      Unit unit = units[i];
+      int hp = unit.getHp();
+      if (!full && Math.max(hp, 0) == Math.max(shown[i], 0)) {
+        // HP below 0 and 0 both show a knocked out unit
+        continue;
+      }
+      any = true;
+      shown[i] = hp;
+      buffer.append(unit.name).append(" is a level ").append(unit.getLevel()).append(' ').append(unit.getJob())
+          .append(' ').append(hp).append(" HP.\n");
+      if (hp < 1) {
+        buffer.append("This unit is knocked out!\n");
+      }
+    }
+    if (any || full) {
+      buffer.append('\n');
+    } else {
+      buffer.setLength(start);
+    }
+    return any;
+  }
+}
@@ -0,0 +1,40 @@
+package rpg;
+
+/**
+ * The rules of ComputerPlayer.strategy: attack the optimal target, block when weak against it while blocks remain,
+ * and end the turn if there is no target left. As in strategy, the first unit checks its allowance
+ * with blockAllowance != 1 while the others check blocksUsed < blockAllowance.
+ */
+public final class StrategyPolicy implements MovePolicy {
+
+  /**
+   * The shared instance; the policy holds no state.
+   */
+  public static final StrategyPolicy INSTANCE = new StrategyPolicy();
+
+  /**
+   * Use INSTANCE instead.
+   */
+  private StrategyPolicy(){
+  }
+
+  @Override
+  public int choose(BattleState state, int battle, int side, int unit, int blocksUsed, int blockAllowance){
+    int attacker = state.slot(battle, side, unit);
+    if (state.hp[attacker] <= 0) {
+      return SKIP;
+    }
+
+    int target = state.selectOptimalTarget(battle, attacker, 1 - side);
+    if (target < 0) {
+      return END_TURN;
+    }
+
+    Strength strength = state.strength(attacker, target);
+    boolean canBlock = unit == 0 ? blockAllowance != 1 : blocksUsed < blockAllowance;
+    if (strength == Strength.WEAK && canBlock) {
+      return BLOCK;
+    }
+    return MovePolicy.attack(target - state.slot(battle, 1 - side, 0), strength);
+  }
+}
@@ -0,0 +1,47 @@
+package rpg;
+
+/**
+ * The strength of an attacker relative to its target. The ordinal is used to index the multipliers in BalanceRules.
+ */
+public enum Strength {
+  STRONG("strong"),
+  SAME("same"),
+  WEAK("weak");
+
+  /**
+   * The strength's name as used by determineAttackerStrength, such as "strong".
+   */
+  private final String label;
+
+  /**
+   * Constructs a strength with the given name.
+   * @param label String representing the strength's name
+   */
+  Strength(String label){
+    this.label = label;
+  }
+
+  /**
+   * Returns the strength's name as used by determineAttackerStrength.
+   * Note: This method does not take any parameters.
+   * @return label
+   */
+  public String label(){
+    return this.label;
+  }
+
+  /**
+   * Returns the strength for the given name, following Unit.attack: "strong" and "weak" are recognized
+   * and anything else counts as the same strength.
+   * @param label String representing an attacker strength
+   * @return Strength for that name
+   */
+  public static Strength fromLabel(String label){
+    if ("strong".equals(label)) {
+      return STRONG;
+    } else if ("weak".equals(label)) {
+      return WEAK;
+    }
+    return SAME;
+  }
+}
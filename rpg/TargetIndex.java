@@ -0,0 +1,188 @@
+package rpg;
+import java.util.Arrays;
+
+/**
+ * The alive units of a roster, grouped by job and ordered by HP, so the optimal target for an attacker can be found
+ * in O(1) and an HP change costs O(log n) instead of scanning the roster. Units report every HP change through their
+ * roster, see Roster.hpChanged. Picks the same target as ComputerPlayer.selectOptimalTarget, including its
+ * tie-breaking: earlier units win ties.
+ *
+ * Every job has two trees of longs over its units, one keeping the highest key and one the lowest, stored as flat
+ * arrays with the units as leaves, so an update rewrites one path of primitives and never allocates.
+ */
+final class TargetIndex {
+
+  /**
+   * Key of a knocked out unit in the trees of highest keys; below every alive unit's key.
+   */
+  private static final long NO_HIGHEST = -1;
+
+  /**
+   * Key of a knocked out unit in the trees of lowest keys; above every alive unit's key.
+   */
+  private static final long NO_LOWEST = Long.MAX_VALUE;
+
+  /**
+   * Trees of the highest key, indexed by job ordinal: node i holds the highest of nodes 2i and 2i + 1, the units of
+   * the job are the leaves from the job's unit count on, and node 1 holds the highest of all. Keys are HP in the high
+   * half and Integer.MAX_VALUE minus the roster position in the low half, so earlier units come out on top among equal HP.
+   */
+  private final long[][] highest;
+
+  /**
+   * Trees of the lowest key, laid out like highest, with keys of HP in the high half and roster position in the low half.
+   */
+  private final long[][] lowest;
+
+  /**
+   * Leaf of every unit in the trees of its job, indexed by roster position.
+   */
+  private final int[] leaf;
+
+  /**
+   * The roster this index covers.
+   */
+  private final Roster roster;
+
+  /**
+   * Builds the index for a roster whose units report their HP changes to it. Every unit must have a known job.
+   * @param roster Roster to index
+   */
+  TargetIndex(Roster roster){
+    this.roster = roster;
+    Unit[] units = roster.units;
+    int[] count = new int[Job.VALUES.length];
+    this.leaf = new int[units.length];
+    for (int i = 0; i < units.length; i++) {
+      this.leaf[i] = count[units[i].getJobType().ordinal()]++;
+    }
+
+    this.highest = new long[count.length][];
+    this.lowest = new long[count.length][];
+    for (int j = 0; j < count.length; j++) {
+      this.highest[j] = new long[2 * count[j]];
+      this.lowest[j] = new long[2 * count[j]];
+      Arrays.fill(this.highest[j], NO_HIGHEST);
+      Arrays.fill(this.lowest[j], NO_LOWEST);
+    }
+    for (int i = 0; i < units.length; i++) {
+      int j = units[i].getJobType().ordinal();
+      this.leaf[i] += count[j];
+      if (units[i].getHp() > 0) {
+        this.highest[j][this.leaf[i]] = highKey(units[i].getHp(), i);
+        this.lowest[j][this.leaf[i]] = lowKey(units[i].getHp(), i);
+      }
+    }
+    for (int j = 0; j < count.length; j++) {
+      long[] high = this.highest[j];
+      long[] low = this.lowest[j];
+      for (int node = count[j] - 1; node > 0; node--) {
+        high[node] = Math.max(high[2 * node], high[2 * node + 1]);
+        low[node] = Math.min(low[2 * node], low[2 * node + 1]);
+      }
+    }
+  }
+
+  /**
+   * Packs a unit's HP and position into a key of the trees of highest keys.
+   * @param hp int representing the unit's HP, above 0
+   * @param position int representing the unit's position in the roster
+   * @return long key, higher for more HP, then for an earlier position
+   */
+  private static long highKey(int hp, int position){
+    return (long) hp << 32 | Integer.MAX_VALUE - position;
+  }
+
+  /**
+   * Packs a unit's HP and position into a key of the trees of lowest keys.
+   * @param hp int representing the unit's HP, above 0
+   * @param position int representing the unit's position in the roster
+   * @return long key, lower for less HP, then for an earlier position
+   */
+  private static long lowKey(int hp, int position){
+    return (long) hp << 32 | position;
+  }
+
+  /**
+   * Moves a unit to its new place after its HP changed, adding or removing it as it gets revived or knocked out.
+   * Note: This method does not return anything.
+   * @param unit Unit whose HP changed
+   * @param oldHp int representing the unit's HP before the change
+   */
+  void hpChanged(Unit unit, int oldHp){
+    int hp = unit.getHp();
+    if (hp == oldHp) {
+      return;
+    }
+    int position = unit.rosterPosition;
+    int job = unit.getJobType().ordinal();
+    long[] high = this.highest[job];
+    long[] low = this.lowest[job];
+    int node = this.leaf[position];
+    high[node] = hp > 0 ? highKey(hp, position) : NO_HIGHEST;
+    low[node] = hp > 0 ? lowKey(hp, position) : NO_LOWEST;
+    for (node >>= 1; node > 0; node >>= 1) {
+      high[node] = Math.max(high[2 * node], high[2 * node + 1]);
+      low[node] = Math.min(low[2 * node], low[2 * node + 1]);
+    }
+  }
+
+  /**
+   * Picks the optimal target for an attacker: the highest HP unit the attacker is strong against,
+   * else the highest HP unit it is the same against, else the lowest HP unit it is weak against,
+   * where only the first unit of the roster is taken at or above the 100 HP boundary.
+   * @param attacker Unit that is attacking, with a known job
+   * @return Unit representing the optimal target, or null if there is none
+   */
+  Unit select(Unit attacker){
+    int best = highest(attacker, Strength.STRONG);
+    if (best < 0) {
+      best = highest(attacker, Strength.SAME);
+    }
+    if (best < 0) {
+      best = lowest(attacker);
+    }
+    return best < 0 ? null : this.roster.units[best];
+  }
+
+  /**
+   * Finds the highest HP alive unit of the given strength relationship, earliest position first among equal HP.
+   * @param attacker Unit that is attacking
+   * @param strength Strength of the attacker relative to the targets to consider
+   * @return int position of the best unit, or -1 if there is none
+   */
+  private int highest(Unit attacker, Strength strength){
+    long best = NO_HIGHEST;
+    for (Job job : Job.VALUES) {
+      long[] high = this.highest[job.ordinal()];
+      if (high.length > 0 && Matchups.strength(attacker.getJobType(), job) == strength) {
+        best = Math.max(best, high[1]);
+      }
+    }
+    return best == NO_HIGHEST ? -1 : Integer.MAX_VALUE - (int) best;
+  }
+
+  /**
+   * Finds the lowest HP alive unit the attacker is weak against, earliest position first among equal HP.
+   * Units at or above 100 HP only count if the roster's first unit is one of the candidates, as in the original scan.
+   * @param attacker Unit that is attacking
+   * @return int position of the best unit, or -1 if there is none
+   */
+  private int lowest(Unit attacker){
+    long best = NO_LOWEST;
+    boolean firstIsCandidate = false;
+    Unit first = this.roster.units[0];
+    for (Job job : Job.VALUES) {
+      long[] low = this.lowest[job.ordinal()];
+      if (low.length == 0 || Matchups.strength(attacker.getJobType(), job) != Strength.WEAK) {
+        continue;
+      }
+      best = Math.min(best, low[1]);
+      firstIsCandidate |= first.getHp() > 0 && first.getJobType() == job;
+    }
+    if (best == NO_LOWEST || (best >>> 32) >= 100 && !firstIsCandidate) {
+      return -1;
+    }
+    return (int) best;
+  }
+}
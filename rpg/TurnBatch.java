@@ -0,0 +1,186 @@
+package rpg;
+
+/**
+ * Everything one side did in one turn, as resolved by TurnEngine: for every move, the unit that moved, its target or
+ * a block, the matchup, the attack's damage, and the damage received or a dodge.
+ * A TurnListener gets one batch per side and turn instead of one event per move.
+ * The engine reuses the batch for the next turn, so listeners copy out what they keep.
+ */
+public final class TurnBatch {
+
+  /**
+   * Target of a move that was a block.
+   */
+  public static final int BLOCK = -1;
+
+  /**
+   * Damage received by a target that dodged.
+   */
+  public static final int DODGED = -1;
+
+  /**
+   * Bits of a packed move holding the unit's position.
+   */
+  private static final int POSITION_BITS = 14;
+
+  /**
+   * Side that moved, BattleState.HUMAN or BattleState.COMPUTER.
+   */
+  int side;
+
+  /**
+   * Turn of the game, from 0.
+   */
+  int turn;
+
+  /**
+   * Number of moves in the batch.
+   */
+  int size;
+
+  /**
+   * The moves, one long each so resolving a move costs a single store: bits 0-13 hold the unit's position,
+   * 14-27 the target's position plus 1 (0 for a block), 28-29 the Strength ordinal, 30-45 the attack's damage and
+   * 46-62 the damage received plus 1 (0 for a dodge).
+   */
+  final long[] moves;
+
+  /**
+   * Who won the game during or right after this turn, or null if it goes on.
+   */
+  String winner;
+
+  /**
+   * Constructs an empty batch.
+   * @param unitsPerSide int representing the most moves a side makes in a turn
+   */
+  TurnBatch(int unitsPerSide){
+    this.moves = new long[unitsPerSide];
+  }
+
+  /**
+   * Empties the batch for a new turn.
+   * Note: This method does not return anything.
+   * @param side int representing the side about to move
+   * @param turn int representing the turn
+   */
+  void clear(int side, int turn){
+    this.side = side;
+    this.turn = turn;
+    this.size = 0;
+    this.winner = null;
+  }
+
+  /**
+   * Packs a block.
+   * @param unit int representing the blocking unit's position
+   * @return long representing the move
+   */
+  static long block(int unit){
+    return unit;
+  }
+
+  /**
+   * Packs an attack.
+   * @param unit int representing the attacker's position
+   * @param target int representing the target's position
+   * @param strength Strength of the attacker against the target
+   * @param attack int representing the attack's damage before defense, below 65536
+   * @param damage int representing the damage received, below 131071, or DODGED
+   * @return long representing the move
+   */
+  static long attack(int unit, int target, Strength strength, int attack, int damage){
+    return unit | (long) (target + 1) << POSITION_BITS | (long) strength.ordinal() << 28 | (long) attack << 30
+        | (long) (damage + 1) << 46;
+  }
+
+  /**
+   * Returns the side that moved.
+   * Note: This method does not take any parameters.
+   * @return side, BattleState.HUMAN or BattleState.COMPUTER
+   */
+  public int getSide(){
+    return this.side;
+  }
+
+  /**
+   * Returns the turn of the game.
+   * Note: This method does not take any parameters.
+   * @return turn
+   */
+  public int getTurn(){
+    return this.turn;
+  }
+
+  /**
+   * Returns the number of moves in the batch.
+   * Note: This method does not take any parameters.
+   * @return size
+   */
+  public int size(){
+    return this.size;
+  }
+
+  /**
+   * Returns the position of the unit that made a move.
+   * @param move int representing the move, from 0 to size - 1
+   * @return int representing the unit's position within its side
+   */
+  public int getUnit(int move){
+    return (int) this.moves[move] & (1 << POSITION_BITS) - 1;
+  }
+
+  /**
+   * Determines if a move was a block.
+   * @param move int representing the move
+   * @return boolean true if the unit blocked
+   */
+  public boolean isBlock(int move){
+    return getTarget(move) == BLOCK;
+  }
+
+  /**
+   * Returns the target of an attack.
+   * @param move int representing the move
+   * @return int representing the target's position within the other side, or BLOCK
+   */
+  public int getTarget(int move){
+    return ((int) (this.moves[move] >>> POSITION_BITS) & (1 << POSITION_BITS) - 1) - 1;
+  }
+
+  /**
+   * Returns the matchup of an attack.
+   * @param move int representing the move, which must be an attack
+   * @return Strength of the attacker against the target
+   */
+  public Strength getStrength(int move){
+    return MovePolicy.STRENGTHS[(int) (this.moves[move] >>> 28) & 3];
+  }
+
+  /**
+   * Returns the damage of an attack before the target's defense.
+   * @param move int representing the move, which must be an attack
+   * @return int representing the damage
+   */
+  public int getAttack(int move){
+    return (int) (this.moves[move] >>> 30) & 0xffff;
+  }
+
+  /**
+   * Returns the damage the target of an attack received.
+   * @param move int representing the move, which must be an attack
+   * @return int representing the damage, or DODGED
+   */
+  public int getDamage(int move){
+    return (int) (this.moves[move] >>> 46) - 1;
+  }
+
+  /**
+   * Returns who won the game during or right after this turn.
+   * Note: This method does not take any parameters.
+   * @return String "human", "computer" or "tie", or null if the game goes on
+   */
+  public String getWinner(){
+    return this.winner;
+  }
+}
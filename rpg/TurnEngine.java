@@ -0,0 +1,225 @@
+package rpg;
+
+/**
+ * Plays matches between two move policies on a BattleState, resolving each side's turn in one pass:
+ * every unit's move is chosen, applied and written to a TurnBatch, and the batch goes to the listener once per turn.
+ * The turn order, winner checks and dodge rolls are those of GameControl.playUntil and Unit.receiveDamage,
+ * so with GreedyPolicy for the human and PairingPolicy for the computer it plays the same match as
+ * GameControl.playHeadless. Instead of calling getWinner between moves, the engine keeps each side's alive count
+ * and only looks for a winner when a hit knocks a unit out; temporary defense is only reset on a side that blocked.
+ * One instance reuses its state for every match, so it belongs to one thread.
+ */
+public final class TurnEngine {
+
+  /**
+   * The battle being played, in battle 0.
+   */
+  private final BattleState state;
+
+  /**
+   * The moves of the turn being resolved.
+   */
+  private final TurnBatch batch;
+
+  /**
+   * Number of units still standing on each side, indexed by BattleState.HUMAN and BattleState.COMPUTER.
+   */
+  private final int[] alive = new int[2];
+
+  /**
+   * Whether each side may have temporary defense to reset.
+   */
+  private final boolean[] blocked = new boolean[2];
+
+  /**
+   * Receives every resolved turn, or null.
+   */
+  private TurnListener listener;
+
+  /**
+   * The turn the last match ended on, or 10 if it went all turns.
+   */
+  private int turn;
+
+  /**
+   * Constructs an engine for matches with the given number of units per side.
+   * @param unitsPerSide int representing the number of units each side has
+   */
+  public TurnEngine(int unitsPerSide){
+    this.state = new BattleState(1, unitsPerSide);
+    this.batch = new TurnBatch(unitsPerSide);
+  }
+
+  /**
+   * Sets where resolved turns go.
+   * Note: This method does not return anything.
+   * @param listener TurnListener to receive one batch per side and turn, or null for none
+   */
+  public void setListener(TurnListener listener){
+    this.listener = listener;
+  }
+
+  /**
+   * Plays a game from its current turn to the end with the given policies. The game itself is not changed,
+   * apart from its generator, which draws the dodge rolls.
+   * @param game GameControl holding the starting units, rules and generator
+   * @param humanPolicy MovePolicy of the human side
+   * @param computerPolicy MovePolicy of the computer side
+   * @return String representing who won the game ("human" or "computer") or "tie" if there is a tie
+   */
+  public String play(GameControl game, MovePolicy humanPolicy, MovePolicy computerPolicy){
+    BattleState state = this.state;
+    state.load(0, game.human, game.computer);
+    for (int side = BattleState.HUMAN; side <= BattleState.COMPUTER; side++) {
+      this.alive[side] = state.countAliveUnits(0, side);
+      this.blocked[side] = false;
+      int first = state.slot(0, side, 0);
+      for (int i = first; i < first + state.unitsPerSide; i++) {
+        this.blocked[side] |= state.temporaryDefense[i] != 0;
+      }
+    }
+    return play(game.getTurn(), game.random, humanPolicy, computerPolicy);
+  }
+
+  /**
+   * Plays a new game from its seed with the given policies, dealing the units straight into the battle state
+   * (see BattleState.deal), so no Unit or player objects are made.
+   * @param seed long representing the match seed
+   * @param rules BalanceRules the units are dealt and fight under
+   * @param humanPolicy MovePolicy of the human side
+   * @param computerPolicy MovePolicy of the computer side
+   * @return String representing who won the game ("human" or "computer") or "tie" if there is a tie
+   */
+  public String play(long seed, BalanceRules rules, MovePolicy humanPolicy, MovePolicy computerPolicy){
+    MatchRandom random = new MatchRandom(seed);
+    this.state.deal(0, rules, random);
+    for (int side = BattleState.HUMAN; side <= BattleState.COMPUTER; side++) {
+      this.alive[side] = this.state.unitsPerSide;
+      this.blocked[side] = false;
+    }
+    return play(0, random, humanPolicy, computerPolicy);
+  }
+
+  /**
+   * Plays the loaded battle from the given turn to the end.
+   * @param firstTurn int representing the turn to start at
+   * @param random MatchRandom drawing the dodge rolls
+   * @param humanPolicy MovePolicy of the human side
+   * @param computerPolicy MovePolicy of the computer side
+   * @return String representing who won the game ("human" or "computer") or "tie" if there is a tie
+   */
+  private String play(int firstTurn, MatchRandom random, MovePolicy humanPolicy, MovePolicy computerPolicy){
+    BattleState state = this.state;
+    String winner = null;
+    for (this.turn = firstTurn; this.turn < 10 && winner == null; this.turn++) {
+      winner = resolve(BattleState.HUMAN, humanPolicy, random);
+      if (winner == null) {
+        resetTemporaryDefense(BattleState.COMPUTER);
+        winner = resolve(BattleState.COMPUTER, computerPolicy, random);
+        resetTemporaryDefense(BattleState.HUMAN);
+      }
+    }
+    if (winner == null) {
+      winner = state.getWinner(0, 10);
+    } else {
+      this.turn--;
+    }
+    GameMetrics.matchEnded(this.turn);
+    return winner;
+  }
+
+  /**
+   * Resolves one side's turn: moves every unit with its policy, applies the move at once and adds it to the batch.
+   * The human side stops as soon as the computer has no unit left, since GameControl checks for a winner between
+   * human moves; the computer side always moves every unit.
+   * @param side int representing the moving side, BattleState.HUMAN or BattleState.COMPUTER
+   * @param policy MovePolicy of the side
+   * @param random MatchRandom drawing the dodge rolls
+   * @return String representing who won during or right after the turn, or null if the game goes on
+   */
+  private String resolve(int side, MovePolicy policy, MatchRandom random){
+    long start = GameMetrics.start();
+    BattleState state = this.state;
+    TurnBatch batch = this.batch;
+    batch.clear(side, this.turn);
+    int other = 1 - side;
+    int blockAllowance = this.alive[side] - 1;
+    int blocksUsed = 0;
+    long[] moves = batch.moves;
+    int size = 0;
+
+    for (int unit = 0; unit < state.unitsPerSide; unit++) {
+      int move = policy.choose(state, 0, side, unit, blocksUsed, blockAllowance);
+      if (move == MovePolicy.END_TURN) {
+        break;
+      } else if (move == MovePolicy.BLOCK) {
+        state.block(state.slot(0, side, unit));
+        this.blocked[side] = true;
+        blocksUsed++;
+        moves[size++] = TurnBatch.block(unit);
+      } else if (move != MovePolicy.SKIP) {
+        int target = MovePolicy.target(move);
+        int targetSlot = state.slot(0, other, target);
+        Strength strength = MovePolicy.strength(move);
+        int attack = state.attack(state.slot(0, side, unit), strength);
+        int hpBefore = state.hp[targetSlot];
+        int damage = state.receiveDamage(targetSlot, attack, random);
+        moves[size++] = TurnBatch.attack(unit, target, strength, attack, damage);
+        if (hpBefore > 0 && state.hp[targetSlot] == 0 && --this.alive[other] == 0 && side == BattleState.HUMAN) {
+          break;
+        }
+      }
+    }
+
+    batch.size = size;
+    if (this.alive[BattleState.HUMAN] == 0) {
+      batch.winner = "computer";
+    } else if (this.alive[BattleState.COMPUTER] == 0) {
+      batch.winner = "human";
+    }
+    GameMetrics.turnResolved(batch, state, start);
+    if (this.listener != null) {
+      this.listener.turnResolved(batch);
+    }
+    return batch.winner;
+  }
+
+  /**
+   * Resets the temporary defense of a side if any of its units may have blocked.
+   * Note: This method does not return anything.
+   * @param side int representing the side, BattleState.HUMAN or BattleState.COMPUTER
+   */
+  private void resetTemporaryDefense(int side){
+    if (this.blocked[side]) {
+      this.state.resetTemporaryDefense(0, side);
+      this.blocked[side] = false;
+    }
+  }
+
+  /**
+   * Returns the turn the last match ended on.
+   * Note: This method does not take any parameters.
+   * @return turn, 10 if the match went all 10 turns
+   */
+  public int getTurn(){
+    return this.turn;
+  }
+
+  /**
+   * Returns the battle state, holding the last match's units in battle 0 as they ended.
+   * Note: This method does not take any parameters.
+   * @return state
+   */
+  BattleState getState(){
+    return this.state;
+  }
+
+  /**
+   * Returns the combined HP a side had left when the last match ended.
+   * @param side int representing the side, BattleState.HUMAN or BattleState.COMPUTER
+   * @return int representing the side's HP
+   */
+  public int getHpSum(int side){
+    return this.state.hpSum(0, side);
+  }
+}
@@ -0,0 +1,14 @@
+package rpg;
+
+/**
+ * Receives the turns TurnEngine resolves, one batch per side and turn.
+ */
+public interface TurnListener {
+
+  /**
+   * A side finished its turn.
+   * Note: This method does not return anything.
+   * @param batch TurnBatch of the side's moves, reused by the engine after this call returns
+   */
+  void turnResolved(TurnBatch batch);
+}
@@ -1,5 +1,6 @@
 package rpg;
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents a unit that can belong to either the computer or human player.
@@ -21,6 +22,11 @@ public class Unit {
    */
   private String job;
 
+  /**
+   * The unit's job as a Job value, or null if the job is not one of mage, knight or archer.
+   */
+  private Job jobType;
+
   /**
    * The unit's current health points or HP.
    */
@@ -47,9 +53,29 @@ public class Unit {
   private int evasion = 0;
 
   /**
-   * A random number generator to be used in this class.
+   * The balance rules this unit's stats and damage follow.
+   */
+  private BalanceRules rules = BalanceRules.STANDARD;
+
+  /**
+   * A random number generator to be used in this class, shared with the rest of the match when one is given.
+   */
+  RandomGenerator random;
+
+  /**
+   * Where this unit publishes what happens to it, such as damage received and dodges.
+   */
+  CombatEvents events = ConsoleEvents.STANDARD;
+
+  /**
+   * The roster of the player this unit belongs to, told about every HP change, or null if the unit has no player.
+   */
+  Roster roster;
+
+  /**
+   * This unit's position in its player's roster.
    */
-  Random random = new Random();
+  int rosterPosition;
 
   /**
    * Constructs a unit by assigning the given name and job as well as calculating other stats.
@@ -60,24 +86,79 @@ public class Unit {
    */
 
   public Unit(String name, String levelRange, String job){
+    this(name, levelRange, job, new Random());
+  }
+
+  /**
+   * Constructs a unit like Unit(name, levelRange, job), drawing the level and later evasion rolls from the given generator.
+   * @param name String representing the name of this unit
+   * @param levelRange String representing the level range of this unit, such as low, medium or high
+   * @param job String representing the job of this unit
+   * @param random RandomGenerator of the match this unit plays in
+   */
+
+  public Unit(String name, String levelRange, String job, RandomGenerator random){
+    this(name, levelRange, job, random, BalanceRules.STANDARD);
+  }
 
+  /**
+   * Constructs a unit like Unit(name, levelRange, job, random), with its level range and stats taken from the given rules.
+   * @param name String representing the name of this unit
+   * @param levelRange String representing the level range of this unit, such as low, medium or high
+   * @param job String representing the job of this unit
+   * @param random RandomGenerator of the match this unit plays in
+   * @param rules BalanceRules giving the level ranges, stats and damage formula
+   */
+
+  public Unit(String name, String levelRange, String job, RandomGenerator random, BalanceRules rules){
+
+    this.random = random;
+    this.rules = rules;
     this.name = name; // assign the name variable
     this.job = job; // assign the job variable
+    this.jobType = Job.fromName(job); // resolve the job once so matchups never compare strings
 
-    if ("low".equals(levelRange)) {
-        this.level = random.nextInt(1,4); // 1 to 3
-    } else if ("medium".equals(levelRange)){
-        this.level = random.nextInt(4,7); // 4 to 7
-    } else {
-        this.level = random.nextInt(7,11); // 7 to 11
-    }
+    this.level = rules.drawLevel(levelRange, random); // 1 to 3, 4 to 6 or 7 to 10 with the standard rules
+
+    this.hp = scaleStat(this.level, rules.getHp()); // 100 at level 10 with the standard rules
+    this.attack = scaleStat(this.level, rules.getAttack()); // 20 at level 10 with the standard rules
+    this.evasion = scaleStat(this.level, rules.getEvasion()); // 5 at level 10 with the standard rules
+    this.defense = scaleStat(this.level, rules.getDefense()); // 20 at level 10 with the standard rules
+
+  }
 
-    double multiplier = (double) (this.level / 10.0); // multiplier to a tenth of the level
-    this.hp = (int) Math.round(multiplier * 100); // max value 100
-    this.attack = (int) Math.round(multiplier * 20); // max value 20
-    this.evasion = (int) Math.round(multiplier * 5); // max value 5
-    this.defense = (int) Math.round(multiplier * 20); // max value 20
+  /**
+   * Constructs a unit of a known level and job without any rolls, such as when restoring a GameSnapshot.
+   * @param name String representing the name of this unit
+   * @param level int representing the level of this unit, 1 to 10
+   * @param job Job of this unit
+   * @param random RandomGenerator of the match this unit plays in, used for later evasion rolls
+   */
 
+  Unit(String name, int level, Job job, RandomGenerator random){
+    this.random = random;
+    this.name = name;
+    this.job = job.label();
+    this.jobType = job;
+    this.level = level;
+
+    // the same stat formula as the main constructor, under the standard rules this unit starts with
+    this.hp = scaleStat(this.level, this.rules.getHp());
+    this.attack = scaleStat(this.level, this.rules.getAttack());
+    this.evasion = scaleStat(this.level, this.rules.getEvasion());
+    this.defense = scaleStat(this.level, this.rules.getDefense());
+  }
+
+  /**
+   * Scales a stat's maximum value by a tenth of the level, the way every unit stat is derived from its level.
+   * @param level int representing the unit's level
+   * @param maxValue int representing the stat's value at level 10
+   * @return int representing the stat at the given level
+   */
+
+  static int scaleStat(int level, int maxValue) {
+    double multiplier = level / 10.0; // multiplier to a tenth of the level
+    return (int) Math.round(multiplier * maxValue);
   }
 
   /**
@@ -103,6 +184,16 @@ public class Unit {
     return this.job;
   }
 
+  /**
+   * Returns this unit's job as a Job value.
+   * Note: This method does not take any parameters.
+   * @return jobType, or null if the job is not one of mage, knight or archer
+   */
+
+  public Job getJobType() {
+    return this.jobType;
+  }
+
   /**
    * Returns this unit's hp.
    * Note: This method does not take any parameters.
@@ -113,6 +204,36 @@ public class Unit {
     return this.hp;
   }
 
+  /**
+   * Returns this unit's attack stat.
+   * Note: This method does not take any parameters.
+   * @return attack
+   */
+
+  public int getAttack() {
+    return this.attack;
+  }
+
+  /**
+   * Returns this unit's defense stat.
+   * Note: This method does not take any parameters.
+   * @return defense
+   */
+
+  public int getDefense() {
+    return this.defense;
+  }
+
+  /**
+   * Returns this unit's evasion stat.
+   * Note: This method does not take any parameters.
+   * @return evasion
+   */
+
+  public int getEvasion() {
+    return this.evasion;
+  }
+
   /**
    * Sets this unit's hp stat to the given hp.
    * Note: This method does not return anything.
@@ -120,7 +241,11 @@ public class Unit {
    */
 
   public void setHp(int hp) {
+    int oldHp = this.hp;
     this.hp = hp;
+    if (this.roster != null) {
+      this.roster.hpChanged(this, oldHp);
+    }
   }
 
   /**
@@ -158,6 +283,16 @@ public class Unit {
     this.evasion = evasion;
   }
 
+  /**
+   * Sets where this unit publishes what happens to it.
+   * Note: This method does not return anything.
+   * @param events CombatEvents to publish to
+   */
+
+  public void setEvents(CombatEvents events) {
+    this.events = events;
+  }
+
   /**
    * Prints the unit's name, level, job, and remaining HP.
    * If the unit has no remaining hp, prints that this unit is knocked out.
@@ -165,12 +300,9 @@ public class Unit {
    */
 
   public void printCurrentStatus(){
-    
-    System.out.println(this.name + " is a level " + this.level + " " + this.job + " " + this.hp + " HP." );
 
-    if (this.hp < 1) {
-      System.out.println("This unit is knocked out!");
-    }
+    // the event sink renders the status line and the knocked out notice
+    this.events.unitStatus(this);
 
   }
 
@@ -181,21 +313,40 @@ public class Unit {
    */
 
    public int attack(String attackerStrength) {
-    double multiplier = 1.0;
+    return attack(Strength.fromLabel(attackerStrength));
+  }
 
-    // Check which attack method the player chooses
-    if ("strong".equals(attackerStrength)) {
-        multiplier = 1.2;
-    } else if ("weak".equals(attackerStrength)) {
-        multiplier = 0.5;
-    }
+  /**
+   * Calculates damage based on this unit's attack stat, maximum attack, and attacker strength relative to target.
+   * @param attackerStrength Strength of the attacker relative to the target
+   * @return int representing the total damage this unit will deal when attacking
+   */
 
-    double attackMax = 50.0;
-    double rawDamage = (this.attack / 30.0) * attackMax;
-    int damage = (int) Math.round(rawDamage * multiplier);
+  public int attack(Strength attackerStrength) {
+    int damage = this.rules.attackDamage(this.attack, attackerStrength);
 
+    GameMetrics metrics = GameMetrics.active();
+    if (metrics != null) {
+      metrics.attacks[attackerStrength.ordinal()].increment();
+      metrics.damage[attackerStrength.ordinal()].add(damage);
+    }
+    FlightEvents.Attack event = new FlightEvents.Attack();
+    if (event.isEnabled()) {
+      event.job = this.job;
+      event.strength = attackerStrength.label();
+      event.damage = damage;
+      event.commit();
+    }
     return damage;
+  }
 
+  /**
+   * Returns the balance rules this unit's stats and damage follow.
+   * Note: This method does not take any parameters.
+   * @return rules
+   */
+  BalanceRules getRules(){
+    return this.rules;
   }
 
   /**
@@ -205,6 +356,11 @@ public class Unit {
 
   public void block(){
     temporaryDefense += 2;
+    GameMetrics metrics = GameMetrics.active();
+    if (metrics != null) {
+      metrics.blocks.increment();
+    }
+    this.events.blockRaised(this);
   }
 
   /**
@@ -218,27 +374,76 @@ public class Unit {
   public void receiveDamage(int damage){
     
     // Perform evasion check
+    boolean dodged = false;
     if (this.evasion > 0) {
       int num = random.nextInt(21);
-      if (num <= this.evasion) {
-        System.out.println("They dodged!");
-        return;
+      dodged = num <= this.evasion;
+    }
+    GameMetrics metrics = GameMetrics.active();
+    if (metrics != null) {
+      int evasion = Math.min(Math.max(this.evasion, 0), GameMetrics.EVASIONS - 1);
+      metrics.incoming[evasion].increment();
+      if (dodged) {
+        metrics.dodges[evasion].increment();
       }
     }
+    if (dodged) {
+      this.events.dodged(this);
+      damageEvent(true, 0);
+      return;
+    }
 
-    // Calculate defense adjustment
-    float defenseAdjustment = (float) ((this.temporaryDefense + this.defense) / 10.0);
-
-    // Calculate actual damage received
-    int damageReceived = (int) Math.round(damage / defenseAdjustment);
+    // Calculate actual damage received after the defense adjustment
+    int damageReceived = damageReceived(damage, this.defense, this.temporaryDefense);
 
     // Update HP
+    int oldHp = this.hp;
     this.hp -= damageReceived;
     if (this.hp < 0) {
         this.hp = 0;
     }
+    if (this.roster != null) {
+      this.roster.hpChanged(this, oldHp);
+    }
+
+    // Publish damage received and remaining HP
+    this.events.damageReceived(this, damageReceived);
+    damageEvent(false, damageReceived);
+  }
 
-    // Print damage received and remaining HP
-    System.out.println(this.name + " received: " + damageReceived + " damage. And has " + this.hp + " HP remaining." );
+  /**
+   * Commits a flight recorder event for an attack this unit received, if one is being recorded.
+   * Note: This method does not return anything.
+   * @param dodged boolean true if the unit dodged the attack
+   * @param damage int representing the damage received
+   */
+  private void damageEvent(boolean dodged, int damage){
+    FlightEvents.Damage event = new FlightEvents.Damage();
+    if (event.isEnabled()) {
+      event.unit = this.name;
+      event.evasion = this.evasion;
+      event.dodged = dodged;
+      event.damage = damage;
+      event.hp = this.hp;
+      event.commit();
+    }
+  }
+
+  /**
+   * Adjusts incoming damage by the defense and temporary defense of the unit receiving it.
+   * Shared by Unit, BattleState and DamageTable so every path computes damage with exactly the same arithmetic.
+   * @param damage int representing the incoming damage
+   * @param defense int representing the receiving unit's defense stat
+   * @param temporaryDefense int representing the receiving unit's temporary defense
+   * @return int representing the damage actually received
+   */
+
+  static int damageReceived(int damage, int defense, int temporaryDefense) {
+
+    // Calculate defense adjustment
+    float defenseAdjustment = (float) ((temporaryDefense + defense) / 10.0);
+
+    // Calculate actual damage received
+    return Math.round(damage / defenseAdjustment);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,500 @@
+package rpg;
+import java.util.Arrays;
+
+/**
+ * Computes the exact chance of each outcome of a three-on-three game from any turn, for a given pair of policies.
+ * Plays every dodge roll both ways with its probability and memoizes each decision point under a compact state key,
+ * following the turn order of GameControl: human units move with a winner check after every attack,
+ * then the computer units move, then getWinner decides, including the HP comparison after turn 9.
+ *
+ * The memo is kept across evaluate calls on the same rosters, so evaluating the turns of one game one after another
+ * mostly reads positions the first call already solved, and shrinks back to its starting size when the rosters change.
+ * It is a table of buckets of four entries that doubles when half full, up to a cap; once at the cap, a position
+ * whose bucket is full replaces the entry of the latest turn, the cheapest to evaluate again. Memory stays bounded
+ * and results stay exact, but an evaluation that needs much more than the cap slows down sharply as dropped positions
+ * are evaluated again.
+ */
+public class WinProbability {
+
+  /**
+   * Index of the human win probability in an evaluate result.
+   */
+  public static final int HUMAN_WINS = 0;
+
+  /**
+   * Index of the tie probability in an evaluate result.
+   */
+  public static final int TIES = 1;
+
+  /**
+   * Index of the computer win probability in an evaluate result.
+   */
+  public static final int COMPUTER_WINS = 2;
+
+  /**
+   * Bytes a memo entry takes: its key, human win and tie probabilities.
+   */
+  private static final int ENTRY_BYTES = 24;
+
+  /**
+   * Smallest default cap on the memo: 2^21 entries, 48 MB.
+   */
+  private static final int MIN_DEFAULT_MEMO_BITS = 21;
+
+  /**
+   * Largest default cap on the memo: 2^26 entries, 1.5 GB.
+   */
+  private static final int MAX_DEFAULT_MEMO_BITS = 26;
+
+  /**
+   * Default cap on the memo, sized from the heap, see defaultMemoBits.
+   */
+  public static final int DEFAULT_MEMO_BITS = defaultMemoBits();
+
+  /**
+   * Number of bits of a memo index the memo starts with and shrinks back to.
+   */
+  private static final int INITIAL_MEMO_BITS = 12;
+
+  /**
+   * Number of entries of a memo bucket.
+   */
+  private static final int BUCKET = 4;
+
+  /**
+   * Most entries the memo grows to.
+   */
+  private final int maxMemo;
+
+  /**
+   * Policy of the human side.
+   */
+  private final MovePolicy humanPolicy;
+
+  /**
+   * Policy of the computer side.
+   */
+  private final MovePolicy computerPolicy;
+
+  /**
+   * The battle being evaluated, played out in place and restored after every branch.
+   */
+  private final BattleState state = new BattleState(1);
+
+  /**
+   * Fixed stats of the rosters the memo belongs to; the memo is cleared when they change.
+   */
+  private final int[] roster = new int[30];
+
+  /**
+   * Balance rules the memo belongs to; the memo is cleared when they change.
+   */
+  private BalanceRules rules = BalanceRules.STANDARD;
+
+  /**
+   * Memo keys, 0 marking an empty entry, in buckets of BUCKET entries.
+   */
+  private long[] keys = new long[1 << INITIAL_MEMO_BITS];
+
+  /**
+   * Memoized human win probabilities, aligned with keys.
+   */
+  private double[] humanWins = new double[1 << INITIAL_MEMO_BITS];
+
+  /**
+   * Memoized tie probabilities, aligned with keys.
+   */
+  private double[] ties = new double[1 << INITIAL_MEMO_BITS];
+
+  /**
+   * Number of memo entries in use.
+   */
+  private int size = 0;
+
+  /**
+   * Human win probability of the last evaluated position; recursive calls return through this and tie.
+   */
+  private double win;
+
+  /**
+   * Tie probability of the last evaluated position.
+   */
+  private double tie;
+
+  /**
+   * Constructs an evaluator for the given policies whose memo holds at most 2^memoBits positions, 24 bytes each.
+   * @param humanPolicy MovePolicy of the human side
+   * @param computerPolicy MovePolicy of the computer side
+   * @param memoBits int representing the number of bits of the largest memo index, from 12 to 28
+   */
+  public WinProbability(MovePolicy humanPolicy, MovePolicy computerPolicy, int memoBits){
+    if (memoBits < INITIAL_MEMO_BITS || memoBits > 28) {
+      throw new IllegalArgumentException("Memo cap must be 2^" + INITIAL_MEMO_BITS + " to 2^28 positions: 2^" + memoBits);
+    }
+    this.humanPolicy = humanPolicy;
+    this.computerPolicy = computerPolicy;
+    this.maxMemo = 1 << memoBits;
+  }
+
+  /**
+   * Picks the default memo cap: the largest from 2^21 to 2^26 entries that takes at most a sixth of the maximum heap,
+   * since growing the memo briefly holds the old and the new table. Evictions nearly double the time of the
+   * evaluations that outgrow the cap, so the cap should be as large as the heap allows; on a 1.5 GB heap it is 2^23.
+   * Note: This method does not take any parameters.
+   * @return int representing the number of bits of the largest memo index
+   */
+  private static int defaultMemoBits(){
+    long budget = Runtime.getRuntime().maxMemory() / 6 / ENTRY_BYTES;
+    int bits = MIN_DEFAULT_MEMO_BITS;
+    while (bits < MAX_DEFAULT_MEMO_BITS && 1L << bits + 1 <= budget) {
+      bits++;
+    }
+    return bits;
+  }
+
+  /**
+   * Constructs an evaluator for the given policies with the default memo cap.
+   * @param humanPolicy MovePolicy of the human side
+   * @param computerPolicy MovePolicy of the computer side
+   */
+  public WinProbability(MovePolicy humanPolicy, MovePolicy computerPolicy){
+    this(humanPolicy, computerPolicy, DEFAULT_MEMO_BITS);
+  }
+
+  /**
+   * Constructs an evaluator for headless play: the scripted human policy against the fixed computer turn.
+   */
+  public WinProbability(){
+    this(GreedyPolicy.INSTANCE, PairingPolicy.INSTANCE);
+  }
+
+  /**
+   * Evaluates a game at the start of its current turn.
+   * A cold evaluation at turn 0 can take seconds. Over seeds 0 to 199 on one core with a 2^23 memo, the median was
+   * 81 ms, the 90th percentile 0.68 s and the 99th 3.2 s. The worst, new GameControl(42), took 6.0 s and needed
+   * 3.6 million positions, and 9.6 s under a 2^21 cap. Later turns of the same game mostly read the memo.
+   * @param game GameControl to evaluate; it is not changed
+   * @return double array of the human win, tie and computer win probabilities, see HUMAN_WINS, TIES, COMPUTER_WINS
+   */
+  public double[] evaluate(GameControl game){
+    BattleState source = new BattleState(1, game.human.getRoster().size());
+    source.load(0, game.human, game.computer);
+    return evaluate(source, 0, game.getTurn());
+  }
+
+  /**
+   * Evaluates a battle at the start of the given turn, before the human moves; see evaluate(GameControl) for its cost.
+   * HP must be at most 127 and temporary defense 0 or 2, which covers every position of a regular game.
+   * @param source BattleState holding the battle; it is not changed
+   * @param battle int representing the battle in source
+   * @param turn int representing the turn about to start, from 0 to 9
+   * @return double array of the human win, tie and computer win probabilities, see HUMAN_WINS, TIES, COMPUTER_WINS
+   */
+  public double[] evaluate(BattleState source, int battle, int turn){
+    if (source.unitsPerSide != 3) {
+      throw new IllegalArgumentException("Only three units per side are supported: " + source.unitsPerSide);
+    }
+    source.copyBattle(battle, this.state, 0);
+    for (int slot = 0; slot < 6; slot++) {
+      if (this.state.hp[slot] > 127 || (this.state.temporaryDefense[slot] != 0 && this.state.temporaryDefense[slot] != 2)) {
+        throw new IllegalArgumentException("State out of range at slot " + slot);
+      }
+    }
+    boolean changed = rosterChanged();
+    if (this.rules != this.state.getRules()) {
+      this.rules = this.state.getRules();
+      changed = true;
+    }
+    if (changed) {
+      clear();
+    }
+
+    if (turn >= 10) {
+      terminal(10);
+    } else {
+      move(BattleState.HUMAN, 0, 0, this.state.countAliveUnits(0, BattleState.HUMAN) - 1, turn);
+    }
+    return new double[] {this.win, this.tie, Math.max(0, 1 - this.win - this.tie)};
+  }
+
+  /**
+   * Evaluates the position where the given unit is about to move, leaving the result in win and tie.
+   * Note: This method does not return anything.
+   * @param side int representing the moving side
+   * @param mover int representing the position of the moving unit
+   * @param blocksUsed int representing the blocks the side used this turn
+   * @param blockAllowance int representing the side's alive units at the start of the turn minus one
+   * @param turn int representing the current turn
+   */
+  private void move(int side, int mover, int blocksUsed, int blockAllowance, int turn){
+    if (mover == 3) {
+      endSide(side, turn);
+      return;
+    }
+
+    // memoize where a side's turn starts; within a turn there are at most eight dodge paths to play out
+    long key = 0;
+    if (mover == 0) {
+      key = key(side, blocksUsed, blockAllowance, turn);
+      int index = find(key);
+      if (index >= 0) {
+        this.win = this.humanWins[index];
+        this.tie = this.ties[index];
+        return;
+      }
+    }
+
+    MovePolicy policy = side == BattleState.HUMAN ? this.humanPolicy : this.computerPolicy;
+    int move = policy.choose(this.state, 0, side, mover, blocksUsed, blockAllowance);
+
+    if (move == MovePolicy.SKIP) {
+      move(side, mover + 1, blocksUsed, blockAllowance, turn);
+    } else if (move == MovePolicy.END_TURN) {
+      endSide(side, turn);
+    } else if (move == MovePolicy.BLOCK) {
+      int unit = this.state.slot(0, side, mover);
+      int before = this.state.temporaryDefense[unit];
+      this.state.block(unit);
+      move(side, mover + 1, blocksUsed + 1, blockAllowance, turn);
+      this.state.temporaryDefense[unit] = before;
+    } else {
+      attack(side, mover, move, blocksUsed, blockAllowance, turn);
+    }
+
+    if (mover == 0) {
+      store(key, this.win, this.tie);
+    }
+  }
+
+  /**
+   * Evaluates an attack, weighting the hit and the dodge by the target's dodge chance.
+   * Note: This method does not return anything.
+   * @param side int representing the moving side
+   * @param mover int representing the position of the attacking unit
+   * @param move int representing the attack move
+   * @param blocksUsed int representing the blocks the side used this turn
+   * @param blockAllowance int representing the side's alive units at the start of the turn minus one
+   * @param turn int representing the current turn
+   */
+  private void attack(int side, int mover, int move, int blocksUsed, int blockAllowance, int turn){
+    int attacker = this.state.slot(0, side, mover);
+    int target = this.state.slot(0, 1 - side, MovePolicy.target(move));
+    double dodge = DamageTable.dodgeChance(this.state.evasion[target]);
+
+    int hpBefore = this.state.hp[target];
+    this.state.applyDamage(target, this.state.hitDamage(attacker, target, MovePolicy.strength(move)));
+    if (side == BattleState.HUMAN && (this.state.isKnockedOut(0, BattleState.COMPUTER)
+        || this.state.isKnockedOut(0, BattleState.HUMAN))) {
+      // takeHumanTurn and main check for a winner after every human move
+      terminal(turn);
+    } else {
+      move(side, mover + 1, blocksUsed, blockAllowance, turn);
+    }
+    this.state.hp[target] = hpBefore;
+
+    if (dodge > 0) {
+      double hitWin = this.win;
+      double hitTie = this.tie;
+      move(side, mover + 1, blocksUsed, blockAllowance, turn);
+      this.win = dodge * this.win + (1 - dodge) * hitWin;
+      this.tie = dodge * this.tie + (1 - dodge) * hitTie;
+    }
+  }
+
+  /**
+   * Ends a side's turn: resets the other side's temporary defense and moves on to the next side or turn.
+   * Note: This method does not return anything.
+   * @param side int representing the side whose turn ends
+   * @param turn int representing the current turn
+   */
+  private void endSide(int side, int turn){
+    int other = 1 - side;
+    int first = this.state.slot(0, other, 0);
+    int saved0 = this.state.temporaryDefense[first];
+    int saved1 = this.state.temporaryDefense[first + 1];
+    int saved2 = this.state.temporaryDefense[first + 2];
+    this.state.resetTemporaryDefense(0, other);
+
+    if (side == BattleState.HUMAN) {
+      move(BattleState.COMPUTER, 0, 0, this.state.countAliveUnits(0, BattleState.COMPUTER) - 1, turn);
+    } else if (this.state.isKnockedOut(0, BattleState.HUMAN) || this.state.isKnockedOut(0, BattleState.COMPUTER)) {
+      terminal(turn);
+    } else if (turn + 1 >= 10) {
+      terminal(10);
+    } else {
+      move(BattleState.HUMAN, 0, 0, this.state.countAliveUnits(0, BattleState.HUMAN) - 1, turn + 1);
+    }
+
+    this.state.temporaryDefense[first] = saved0;
+    this.state.temporaryDefense[first + 1] = saved1;
+    this.state.temporaryDefense[first + 2] = saved2;
+  }
+
+  /**
+   * Sets win and tie for a finished game following GameControl.getWinner.
+   * Note: This method does not return anything.
+   * @param turn int representing the turn the game ended on, 10 for the HP comparison
+   */
+  private void terminal(int turn){
+    int humanPoints = this.state.hpSum(0, BattleState.HUMAN);
+    int computerPoints = this.state.hpSum(0, BattleState.COMPUTER);
+    if (turn < 10) {
+      // knocked out: the human side is checked first, as in getWinner
+      this.win = humanPoints > 0 && this.state.isKnockedOut(0, BattleState.COMPUTER) ? 1 : 0;
+      this.tie = 0;
+    } else {
+      this.win = humanPoints > computerPoints ? 1 : 0;
+      this.tie = humanPoints == computerPoints ? 1 : 0;
+    }
+  }
+
+  /**
+   * Packs the position into a key: 7 bits of HP and 1 bit of temporary defense per unit, then the turn position.
+   * @param side int representing the moving side
+   * @param blocksUsed int representing the blocks the side used this turn
+   * @param blockAllowance int representing the side's alive units at the start of the turn minus one
+   * @param turn int representing the current turn
+   * @return long key, never 0
+   */
+  private long key(int side, int blocksUsed, int blockAllowance, int turn){
+    long key = 1;
+    for (int slot = 0; slot < 6; slot++) {
+      key = key << 8 | this.state.hp[slot] << 1 | this.state.temporaryDefense[slot] >> 1;
+    }
+    return key << 10 | side << 9 | blocksUsed << 6 | (blockAllowance + 1) << 4 | turn;
+  }
+
+  /**
+   * Returns the first entry of a key's bucket.
+   * @param key long key of the position
+   * @return int index of the bucket's first entry
+   */
+  private int bucket(long key){
+    return (int) MatchRandom.mix64(key) & (this.keys.length - BUCKET);
+  }
+
+  /**
+   * Finds the memo entry for a key.
+   * @param key long key of the position
+   * @return int index of the entry, or -1 if the position is not memoized
+   */
+  private int find(long key){
+    int first = bucket(key);
+    for (int index = first; index < first + BUCKET; index++) {
+      if (this.keys[index] == key) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Memoizes the result of a position, growing the memo when it is half full and below its cap.
+   * Note: This method does not return anything.
+   * @param key long key of the position
+   * @param humanWin double representing the human win probability
+   * @param tieChance double representing the tie probability
+   */
+  private void store(long key, double humanWin, double tieChance){
+    if (this.size * 2 >= this.keys.length && this.keys.length < this.maxMemo) {
+      grow();
+    }
+    int first = bucket(key);
+    int index = first;
+    for (int i = first; i < first + BUCKET; i++) {
+      if (this.keys[i] == 0 || this.keys[i] == key) {
+        index = i;
+        break;
+      }
+      // the turn is in the low 4 bits of the key
+      if ((this.keys[i] & 15) > (this.keys[index] & 15)) {
+        index = i;
+      }
+    }
+    if (this.keys[index] == 0) {
+      this.size++;
+    }
+    this.keys[index] = key;
+    this.humanWins[index] = humanWin;
+    this.ties[index] = tieChance;
+  }
+
+  /**
+   * Doubles the memo, rehashing every entry.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  private void grow(){
+    long[] oldKeys = this.keys;
+    double[] oldWins = this.humanWins;
+    double[] oldTies = this.ties;
+    resize(oldKeys.length * 2);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        store(oldKeys[i], oldWins[i], oldTies[i]);
+      }
+    }
+  }
+
+  /**
+   * Replaces the memo with an empty one of the given size.
+   * Note: This method does not return anything.
+   * @param length int representing the number of entries
+   */
+  private void resize(int length){
+    this.keys = new long[length];
+    this.humanWins = new double[length];
+    this.ties = new double[length];
+    this.size = 0;
+  }
+
+  /**
+   * Forgets every memoized position and shrinks the memo back to its starting size.
+   * Note: This method does not take any parameters and does not return anything.
+   */
+  public void clear(){
+    if (this.keys.length > 1 << INITIAL_MEMO_BITS) {
+      resize(1 << INITIAL_MEMO_BITS);
+    } else {
+      Arrays.fill(this.keys, 0);
+      this.size = 0;
+    }
+  }
+
+  /**
+   * Compares the fixed stats of the loaded battle with those the memo belongs to, remembering the new ones.
+   * Note: This method does not take any parameters.
+   * @return boolean true if the rosters changed
+   */
+  private boolean rosterChanged(){
+    boolean changed = false;
+    for (int slot = 0; slot < 6; slot++) {
+      int[] stats = {this.state.level[slot], this.state.job[slot], this.state.attack[slot], this.state.evasion[slot],
+          this.state.defense[slot]};
+      for (int i = 0; i < stats.length; i++) {
+        if (this.roster[slot * 5 + i] != stats[i]) {
+          this.roster[slot * 5 + i] = stats[i];
+          changed = true;
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Returns the number of memoized positions.
+   * Note: This method does not take any parameters.
+   * @return size
+   */
+  public int getMemoSize(){
+    return this.size;
+  }
+
+  /**
+   * Returns the number of positions the memo can grow to.
+   * Note: This method does not take any parameters.
+   * @return int representing the cap
+   */
+  public int getMemoCapacity(){
+    return this.maxMemo;
+  }
+}
@@ -0,0 +1,673 @@
+package rpg.vector;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import rpg.BalanceRules;
+import rpg.BatchSimulator;
+import rpg.BattleState;
+import rpg.MatchRandom;
+import rpg.MatchTally;
+import rpg.Strength;
+
+/**
+ * Plays the scripted batch match (GreedyPolicy for the human, PairingPolicy for the computer) with the
+ * jdk.incubator.vector API, one match per SIMD lane. A turn is resolved for every lane at once: target selection,
+ * the SplitMix64 dodge roll, picking the damage and the HP clamp are lanewise operations, and masks keep knocked out
+ * units and finished matches out of the way. A lane whose match ends is dealt the next seed before the following turn.
+ * Every lane carries its own MatchRandom stream and draws its rolls in the same order as TurnEngine,
+ * so a seed range gives exactly the tally of BatchSimulator. GameMetrics does not see these matches.
+ * Needs --add-modules jdk.incubator.vector to compile and run; on CPUs without vector units the API runs scalar.
+ * One instance belongs to one thread.
+ */
+public final class LaneSimulator {
+
+  /**
+   * Species of every lane vector, the widest the CPU prefers. Stats are kept in long lanes like the generator states,
+   * so no operation has to change shape, which the vector API of JDK 17 does not compile to vector instructions.
+   * Vectors are never live across a method call either, since a call the JIT does not inline boxes them; the steps
+   * of a turn hand their lanes over in the scratch arrays below.
+   */
+  static final VectorSpecies<Long> LANES = LongVector.SPECIES_PREFERRED;
+
+  /**
+   * Number of matches below which a task plays its matches instead of splitting further, more than BatchSimulator's
+   * since lanes only fill up again once the first matches end.
+   */
+  static final int SPLIT_THRESHOLD = 65536;
+
+  /**
+   * The odd constant MatchRandom adds to its state on every step.
+   */
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  /**
+   * Multiplier for which (u * DIVIDE_BY_21) >>> 36 equals u / 21 for every u below 2^31.
+   */
+  private static final long DIVIDE_BY_21 = 3272356036L;
+
+  /**
+   * Number of lanes, which is the number of matches played at once.
+   */
+  final int lanes;
+
+  /**
+   * Number of units each side has.
+   */
+  final int unitsPerSide;
+
+  /**
+   * Balance rules every match is dealt and played under.
+   */
+  private final BalanceRules rules;
+
+  /**
+   * Current HP of every unit, lanes values per BattleState slot: slot s of lane l is at s * lanes + l.
+   */
+  final long[] hp;
+
+  /**
+   * Evasion stat of every unit, laid out like hp.
+   */
+  final long[] evasion;
+
+  /**
+   * Temporary defense of every human unit, laid out like hp; the computer never blocks.
+   */
+  final long[] temporaryDefense;
+
+  /**
+   * Strength ordinal of every human unit against every computer unit: human unit u against computer unit t
+   * in lane l is at (u * unitsPerSide + t) * lanes + l.
+   */
+  final long[] strength;
+
+  /**
+   * Damage every human unit's hit deals to every computer unit at their matchup, laid out like strength.
+   */
+  final long[] humanHit;
+
+  /**
+   * Damage every computer unit's STRONG hit deals to the human unit it is paired with, without and with the block
+   * bonus: computer unit u in lane l is at (u * 2 + blocked) * lanes + l.
+   */
+  final long[] computerHit;
+
+  /**
+   * MatchRandom state of every lane.
+   */
+  final long[] random;
+
+  /**
+   * Turn every lane's match is on.
+   */
+  final int[] turn;
+
+  /**
+   * Whether every lane has a match in progress.
+   */
+  final boolean[] playing;
+
+  /**
+   * -1 in the lanes where the computer still has a unit standing after the human moves of the turn, 0 elsewhere.
+   * Flags handed between the steps of a turn are kept this way, since the vector API of JDK 17 only stores masks
+   * through a boxed copy.
+   */
+  final long[] going;
+
+  /**
+   * Scratch flags, -1 in the lanes where the human unit being resolved moves.
+   */
+  private final long[] moving;
+
+  /**
+   * Scratch target of the human unit being resolved in every lane, -1 for a block.
+   */
+  private final long[] target;
+
+  /**
+   * Scratch flags, -1 in the lanes where a unit is being attacked.
+   */
+  private final long[] attacked;
+
+  /**
+   * Scratch evasion of the unit being attacked in every lane.
+   */
+  private final long[] targetEvasion;
+
+  /**
+   * Scratch damage of the attack being resolved in every lane.
+   */
+  private final long[] damage;
+
+  /**
+   * Scratch flags, -1 in the lanes where the attack was dodged.
+   */
+  private final long[] dodged;
+
+  /**
+   * Scratch state new matches are dealt into before being spread over a lane.
+   */
+  private final BattleState deal;
+
+  /**
+   * Seed of the next match to deal.
+   */
+  private long nextSeed;
+
+  /**
+   * Seed after the last match to deal.
+   */
+  private long endSeed;
+
+  /**
+   * Results of the matches finished so far.
+   */
+  private MatchTally tally;
+
+  /**
+   * Constructs a simulator for matches with the given number of units per side and balance rules.
+   * @param unitsPerSide int representing the number of units each side has
+   * @param rules BalanceRules every match is dealt and played under
+   */
+  public LaneSimulator(int unitsPerSide, BalanceRules rules){
+    this.lanes = LANES.length();
+    this.unitsPerSide = unitsPerSide;
+    this.rules = rules;
+    int slots = unitsPerSide * 2 * this.lanes;
+    this.hp = new long[slots];
+    this.evasion = new long[slots];
+    this.temporaryDefense = new long[slots];
+    this.strength = new long[unitsPerSide * unitsPerSide * this.lanes];
+    this.humanHit = new long[unitsPerSide * unitsPerSide * this.lanes];
+    this.computerHit = new long[unitsPerSide * 2 * this.lanes];
+    this.random = new long[this.lanes];
+    this.turn = new int[this.lanes];
+    this.playing = new boolean[this.lanes];
+    this.going = new long[this.lanes];
+    this.moving = new long[this.lanes];
+    this.target = new long[this.lanes];
+    this.attacked = new long[this.lanes];
+    this.targetEvasion = new long[this.lanes];
+    this.damage = new long[this.lanes];
+    this.dodged = new long[this.lanes];
+    this.deal = new BattleState(1, unitsPerSide);
+  }
+
+  /**
+   * Plays the matches with seeds firstSeed to firstSeed + matches - 1 on this thread.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   * @return MatchTally of all matches played
+   */
+  public MatchTally play(long firstSeed, long matches){
+    this.tally = new MatchTally();
+    this.nextSeed = firstSeed;
+    this.endSeed = firstSeed + matches;
+    int inProgress = 0;
+    for (int lane = 0; lane < this.lanes; lane++) {
+      dealLane(lane);
+      inProgress += this.playing[lane] ? 1 : 0;
+    }
+    while (inProgress > 0) {
+      inProgress = playTurn();
+    }
+    return this.tally;
+  }
+
+  /**
+   * Plays one turn of every lane in progress, then tallies the matches that ended and deals new ones in their lanes.
+   * Note: This method does not take any parameters.
+   * @return int representing the number of lanes with a match in progress afterwards
+   */
+  private int playTurn(){
+    humanTurn();
+    computerTurn();
+    Arrays.fill(this.temporaryDefense, 0, this.unitsPerSide * this.lanes, 0);
+
+    int inProgress = 0;
+    for (int lane = 0; lane < this.lanes; lane++) {
+      if (!this.playing[lane]) {
+        continue;
+      }
+      if (this.going[lane] == 0) {
+        finish(lane, "human");
+      } else if (isKnockedOut(lane, BattleState.HUMAN)) {
+        finish(lane, "computer");
+      } else if (++this.turn[lane] == 10) {
+        finish(lane, winnerOnPoints(lane));
+      }
+      inProgress += this.playing[lane] ? 1 : 0;
+    }
+    return inProgress;
+  }
+
+  /**
+   * Moves the human units of every lane in progress with GreedyPolicy: each alive unit attacks the target
+   * BattleState.selectOptimalTarget picks, or blocks if there is none. A lane stops moving as soon as
+   * the computer has no unit left, since GameControl checks for a winner between human moves.
+   * Leaves the lanes where the computer still has a unit standing in going.
+   * Note: This method does not take any parameters.
+   */
+  private void humanTurn(){
+    for (int lane = 0; lane < this.lanes; lane++) {
+      this.going[lane] = this.playing[lane] ? -1 : 0;
+    }
+    for (int unit = 0; unit < this.unitsPerSide; unit++) {
+      if (findMoving(unit)) {
+        selectOptimalTarget(unit);
+        aim(unit);
+        rollDodges(this.targetEvasion, 0);
+        strike();
+      }
+    }
+  }
+
+  /**
+   * Flags the lanes in going where a human unit is standing, and so moves, in moving.
+   * @param unit int representing the human unit's position
+   * @return boolean true if the unit moves in any lane
+   */
+  private boolean findMoving(int unit){
+    VectorMask<Long> moving = LongVector.fromArray(LANES, this.going, 0).compare(VectorOperators.NE, 0)
+        .and(LongVector.fromArray(LANES, this.hp, unit * this.lanes).compare(VectorOperators.GT, 0));
+    LongVector.zero(LANES).blend(-1, moving).intoArray(this.moving, 0);
+    return moving.anyTrue();
+  }
+
+  /**
+   * Carries out the blocks of a human unit and gets its attacks ready: flags the attacking lanes in attacked and
+   * picks each lane's target evasion and damage into targetEvasion and damage.
+   * Note: This method does not return anything.
+   * @param unit int representing the human unit's position
+   */
+  private void aim(int unit){
+    int lanes = this.lanes;
+    int targets = this.unitsPerSide * lanes;
+    VectorMask<Long> moving = LongVector.fromArray(LANES, this.moving, 0).compare(VectorOperators.NE, 0);
+    LongVector target = LongVector.fromArray(LANES, this.target, 0);
+    VectorMask<Long> blocking = moving.and(target.compare(VectorOperators.LT, 0));
+    LongVector temporaryDefense = LongVector.fromArray(LANES, this.temporaryDefense, unit * lanes);
+    temporaryDefense.add(2, blocking).intoArray(this.temporaryDefense, unit * lanes);
+
+    LongVector targetEvasion = LongVector.zero(LANES);
+    LongVector damage = LongVector.zero(LANES);
+    for (int t = 0; t < this.unitsPerSide; t++) {
+      VectorMask<Long> chosen = target.compare(VectorOperators.EQ, t);
+      targetEvasion = targetEvasion.blend(LongVector.fromArray(LANES, this.evasion, targets + t * lanes), chosen);
+      damage = damage.blend(LongVector.fromArray(LANES, this.humanHit, (unit * this.unitsPerSide + t) * lanes),
+          chosen);
+    }
+    LongVector.zero(LANES).blend(-1, moving.andNot(blocking)).intoArray(this.attacked, 0);
+    targetEvasion.intoArray(this.targetEvasion, 0);
+    damage.intoArray(this.damage, 0);
+  }
+
+  /**
+   * Lands the human attacks that were not dodged on their targets and drops the lanes where the computer
+   * has no unit left from going.
+   * Note: This method does not take any parameters.
+   */
+  private void strike(){
+    int lanes = this.lanes;
+    int targets = this.unitsPerSide * lanes;
+    VectorMask<Long> hit = LongVector.fromArray(LANES, this.attacked, 0).compare(VectorOperators.NE, 0)
+        .andNot(LongVector.fromArray(LANES, this.dodged, 0).compare(VectorOperators.NE, 0));
+    LongVector target = LongVector.fromArray(LANES, this.target, 0);
+    LongVector damage = LongVector.fromArray(LANES, this.damage, 0);
+    VectorMask<Long> standing = LANES.maskAll(false);
+    for (int t = 0; t < this.unitsPerSide; t++) {
+      VectorMask<Long> struck = hit.and(target.compare(VectorOperators.EQ, t));
+      int slot = targets + t * lanes;
+      LongVector hp = LongVector.fromArray(LANES, this.hp, slot);
+      hp = hp.blend(hp.sub(damage).max(0), struck);
+      hp.intoArray(this.hp, slot);
+      standing = standing.or(hp.compare(VectorOperators.GT, 0));
+    }
+    LongVector going = LongVector.fromArray(LANES, this.going, 0);
+    going.blend(0, standing.not()).intoArray(this.going, 0);
+  }
+
+  /**
+   * Picks every moving lane's target for a human unit into target, following BattleState.selectOptimalTarget:
+   * the highest HP unit the attacker is strong against, else the highest HP unit of the same job, else the lowest
+   * HP unit the attacker is weak against.
+   * Note: This method does not return anything.
+   * @param unit int representing the human unit's position
+   */
+  private void selectOptimalTarget(int unit){
+    int lanes = this.lanes;
+    int targets = this.unitsPerSide * lanes;
+    int matchups = unit * this.unitsPerSide * lanes;
+    LongVector bestHp = LongVector.zero(LANES);
+    LongVector target = LongVector.broadcast(LANES, -1);
+
+    // strong relationships: highest HP
+    VectorMask<Long> open = LongVector.fromArray(LANES, this.moving, 0).compare(VectorOperators.NE, 0);
+    for (int t = 0; t < this.unitsPerSide; t++) {
+      LongVector hp = LongVector.fromArray(LANES, this.hp, targets + t * lanes);
+      VectorMask<Long> better = open.and(hp.compare(VectorOperators.GT, bestHp))
+          .and(LongVector.fromArray(LANES, this.strength, matchups + t * lanes)
+              .compare(VectorOperators.EQ, Strength.STRONG.ordinal()));
+      bestHp = bestHp.blend(hp, better);
+      target = target.blend(t, better);
+    }
+    open = open.andNot(bestHp.compare(VectorOperators.GT, 0));
+
+    // same relationships: highest HP
+    if (open.anyTrue()) {
+      for (int t = 0; t < this.unitsPerSide; t++) {
+        LongVector hp = LongVector.fromArray(LANES, this.hp, targets + t * lanes);
+        VectorMask<Long> better = open.and(hp.compare(VectorOperators.GT, bestHp))
+            .and(LongVector.fromArray(LANES, this.strength, matchups + t * lanes)
+                .compare(VectorOperators.EQ, Strength.SAME.ordinal()));
+        bestHp = bestHp.blend(hp, better);
+        target = target.blend(t, better);
+      }
+      open = open.andNot(bestHp.compare(VectorOperators.GT, 0));
+    }
+
+    // weak relationships: lowest HP, where only the first unit is taken regardless of the 100 HP boundary
+    if (open.anyTrue()) {
+      LongVector first = LongVector.fromArray(LANES, this.hp, targets);
+      VectorMask<Long> taken = open.and(first.compare(VectorOperators.GT, 0))
+          .and(LongVector.fromArray(LANES, this.strength, matchups).compare(VectorOperators.EQ, Strength.WEAK.ordinal()));
+      bestHp = LongVector.broadcast(LANES, 100).blend(first, taken);
+      target = target.blend(0, taken);
+      for (int t = 1; t < this.unitsPerSide; t++) {
+        LongVector hp = LongVector.fromArray(LANES, this.hp, targets + t * lanes);
+        VectorMask<Long> better = open.and(hp.compare(VectorOperators.GT, 0))
+            .and(hp.compare(VectorOperators.LT, bestHp))
+            .and(LongVector.fromArray(LANES, this.strength, matchups + t * lanes)
+                .compare(VectorOperators.EQ, Strength.WEAK.ordinal()));
+        bestHp = bestHp.blend(hp, better);
+        target = target.blend(t, better);
+      }
+    }
+    target.intoArray(this.target, 0);
+  }
+
+  /**
+   * Moves the computer units of the lanes in going with PairingPolicy: computer unit i attacks human unit i
+   * at STRONG strength, whether or not either of them is still standing.
+   * Note: This method does not take any parameters.
+   */
+  private void computerTurn(){
+    System.arraycopy(this.going, 0, this.attacked, 0, this.lanes);
+    for (int unit = 0; unit < this.unitsPerSide; unit++) {
+      rollDodges(this.evasion, unit * this.lanes);
+      counter(unit);
+    }
+  }
+
+  /**
+   * Lands a computer unit's attack on the human unit it is paired with in the lanes in attacked that did not dodge.
+   * Note: This method does not return anything.
+   * @param unit int representing the computer unit's position
+   */
+  private void counter(int unit){
+    int lanes = this.lanes;
+    int slot = unit * lanes;
+    VectorMask<Long> hit = LongVector.fromArray(LANES, this.attacked, 0).compare(VectorOperators.NE, 0)
+        .andNot(LongVector.fromArray(LANES, this.dodged, 0).compare(VectorOperators.NE, 0));
+    VectorMask<Long> blocked = LongVector.fromArray(LANES, this.temporaryDefense, slot)
+        .compare(VectorOperators.NE, 0);
+    LongVector damage = LongVector.fromArray(LANES, this.computerHit, unit * 2 * lanes)
+        .blend(LongVector.fromArray(LANES, this.computerHit, (unit * 2 + 1) * lanes), blocked);
+    LongVector hp = LongVector.fromArray(LANES, this.hp, slot);
+    hp.blend(hp.sub(damage).max(0), hit).intoArray(this.hp, slot);
+  }
+
+  /**
+   * Rolls the dodges of the lanes in attacked into dodged, following BattleState.receiveDamage: a lane rolls only
+   * if the target's evasion is above 0, and dodges if nextInt(21) is at most the evasion. The draw takes the same
+   * bits from the lane's MatchRandom state and starts over in the same cases as RandomGenerator's bounded nextInt,
+   * so every lane's stream stays in step with the scalar engine.
+   * Note: This method does not return anything.
+   * @param evasion long array holding the attacked units' evasion
+   * @param offset int representing where the lanes start in evasion
+   */
+  private void rollDodges(long[] evasion, int offset){
+    LongVector targetEvasion = LongVector.fromArray(LANES, evasion, offset);
+    VectorMask<Long> rolling = LongVector.fromArray(LANES, this.attacked, 0).compare(VectorOperators.NE, 0)
+        .and(targetEvasion.compare(VectorOperators.GT, 0));
+    if (!rolling.anyTrue()) {
+      Arrays.fill(this.dodged, 0);
+      return;
+    }
+
+    LongVector state = LongVector.fromArray(LANES, this.random, 0);
+    LongVector roll = LongVector.zero(LANES);
+    VectorMask<Long> pending = rolling;
+    while (pending.anyTrue()) {
+      // MatchRandom.nextLong: a SplitMix64 step, then nextInt's high half shifted right once
+      state = state.add(GOLDEN_GAMMA, pending);
+      LongVector z = state;
+      z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 30)).mul(0xbf58476d1ce4e5b9L);
+      z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 27)).mul(0x94d049bb133111ebL);
+      LongVector bits = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 31))
+          .lanewise(VectorOperators.LSHR, 33);
+      LongVector remainder = bits.sub(bits.mul(DIVIDE_BY_21).lanewise(VectorOperators.LSHR, 36).mul(21));
+      roll = roll.blend(remainder, pending);
+      // the bounded draw starts over when bits + 20 - remainder overflows an int
+      pending = pending.and(bits.sub(remainder).compare(VectorOperators.GT, Integer.MAX_VALUE - 20));
+    }
+    state.intoArray(this.random, 0);
+    LongVector.zero(LANES).blend(-1, rolling.and(roll.compare(VectorOperators.LE, targetEvasion)))
+        .intoArray(this.dodged, 0);
+  }
+
+  /**
+   * Determines if every unit on one side of a lane's match is knocked out.
+   * @param lane int representing the lane
+   * @param side int representing the side, BattleState.HUMAN or BattleState.COMPUTER
+   * @return boolean true if the side has no units left or false
+   */
+  private boolean isKnockedOut(int lane, int side){
+    int first = side * this.unitsPerSide;
+    for (int unit = first; unit < first + this.unitsPerSide; unit++) {
+      if (this.hp[unit * this.lanes + lane] > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Decides a lane's match that went all 10 turns on HP totals, following BattleState.getWinner.
+   * @param lane int representing the lane
+   * @return String "human", "computer" or "tie"
+   */
+  private String winnerOnPoints(int lane){
+    long humanPoints = 0;
+    long computerPoints = 0;
+    for (int unit = 0; unit < this.unitsPerSide; unit++) {
+      humanPoints += this.hp[unit * this.lanes + lane];
+      computerPoints += this.hp[(this.unitsPerSide + unit) * this.lanes + lane];
+    }
+    if (computerPoints > humanPoints) {
+      return "computer";
+    } else if (humanPoints > computerPoints) {
+      return "human";
+    }
+    return "tie";
+  }
+
+  /**
+   * Tallies a lane's finished match with the HP each side has left and deals the next one into the lane.
+   * Note: This method does not return anything.
+   * @param lane int representing the lane
+   * @param winner String representing who won
+   */
+  private void finish(int lane, String winner){
+    int humanHp = 0;
+    int computerHp = 0;
+    for (int unit = 0; unit < this.unitsPerSide; unit++) {
+      humanHp += (int) this.hp[unit * this.lanes + lane];
+      computerHp += (int) this.hp[(this.unitsPerSide + unit) * this.lanes + lane];
+    }
+    this.tally.record(winner, this.turn[lane], humanHp, computerHp);
+    dealLane(lane);
+  }
+
+  /**
+   * Deals the next seed into a lane with BattleState.deal, or marks the lane idle if every seed has been dealt.
+   * The damage of every hit the lane can see is looked up here with BattleState.hitDamage, since it only depends
+   * on the two units, their matchup and whether the human unit blocked, which adds 2 temporary defense at most once
+   * per turn.
+   * Note: This method does not return anything.
+   * @param lane int representing the lane
+   */
+  private void dealLane(int lane){
+    if (this.nextSeed == this.endSeed) {
+      this.playing[lane] = false;
+      return;
+    }
+    MatchRandom random = new MatchRandom(this.nextSeed++);
+    BattleState deal = this.deal;
+    deal.deal(0, this.rules, random);
+
+    int lanes = this.lanes;
+    int units = this.unitsPerSide;
+    for (int slot = 0; slot < units * 2; slot++) {
+      this.hp[slot * lanes + lane] = deal.getHp(slot);
+      this.evasion[slot * lanes + lane] = deal.getEvasion(slot);
+      this.temporaryDefense[slot * lanes + lane] = 0;
+    }
+    for (int unit = 0; unit < units; unit++) {
+      for (int t = 0; t < units; t++) {
+        int i = (unit * units + t) * lanes + lane;
+        this.strength[i] = deal.strength(unit, units + t).ordinal();
+        this.humanHit[i] = deal.hitDamage(unit, units + t);
+      }
+      this.computerHit[unit * 2 * lanes + lane] = deal.hitDamage(units + unit, unit, Strength.STRONG);
+      deal.block(unit);
+      this.computerHit[(unit * 2 + 1) * lanes + lane] = deal.hitDamage(units + unit, unit, Strength.STRONG);
+    }
+    this.random[lane] = random.getState();
+    this.turn[lane] = 0;
+    this.playing[lane] = true;
+  }
+
+  /**
+   * Plays the matches with seeds firstSeed to firstSeed + matches - 1 across all cores.
+   * @param firstSeed long representing the seed of the first match
+   * @param matches long representing the number of matches to play
+   * @param rules BalanceRules every match is dealt and played under
+   * @return MatchTally of all matches played
+   */
+  public static MatchTally simulate(long firstSeed, long matches, BalanceRules rules){
+    return ForkJoinPool.commonPool().invoke(new Task(firstSeed, matches, rules));
+  }
+
+  /**
+   * Runs the same seed range on the vector kernel and on BatchSimulator and prints the speed of both and how
+   * far apart their win rates and match lengths are.
+   * @param args optional number of matches and seed of the first match, defaults to 1000000 and 0
+   */
+  public static void main(String[] args){
+    long matches = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+    long firstSeed = args.length > 1 ? Long.parseLong(args[1]) : 0L;
+    System.out.println(LANES.length() + " lanes (" + LANES + ")");
+
+    long start = System.nanoTime();
+    MatchTally vector = simulate(firstSeed, matches, BalanceRules.STANDARD);
+    double vectorSeconds = (System.nanoTime() - start) / 1e9;
+    start = System.nanoTime();
+    MatchTally scalar = ForkJoinPool.commonPool().invoke(new BatchSimulator(firstSeed, matches, BalanceRules.STANDARD));
+    double scalarSeconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.println(String.format("vector: %.0f matches per second, %s", matches / vectorSeconds, vector));
+    System.out.println(String.format("scalar: %.0f matches per second, %s", matches / scalarSeconds, scalar));
+    System.out.println(String.format("human win rate difference %.5f (z = %.2f), computer %.5f (z = %.2f), "
+        + "average length %.5f turns",
+        rate(vector.getHumanWins(), vector) - rate(scalar.getHumanWins(), scalar),
+        z(vector.getHumanWins(), scalar.getHumanWins(), matches),
+        rate(vector.getComputerWins(), vector) - rate(scalar.getComputerWins(), scalar),
+        z(vector.getComputerWins(), scalar.getComputerWins(), matches),
+        vector.getAverageTurns() - scalar.getAverageTurns()));
+  }
+
+  /**
+   * Returns a count as a share of a tally's matches.
+   * @param count long representing the count
+   * @param tally MatchTally the count comes from
+   * @return double representing the share
+   */
+  private static double rate(long count, MatchTally tally){
+    return (double) count / Math.max(tally.getMatches(), 1);
+  }
+
+  /**
+   * Returns the two-proportion z statistic of two counts out of the same number of matches.
+   * @param a long representing the first count
+   * @param b long representing the second count
+   * @param matches long representing the matches each count is out of
+   * @return double representing the z statistic, 0 if both counts are the same
+   */
+  private static double z(long a, long b, long matches){
+    if (a == b) {
+      return 0;
+    }
+    double pooled = (double) (a + b) / (2.0 * matches);
+    double error = Math.sqrt(pooled * (1 - pooled) * 2.0 / matches);
+    return ((double) (a - b) / matches) / error;
+  }
+
+  /**
+   * Splits a seed range over the fork/join pool, one LaneSimulator per leaf.
+   */
+  private static final class Task extends RecursiveTask<MatchTally> {
+
+    /**
+     * Version of the serialized form, which fork/join tasks inherit but never use.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Seed of the first match this task plays.
+     */
+    private final long firstSeed;
+
+    /**
+     * Number of matches this task is responsible for.
+     */
+    private final long matches;
+
+    /**
+     * Balance rules every match is played under.
+     */
+    private final transient BalanceRules rules;
+
+    /**
+     * Constructs a task for a range of match seeds.
+     * @param firstSeed long representing the seed of the first match
+     * @param matches long representing the number of matches to play
+     * @param rules BalanceRules every match is played under
+     */
+    Task(long firstSeed, long matches, BalanceRules rules){
+      this.firstSeed = firstSeed;
+      this.matches = matches;
+      this.rules = rules;
+    }
+
+    /**
+     * Plays the range on this thread if it is small enough, otherwise splits it in two.
+     * @return MatchTally of all matches played by this task
+     */
+    @Override
+    protected MatchTally compute(){
+      if (this.matches <= SPLIT_THRESHOLD) {
+        return new LaneSimulator(3, this.rules).play(this.firstSeed, this.matches);
+      }
+      long half = this.matches / 2;
+      Task left = new Task(this.firstSeed, half, this.rules);
+      Task right = new Task(this.firstSeed + half, this.matches - half, this.rules);
+      left.fork();
+      return right.compute().merge(left.join());
+    }
+  }
+}